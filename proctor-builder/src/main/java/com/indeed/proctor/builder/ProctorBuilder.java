@@ -7,6 +7,7 @@ import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 
 public class ProctorBuilder {
@@ -34,4 +35,11 @@ public class ProctorBuilder {
     public void execute() throws StoreException, IOException, IncompatibleTestMatrixException {
         ProctorBuilderUtils.generateArtifact(proctorReader, outputSink, author, version);
     }
+
+    /**
+     * Writes the artifact in {@link com.indeed.proctor.common.BinaryTestMatrixFormat} instead of json to the output stream
+     */
+    public void executeBinary(final OutputStream binaryOutputSink) throws StoreException, IOException, IncompatibleTestMatrixException {
+        ProctorBuilderUtils.generateBinaryArtifact(proctorReader, binaryOutputSink, author, version);
+    }
 }
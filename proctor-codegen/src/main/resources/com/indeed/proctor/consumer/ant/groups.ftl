@@ -21,6 +21,9 @@ import java.util.Map;
 @Generated("com.indeed.proctor.consumer.gen.TestGroupsGenerator")
 public class ${mainClassName} extends AbstractGroups {
 
+    /** ordinals of tests in the current test matrix, by ordinal of ${testEnumName} */
+    private static final TestOrdinals TEST_ORDINALS = new TestOrdinals(${testEnumName}.values());
+
     public static final ${mainClassName} EMPTY = new ${mainClassName}(ProctorResult.EMPTY);
 
     public ${mainClassName}(final ProctorResult proctorResult) {
@@ -122,12 +125,11 @@ public class ${mainClassName} extends AbstractGroups {
     <#if testDef.buckets?has_content>
     @Nonnull
     public ${testDef.javaClassName} get${testDef.javaClassName}() {
-        for (final ${testDef.javaClassName} bucket : ${testDef.javaClassName}.values()) {
-            final String testName = Test.${testDef.enumName}.getName();
-            if (isBucketActive(testName, bucket.getValue(), ${testDef.defaultValue})) {
-                return bucket;
-            }
+        <#list testDef.buckets as bucket>
+        if (isBucketActive(TEST_ORDINALS, ${testEnumName}.${testDef.enumName}.ordinal(), ${testDef.javaClassName}.${bucket.enumName}.getValue())) {
+            return ${testDef.javaClassName}.${bucket.enumName};
         }
+        </#list>
 
         // Safe to throw NPE here because the code generator ensures that the default value
         //  is a valid bucket in the test.
@@ -143,13 +145,13 @@ public class ${mainClassName} extends AbstractGroups {
     }
 
     public int get${testDef.javaClassName}Value() {
-        return getValue(${testEnumName}.${testDef.enumName}.getName(), ${testEnumName}.${testDef.enumName}.getFallbackValue());
+        return getValue(TEST_ORDINALS, ${testEnumName}.${testDef.enumName}.ordinal());
     }
 
     <#if (testDef.payloadJavaClass)??>
     <#if (testDef.isMap)??>
     public @Nullable ${mainClassName}Payload.${testDef.name?cap_first} get${testDef.javaClassName}Payload() {
-        final Payload payload = getPayload(${testEnumName}.${testDef.enumName}.getName(), ${testEnumName}.${testDef.enumName}.getFallbackValue());
+        final Payload payload = getPayload(TEST_ORDINALS, ${testEnumName}.${testDef.enumName}.ordinal());
         if (payload == null || payload.equals(Payload.EMPTY_PAYLOAD)) {
             return null;
         }
@@ -167,7 +169,7 @@ public class ${mainClassName} extends AbstractGroups {
     </#if>
     <#else>
     public @Nullable ${testDef.payloadJavaClass} get${testDef.javaClassName}Payload() {
-        final Payload payload = getPayload(${testEnumName}.${testDef.enumName}.getName(), ${testEnumName}.${testDef.enumName}.getFallbackValue());
+        final Payload payload = getPayload(TEST_ORDINALS, ${testEnumName}.${testDef.enumName}.ordinal());
         return payload.${testDef.payloadAccessorName}();
     }
 
@@ -195,9 +197,8 @@ public class ${mainClassName} extends AbstractGroups {
 
 <#list testDef.buckets as bucket>
     public boolean is${testDef.javaClassName}${bucket.javaClassName}() {
-        final String testName = Test.${testDef.enumName}.getName();
         final int bucketValue = ${testDef.javaClassName}.${bucket.enumName}.getValue();
-        return isBucketActive(testName, bucketValue, ${testDef.defaultValue});
+        return isBucketActive(TEST_ORDINALS, ${testEnumName}.${testDef.enumName}.ordinal(), bucketValue);
     }
 <#if bucket_has_next || testDef_has_next>
 
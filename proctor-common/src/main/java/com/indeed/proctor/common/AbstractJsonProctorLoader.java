@@ -27,6 +27,7 @@ public abstract class AbstractJsonProctorLoader extends AbstractProctorLoader {
     private static final String TEST_MATRIX_ARTIFACT_JSON_KEY_AUDIT = "audit";
     private static final String TEST_MATRIX_ARTIFACT_JSON_KEY_TESTS = "tests";
     private static final ObjectMapper OBJECT_MAPPER = Serializers.lenient();
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
     public AbstractJsonProctorLoader(
             @Nonnull final Class<?> cls,
@@ -64,55 +65,17 @@ public abstract class AbstractJsonProctorLoader extends AbstractProctorLoader {
      * The value for "tests" includes all of proctor tests, so it is very huge. In order to avoid big memory footprints,
      * this method only loads referenced tests, which are determined by requiredTests and dynamicFilters, by iterating over
      * entries under the value for "tests".
+     * When "audit" comes first, as in test matrices written by proctor, and has the version of the last loaded test matrix,
+     * the tests are not read at all.
      *
      * @param reader
-     * @return TestMatrixArtifact with referenced test definitions only
+     * @return TestMatrixArtifact with referenced test definitions only, or without tests if the audit was already loaded
      * @throws IOException
      */
     @CheckForNull
     protected TestMatrixArtifact loadJsonTestMatrix(@Nonnull final Reader reader) throws IOException {
         try {
-            final TestMatrixArtifact testMatrixArtifact = new TestMatrixArtifact();
-
-            final JsonFactory jsonFactory = new JsonFactory();
-            final JsonParser jsonParser = jsonFactory.createParser(reader);
-            // At this point, currentToken() returns null.
-
-            // Go to the next token, which must be "{".
-            // This condition will be verified in consumeJson.
-            jsonParser.nextToken();
-
-            JsonParserUtils.consumeJson(
-                    jsonParser,
-                    (key, parser) -> {
-                        switch (key) {
-                            case TEST_MATRIX_ARTIFACT_JSON_KEY_AUDIT:
-                                // The value for "audit" field must be an object.
-                                Preconditions.checkState(parser.currentToken() == JsonToken.START_OBJECT);
-
-                                testMatrixArtifact.setAudit(OBJECT_MAPPER.readValue(parser, Audit.class));
-                                break;
-
-                            case TEST_MATRIX_ARTIFACT_JSON_KEY_TESTS:
-                                // The value for "tests" field must be an object.
-                                Preconditions.checkState(parser.currentToken() == JsonToken.START_OBJECT);
-
-                                testMatrixArtifact.setTests(extractReferencedTests(parser));
-                                break;
-
-                            default:
-                                LOGGER.warn("Unknown test matrix artifact json key: '" + key + "'");
-                                // If key is not either "audit" or "tests", just skip the value.
-                                parser.skipChildren();
-                                break;
-                        }
-                    }
-            );
-
-            Preconditions.checkNotNull(testMatrixArtifact.getAudit(), "Field \"audit\" was not found in json");
-            Preconditions.checkNotNull(testMatrixArtifact.getTests(), "Field \"tests\" was not found in json");
-
-            return testMatrixArtifact;
+            return parseTestMatrix(JSON_FACTORY.createParser(reader));
         } catch (final IOException e) {
             LOGGER.error("Unable to load test matrix from " + getSource(), e);
             throw e;
@@ -127,16 +90,72 @@ public abstract class AbstractJsonProctorLoader extends AbstractProctorLoader {
         }
     }
 
+    /**
+     * @return the test matrix, or a test matrix without tests if its audit was already loaded
+     */
+    @Nonnull
+    private TestMatrixArtifact parseTestMatrix(@Nonnull final JsonParser jsonParser) throws IOException {
+        final TestMatrixArtifact testMatrixArtifact = new TestMatrixArtifact();
+
+        // At this point, currentToken() returns null.
+
+        // Go to the next token, which must be "{".
+        // This condition will be verified in consumeJson.
+        jsonParser.nextToken();
+
+        JsonParserUtils.consumeJsonUntil(
+                jsonParser,
+                (key, parser) -> {
+                    switch (key) {
+                        case TEST_MATRIX_ARTIFACT_JSON_KEY_AUDIT:
+                            // The value for "audit" field must be an object.
+                            Preconditions.checkState(parser.currentToken() == JsonToken.START_OBJECT);
+
+                            testMatrixArtifact.setAudit(OBJECT_MAPPER.readValue(parser, Audit.class));
+                            break;
+
+                        case TEST_MATRIX_ARTIFACT_JSON_KEY_TESTS:
+                            // The value for "tests" field must be an object.
+                            Preconditions.checkState(parser.currentToken() == JsonToken.START_OBJECT);
+
+                            testMatrixArtifact.setTests(extractReferencedTests(parser));
+                            break;
+
+                        default:
+                            LOGGER.warn("Unknown test matrix artifact json key: '" + key + "'");
+                            // If key is not either "audit" or "tests", just skip the value.
+                            parser.skipChildren();
+                            break;
+                    }
+                },
+                // stop reading tests that would be discarded
+                () -> (testMatrixArtifact.getAudit() != null) && isAuditLoaded(testMatrixArtifact.getAudit())
+        );
+
+        Preconditions.checkNotNull(testMatrixArtifact.getAudit(), "Field \"audit\" was not found in json");
+        Preconditions.checkNotNull(testMatrixArtifact.getTests(), "Field \"tests\" was not found in json");
+
+        return testMatrixArtifact;
+    }
+
     private Map<String, ConsumableTestDefinition> extractReferencedTests(@Nonnull final JsonParser jsonParser) throws IOException {
         // use HashMap instead of ImmutableMap.Builder because null might be put
         final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        final boolean requiresTestDefinition = dynamicFilters.requiresTestDefinition();
 
         JsonParserUtils.consumeJson(
                 jsonParser,
                 (testName, parser) -> {
+                    // deserialize definitions only for referenced tests or filters matching definitions
+                    final boolean referencedByName = isTestReferencedByName(testName);
+                    if (!referencedByName && !requiresTestDefinition) {
+                        parser.skipChildren();
+                        return;
+                    }
+
                     final ConsumableTestDefinition testDefinition = OBJECT_MAPPER.readValue(jsonParser, ConsumableTestDefinition.class);
 
-                    if (isTestReferenced(testName, testDefinition)) {
+                    if (isTestReferenced(testName, testDefinition, referencedByName)) {
                         tests.put(testName, testDefinition);
                     }
                 }
@@ -145,9 +164,23 @@ public abstract class AbstractJsonProctorLoader extends AbstractProctorLoader {
         return tests;
     }
 
-    private boolean isTestReferenced(final String testName, final ConsumableTestDefinition testDefinition) {
+    private boolean isTestReferencedByName(final String testName) {
+        // all tests are kept for a shared cache, which projects them for each loader
+        if (isLoadingAllTests()) {
+            return true;
+        }
+        // check required tests and dynamic filters of test names
+        return Preconditions.checkNotNull(requiredTests).containsKey(testName)
+                || dynamicFilters.matchesTestName(testName);
+    }
+
+    private boolean isTestReferenced(
+            final String testName,
+            final ConsumableTestDefinition testDefinition,
+            final boolean referencedByName
+    ) {
         // check required tests
-        if (Preconditions.checkNotNull(requiredTests).containsKey(testName)) {
+        if (isLoadingAllTests() || requiredTests.containsKey(testName)) {
             return true;
         }
 
@@ -157,6 +190,6 @@ public abstract class AbstractJsonProctorLoader extends AbstractProctorLoader {
         }
 
         // check dynamic filters
-        return dynamicFilters.matches(testName, testDefinition);
+        return referencedByName || dynamicFilters.matches(testName, testDefinition);
     }
 }
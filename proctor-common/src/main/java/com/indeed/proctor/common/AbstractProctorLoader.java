@@ -6,6 +6,7 @@ import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
 import com.indeed.proctor.common.dynamic.DynamicFilters;
 import com.indeed.proctor.common.model.Audit;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
 import com.indeed.proctor.common.model.TestMatrixArtifact;
 import com.indeed.util.core.DataLoadingTimerTask;
 import com.indeed.util.varexport.Export;
@@ -21,10 +22,12 @@ import javax.el.FunctionMapper;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.concurrent.Executor;
 
 public abstract class AbstractProctorLoader extends DataLoadingTimerTask implements Supplier<Proctor> {
     private static final Logger LOGGER = LogManager.getLogger(AbstractProctorLoader.class);
@@ -35,11 +38,18 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
     @Nullable
     protected final Map<String, TestSpecification> requiredTests;
     @Nullable
-    private Proctor current = null;
+    private volatile Proctor current = null;
     @Nullable
     private Audit lastAudit = null;
     @Nullable
     private String lastLoadErrorMessage = "load never attempted";
+    /**
+     * validators of the source of the last loaded test matrix, see {@link #getLoadedSourceValidators()}
+     */
+    @Nullable
+    private Object lastSourceValidators = null;
+    @Nullable
+    private Object loadingSourceValidators = null;
 
 
     @Nonnull
@@ -51,6 +61,29 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
     protected final DynamicFilters dynamicFilters;
 
     private final List<ProctorLoadReporter> reporters = new ArrayList<>();
+    @Nullable
+    private Executor verificationExecutor = null;
+    @Nonnull
+    private RuleEvaluationMode ruleEvaluationMode = RuleEvaluationMode.getInitial();
+    @Nullable
+    private ProctorWarmUpSampler warmUpSampler = null;
+    private int warmUpIterations = 0;
+    @Nullable
+    private SharedTestMatrixCache sharedTestMatrixCache = null;
+    private long sharedTestMatrixMaxAgeMillis = 0;
+    /**
+     * true while loading the whole test matrix for the shared cache
+     */
+    private boolean loadingAllTests = false;
+    /**
+     * audit and source validators of the test matrix in the shared cache, compared with the source while loading all tests
+     */
+    @Nullable
+    private Audit sharedAudit = null;
+    @Nullable
+    private Object sharedSourceValidators = null;
+    private volatile long lastInternedDuplicateCount = 0;
+    private volatile long lastInternedSavedBytes = 0;
 
     public AbstractProctorLoader(
             @Nonnull final Class<?> cls,
@@ -107,6 +140,9 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
 
     @Override
     public boolean load() {
+        // loaders run periodically, so errors of an ended window are summarized even if none occur anymore
+        EvaluationErrorReporter.getInstance().logSummaryIfWindowEnded();
+
         final Proctor newProctor;
         try {
             newProctor = doLoad();
@@ -124,6 +160,9 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
             return true; // mark this cycle as success so that healthcheck recovers
         }
 
+        // before publishing, as the first calls of a new proctor are slow
+        warmUp(newProctor);
+
         reportReloaded(current, newProctor);
 
         current = newProctor;
@@ -136,11 +175,29 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
 
     @CheckForNull
     public Proctor doLoad() throws IOException, MissingTestMatrixException {
-        final TestMatrixArtifact testMatrix = loadTestMatrix();
+        loadingSourceValidators = null;
+        final SharedTestMatrixCache sharedTestMatrixCache = this.sharedTestMatrixCache;
+        final TestMatrixArtifact testMatrix = (sharedTestMatrixCache == null)
+                ? loadTestMatrix()
+                : loadSharedTestMatrix(sharedTestMatrixCache);
         if (testMatrix == null) {
             throw new MissingTestMatrixException("Failed to load Test Matrix from " + getSource());
         }
 
+        // check before verifying tests, which may be skipped by loaders when the audit is unchanged
+        final Audit newAudit = testMatrix.getAudit();
+        if (lastAudit != null) {
+            final Audit audit = Preconditions.checkNotNull(newAudit, "Missing audit");
+            if (isAuditLoaded(audit)) {
+                if (LOGGER.isDebugEnabled()) {
+                    LOGGER.debug("Not reloading " + getSource() + " test matrix definition because audit is unchanged: " + lastAudit.getVersion() + " @ " + lastAudit.getUpdated() + " by " + lastAudit.getUpdatedBy());
+                }
+                lastSourceValidators = loadingSourceValidators;
+
+                return null;
+            }
+        }
+
         final Set<String> dynamicTests = dynamicFilters.determineTests(
                 testMatrix.getTests(),
                 requiredTests.keySet()
@@ -153,7 +210,8 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
                 requiredTests,
                 functionMapper,
                 providedContext,
-                dynamicTests
+                dynamicTests,
+                verificationExecutor
         );
 
         loadResult.getTestErrorMap().forEach((testName, exception) -> {
@@ -173,24 +231,152 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
             ));
         });
 
-        final Audit newAudit = testMatrix.getAudit();
-        if (lastAudit != null) {
-            final Audit audit = Preconditions.checkNotNull(newAudit, "Missing audit");
-            if (lastAudit.getVersion().equals(audit.getVersion())) {
-                if (LOGGER.isDebugEnabled()) {
-                    LOGGER.debug("Not reloading " + getSource() + " test matrix definition because audit is unchanged: " + lastAudit.getVersion() + " @ " + lastAudit.getUpdated() + " by " + lastAudit.getUpdatedBy());
-                }
-
-                return null;
-            }
-        }
+        final TestDefinitionInterner interner = new TestDefinitionInterner();
+        interner.intern(testMatrix);
+        lastInternedDuplicateCount = interner.getDuplicateCount();
+        lastInternedSavedBytes = interner.getEstimatedSavedBytes();
 
-        final Proctor proctor = Proctor.construct(testMatrix, loadResult, functionMapper, identifierValidator);
+        // tests unchanged since the current proctor are not set up again
+        final Proctor proctor = Proctor.construct(
+                testMatrix, loadResult, functionMapper, identifierValidator, ruleEvaluationMode, current);
         //  kind of lame to modify lastAudit here but current in load(), but the interface is a little constraining
         setLastAudit(newAudit);
+        lastSourceValidators = loadingSourceValidators;
         return proctor;
     }
 
+    @CheckForNull
+    private TestMatrixArtifact loadSharedTestMatrix(
+            @Nonnull final SharedTestMatrixCache sharedTestMatrixCache
+    ) throws IOException, MissingTestMatrixException {
+        final BinaryTestMatrixFormat.Index index = sharedTestMatrixCache.get(
+                getSource(), sharedTestMatrixMaxAgeMillis, this::loadAllTests);
+        final Audit audit = index.getAudit();
+        if ((audit != null) && isAuditLoaded(audit)) {
+            return createLastAuditTestMatrix();
+        }
+
+        final TestMatrixArtifact testMatrix = new TestMatrixArtifact();
+        testMatrix.setAudit(audit);
+        testMatrix.setTests(readReferencedTests(index));
+        return testMatrix;
+    }
+
+    @Nonnull
+    private SharedTestMatrixCache.LoadedTestMatrix loadAllTests(
+            @Nullable final Audit cachedAudit,
+            @Nullable final Object cachedValidators
+    ) throws IOException, MissingTestMatrixException {
+        loadingAllTests = true;
+        sharedAudit = cachedAudit;
+        sharedSourceValidators = cachedValidators;
+        try {
+            final TestMatrixArtifact testMatrix = loadTestMatrix();
+            return new SharedTestMatrixCache.LoadedTestMatrix(testMatrix, loadingSourceValidators);
+        } finally {
+            loadingAllTests = false;
+            sharedAudit = null;
+            sharedSourceValidators = null;
+            loadingSourceValidators = null;
+        }
+    }
+
+    /**
+     * Loaders should keep all tests, not only referenced ones, if this is true,
+     * as the test matrix is loaded for {@link SharedTestMatrixCache} to be shared with other loaders.
+     * Loaders can still stop early by {@link #isAuditLoaded(Audit)} and {@link #getLoadedSourceValidators()},
+     * which then compare with the test matrix in the cache.
+     *
+     * @return true while loading the whole test matrix
+     */
+    protected boolean isLoadingAllTests() {
+        return loadingAllTests;
+    }
+
+    /**
+     * Decodes tests required by the specification or matched by its dynamic filters,
+     * or all tests while {@link #isLoadingAllTests()}.
+     */
+    @Nonnull
+    protected Map<String, ConsumableTestDefinition> readReferencedTests(
+            @Nonnull final BinaryTestMatrixFormat.Index index
+    ) throws IOException {
+        // use HashMap instead of ImmutableMap.Builder because null might be put
+        final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        final boolean requiresTestDefinition = dynamicFilters.requiresTestDefinition();
+        for (final String testName : index.getTestNames()) {
+            if (loadingAllTests || requiredTests.containsKey(testName)) {
+                tests.put(testName, index.readTest(testName));
+            } else if (dynamicFilters.matchesTestName(testName)) {
+                final ConsumableTestDefinition testDefinition = index.readTest(testName);
+                if (testDefinition != null) {
+                    tests.put(testName, testDefinition);
+                }
+            } else if (requiresTestDefinition) {
+                final ConsumableTestDefinition testDefinition = index.readTest(testName);
+                if ((testDefinition != null) && dynamicFilters.matches(testName, testDefinition)) {
+                    tests.put(testName, testDefinition);
+                }
+            }
+        }
+        return tests;
+    }
+
+    /**
+     * Loaders can use this to stop loading a test matrix early, returning a test matrix of only the audit,
+     * as {@link #doLoad()} does not reload a test matrix with the same audit version.
+     *
+     * @return true if the last loaded test matrix, or the shared one while {@link #isLoadingAllTests()},
+     * has the same audit version
+     */
+    protected boolean isAuditLoaded(@Nonnull final Audit audit) {
+        final Audit loadedAudit = getLoadedAudit();
+        return (loadedAudit != null) && loadedAudit.getVersion().equals(audit.getVersion());
+    }
+
+    /**
+     * Loaders can keep validators of the source with the test matrix being loaded, e.g. an ETag of the response
+     * or the modification time of a file, to tell an unchanged source by {@link #getLoadedSourceValidators()} next time.
+     * They are kept only if the test matrix is loaded, and dropped by a load not setting them,
+     * so loaders should set the same validators again when the source is unchanged.
+     */
+    protected void setLoadingSourceValidators(@Nullable final Object validators) {
+        loadingSourceValidators = validators;
+    }
+
+    /**
+     * @return validators of the source set by {@link #setLoadingSourceValidators(Object)}
+     * when the last test matrix was loaded, or the shared one while {@link #isLoadingAllTests()}
+     */
+    @CheckForNull
+    protected Object getLoadedSourceValidators() {
+        return loadingAllTests ? sharedSourceValidators : lastSourceValidators;
+    }
+
+    @CheckForNull
+    private Audit getLoadedAudit() {
+        return loadingAllTests ? sharedAudit : lastAudit;
+    }
+
+    /**
+     * Loaders can return this from {@link #loadTestMatrix()} when they know the source is unchanged
+     * since the last load, so that it is reported as no change.
+     *
+     * @return a test matrix of only the last loaded audit, or the shared one while {@link #isLoadingAllTests()},
+     * or null if nothing was loaded yet
+     */
+    @CheckForNull
+    protected TestMatrixArtifact createLastAuditTestMatrix() {
+        final Audit loadedAudit = getLoadedAudit();
+        if (loadedAudit == null) {
+            return null;
+        }
+        final TestMatrixArtifact testMatrixArtifact = new TestMatrixArtifact();
+        testMatrixArtifact.setAudit(loadedAudit);
+        testMatrixArtifact.setTests(Collections.emptyMap());
+        return testMatrixArtifact;
+    }
+
     @CheckForNull
     public Proctor get() {
         return current;
@@ -207,6 +393,16 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
         lastAudit = newAudit;
     }
 
+    @Export(name = "interned-duplicates", doc = "Number of strings and objects shared among test definitions of the last loaded test matrix")
+    public long getLastInternedDuplicateCount() {
+        return lastInternedDuplicateCount;
+    }
+
+    @Export(name = "interned-saved-bytes", doc = "Rough estimate of heap bytes saved by sharing strings and objects among test definitions of the last loaded test matrix")
+    public long getLastInternedSavedBytes() {
+        return lastInternedSavedBytes;
+    }
+
     @CheckForNull
     @Export(name = "last-error", doc = "The last error message thrown by the loader. null indicates a successful load.")
     public String getLastLoadErrorMessage() {
@@ -245,6 +441,81 @@ public abstract class AbstractProctorLoader extends DataLoadingTimerTask impleme
         reporters.addAll(newReporters);
     }
 
+    /**
+     * Makes {@link #load()} call {@link Proctor#determineTestGroups} of a newly loaded proctor
+     * with sampled arguments before publishing it, to have its first calls from requests not slowed down.
+     *
+     * @param sampler    supplies arguments of the calls
+     * @param iterations number of calls, 0 to disable warm-up
+     */
+    public void setWarmUp(@Nullable final ProctorWarmUpSampler sampler, final int iterations) {
+        Preconditions.checkArgument(iterations >= 0, "iterations should be non-negative");
+        this.warmUpSampler = sampler;
+        this.warmUpIterations = iterations;
+    }
+
+    private void warmUp(@Nonnull final Proctor proctor) {
+        final ProctorWarmUpSampler sampler = warmUpSampler;
+        if ((sampler == null) || (warmUpIterations == 0)) {
+            return;
+        }
+        final int iterations = warmUpIterations;
+        final long start = System.currentTimeMillis();
+        try {
+            // errors of sampled calls are not counted as errors of requests
+            EvaluationCounting.runUncounted(() -> {
+                for (int i = 0; i < iterations; i++) {
+                    proctor.determineTestGroups(
+                            sampler.sampleIdentifiers(i),
+                            sampler.sampleContext(i),
+                            ForceGroupsOptions.empty(),
+                            sampler.sampleTestNameFilter(i)
+                    );
+                }
+            });
+        } catch (final RuntimeException e) {
+            // the proctor is published without complete warm-up
+            LOGGER.warn("Failed to warm up proctor loaded from " + getSource(), e);
+            return;
+        }
+        LOGGER.info("Warmed up proctor loaded from " + getSource() + " with " + iterations
+                + " calls in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Makes this loader fetch and parse the test matrix through a cache shared with other loaders of the same source,
+     * decoding only the tests used by this loader from the shared copy.
+     *
+     * @param sharedTestMatrixCache cache, usually {@link SharedTestMatrixCache#getInstance()}, or null to load by itself
+     * @param maxAgeMillis          how long a cached test matrix is used without loading the source again,
+     *                              usually the reload period of loaders of the same source
+     */
+    public void setSharedTestMatrixCache(@Nullable final SharedTestMatrixCache sharedTestMatrixCache, final long maxAgeMillis) {
+        Preconditions.checkArgument(maxAgeMillis >= 0, "maxAgeMillis should be non-negative");
+        this.sharedTestMatrixCache = sharedTestMatrixCache;
+        this.sharedTestMatrixMaxAgeMillis = maxAgeMillis;
+    }
+
+    /**
+     * Sets an executor to verify tests of loaded test matrices in parallel.
+     * The number of threads used for verification is bounded by the executor.
+     *
+     * @param verificationExecutor executor, or null to verify tests in the loading thread
+     */
+    public void setVerificationExecutor(@Nullable final Executor verificationExecutor) {
+        this.verificationExecutor = verificationExecutor;
+    }
+
+    /**
+     * Sets how rules of proctors constructed by this loader are evaluated,
+     * from the next test matrix loaded with a new audit version.
+     *
+     * @param ruleEvaluationMode mode, {@link RuleEvaluationMode#getInitial()} by default
+     */
+    public void setRuleEvaluationMode(@Nonnull final RuleEvaluationMode ruleEvaluationMode) {
+        this.ruleEvaluationMode = ruleEvaluationMode;
+    }
+
     void reportFailed(final Throwable t) {
         for (final ProctorLoadReporter reporter : reporters) {
             reporter.reportFailed(t);
@@ -0,0 +1,63 @@
+package com.indeed.proctor.common;
+
+import com.indeed.proctor.common.model.Audit;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.el.FunctionMapper;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Support class for loading a test matrix artifact from a file in {@link BinaryTestMatrixFormat}.
+ *
+ * Only tests required by the specification or matched by its dynamic filters are decoded,
+ * and no test is decoded if the audit is unchanged since the last load.
+ */
+public class BinaryFileProctorLoader extends AbstractProctorLoader {
+    @Nonnull
+    private final File inputFile;
+
+    public BinaryFileProctorLoader(@Nonnull final ProctorSpecification specification, @Nonnull final String inputFile, @Nonnull final FunctionMapper functionMapper) {
+        this(specification, new File(inputFile), functionMapper);
+    }
+
+    public BinaryFileProctorLoader(@Nonnull final ProctorSpecification specification, @Nonnull final File inputFile, @Nonnull final FunctionMapper functionMapper) {
+        super(BinaryFileProctorLoader.class, specification, functionMapper);
+        this.inputFile = inputFile;
+    }
+
+    @Nonnull
+    @Override
+    protected String getSource() {
+        return inputFile.getAbsolutePath();
+    }
+
+    @CheckForNull
+    @Override
+    protected TestMatrixArtifact loadTestMatrix() throws IOException, MissingTestMatrixException {
+        if (! inputFile.exists()) {
+            throw new MissingTestMatrixException("File " + inputFile + " does not exist");
+        }
+        if (! inputFile.canRead()) {
+            throw new MissingTestMatrixException("Cannot read input file " + inputFile);
+        }
+
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            final BinaryTestMatrixFormat.Index index = BinaryTestMatrixFormat.read(
+                    channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+            final Audit audit = index.getAudit();
+            if ((audit != null) && isAuditLoaded(audit)) {
+                return createLastAuditTestMatrix();
+            }
+
+            final TestMatrixArtifact testMatrix = new TestMatrixArtifact();
+            testMatrix.setAudit(audit);
+            testMatrix.setTests(readReferencedTests(index));
+            return testMatrix;
+        }
+    }
+}
@@ -0,0 +1,510 @@
+package com.indeed.proctor.common;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.Audit;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.Payload;
+import com.indeed.proctor.common.model.Range;
+import com.indeed.proctor.common.model.TestBucket;
+import com.indeed.proctor.common.model.TestDependency;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+import com.indeed.proctor.common.model.TestType;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Binary format of {@link TestMatrixArtifact}, an alternative to json which can be read without parsing tests
+ * that are not used by a consumer.
+ *
+ * All numbers are big-endian. The format is:
+ * <pre>
+ * int magic, int format version
+ * strings: int count, int[count + 1] offsets into the UTF-8 bytes, the bytes
+ * audit: boolean present, string version, long updated, string updatedBy
+ * index: int count, (string test name, int offset, int length) sorted by test name, offset -1 for a null definition
+ * tests: int length, test definitions at the offsets of the index
+ * </pre>
+ * Strings are written once and referred to by their index in the string table, -1 for null.
+ * Constants and map payloads, which can contain any json value, are written as length-prefixed json.
+ */
+public final class BinaryTestMatrixFormat {
+    private static final int MAGIC = 0x50524354; // "PRCT"
+    private static final int FORMAT_VERSION = 1;
+    private static final int NULL_REF = -1;
+
+    private static final int PAYLOAD_DOUBLE_VALUE = 1;
+    private static final int PAYLOAD_DOUBLE_ARRAY = 1 << 1;
+    private static final int PAYLOAD_LONG_VALUE = 1 << 2;
+    private static final int PAYLOAD_LONG_ARRAY = 1 << 3;
+    private static final int PAYLOAD_STRING_VALUE = 1 << 4;
+    private static final int PAYLOAD_STRING_ARRAY = 1 << 5;
+    private static final int PAYLOAD_MAP = 1 << 6;
+    private static final int NO_PAYLOAD = 1 << 7;
+
+    private static final ObjectMapper OBJECT_MAPPER = Serializers.lenient();
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<Map<String, Object>>() {};
+
+    private BinaryTestMatrixFormat() {
+    }
+
+    /**
+     * Writes the test matrix in the binary format. The output stream is not closed.
+     */
+    public static void write(@Nonnull final TestMatrixArtifact testMatrix, @Nonnull final OutputStream outputStream) throws IOException {
+        final StringTable strings = new StringTable();
+        final Map<String, ConsumableTestDefinition> tests = testMatrix.getTests();
+        final List<String> testNames = new ArrayList<>(tests.keySet());
+        Collections.sort(testNames);
+
+        final ByteArrayOutputStream testBytes = new ByteArrayOutputStream();
+        final DataOutputStream testOutput = new DataOutputStream(testBytes);
+        final int[] offsets = new int[testNames.size()];
+        final int[] lengths = new int[testNames.size()];
+        for (int i = 0; i < testNames.size(); i++) {
+            final ConsumableTestDefinition definition = tests.get(testNames.get(i));
+            if (definition == null) {
+                offsets[i] = -1;
+            } else {
+                offsets[i] = testOutput.size();
+                writeTestDefinition(testOutput, strings, definition);
+                lengths[i] = testOutput.size() - offsets[i];
+            }
+        }
+
+        final Audit audit = testMatrix.getAudit();
+        final int auditVersionRef = strings.ref((audit == null) ? null : audit.getVersion());
+        final int auditUpdatedByRef = strings.ref((audit == null) ? null : audit.getUpdatedBy());
+        final int[] testNameRefs = new int[testNames.size()];
+        for (int i = 0; i < testNames.size(); i++) {
+            testNameRefs[i] = strings.ref(testNames.get(i));
+        }
+
+        final DataOutputStream output = new DataOutputStream(outputStream);
+        output.writeInt(MAGIC);
+        output.writeInt(FORMAT_VERSION);
+        strings.writeTo(output);
+        output.writeBoolean(audit != null);
+        output.writeInt(auditVersionRef);
+        output.writeLong((audit == null) ? 0 : audit.getUpdated());
+        output.writeInt(auditUpdatedByRef);
+        output.writeInt(testNames.size());
+        for (int i = 0; i < testNames.size(); i++) {
+            output.writeInt(testNameRefs[i]);
+            output.writeInt(offsets[i]);
+            output.writeInt(lengths[i]);
+        }
+        output.writeInt(testOutput.size());
+        testBytes.writeTo(output);
+        output.flush();
+    }
+
+    /**
+     * Reads the header of a test matrix in the binary format, not decoding any test until requested.
+     *
+     * @param buffer the whole binary test matrix, which must not be modified while the returned index is used
+     */
+    @Nonnull
+    public static Index read(@Nonnull final ByteBuffer buffer) throws IOException {
+        try {
+            return new Index(buffer.duplicate());
+        } catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+            throw new IOException("Truncated binary test matrix", e);
+        }
+    }
+
+    private static void writeTestDefinition(
+            @Nonnull final DataOutputStream output,
+            @Nonnull final StringTable strings,
+            @Nonnull final ConsumableTestDefinition definition
+    ) throws IOException {
+        output.writeInt(strings.ref(definition.getVersion()));
+        output.writeInt(strings.ref(definition.getSalt()));
+        output.writeInt(strings.ref(definition.getRule()));
+        output.writeInt(strings.ref((definition.getTestType() == null) ? null : definition.getTestType().name()));
+        output.writeInt(strings.ref(definition.getDescription()));
+        output.writeBoolean(definition.getSilent());
+
+        final List<String> metaTags = definition.getMetaTags();
+        output.writeInt(metaTags.size());
+        for (final String metaTag : metaTags) {
+            output.writeInt(strings.ref(metaTag));
+        }
+
+        final TestDependency dependsOn = definition.getDependsOn();
+        output.writeBoolean(dependsOn != null);
+        if (dependsOn != null) {
+            output.writeInt(strings.ref(dependsOn.getTestName()));
+            output.writeInt(dependsOn.getBucketValue());
+        }
+
+        writeJson(output, definition.getConstants());
+
+        output.writeInt(definition.getBuckets().size());
+        for (final TestBucket bucket : definition.getBuckets()) {
+            output.writeInt(strings.ref(bucket.getName()));
+            output.writeInt(bucket.getValue());
+            output.writeInt(strings.ref(bucket.getDescription()));
+            writePayload(output, strings, bucket.getPayload());
+        }
+
+        output.writeInt(definition.getAllocations().size());
+        for (final Allocation allocation : definition.getAllocations()) {
+            output.writeInt(strings.ref(allocation.getRule()));
+            output.writeInt(strings.ref(allocation.getId()));
+            output.writeInt(allocation.getRanges().size());
+            for (final Range range : allocation.getRanges()) {
+                output.writeInt(range.getBucketValue());
+                output.writeDouble(range.getLength());
+            }
+        }
+    }
+
+    private static void writePayload(
+            @Nonnull final DataOutputStream output,
+            @Nonnull final StringTable strings,
+            @Nullable final Payload payload
+    ) throws IOException {
+        if (payload == null) {
+            output.writeByte(NO_PAYLOAD);
+            return;
+        }
+        final int fields = (payload.getDoubleValue() != null ? PAYLOAD_DOUBLE_VALUE : 0)
+                | (payload.getDoubleArray() != null ? PAYLOAD_DOUBLE_ARRAY : 0)
+                | (payload.getLongValue() != null ? PAYLOAD_LONG_VALUE : 0)
+                | (payload.getLongArray() != null ? PAYLOAD_LONG_ARRAY : 0)
+                | (payload.getStringValue() != null ? PAYLOAD_STRING_VALUE : 0)
+                | (payload.getStringArray() != null ? PAYLOAD_STRING_ARRAY : 0)
+                | (payload.getMap() != null ? PAYLOAD_MAP : 0);
+        output.writeByte(fields);
+        if (payload.getDoubleValue() != null) {
+            output.writeDouble(payload.getDoubleValue());
+        }
+        if (payload.getDoubleArray() != null) {
+            output.writeInt(payload.getDoubleArray().length);
+            for (final Double value : payload.getDoubleArray()) {
+                output.writeBoolean(value != null);
+                output.writeDouble((value == null) ? 0 : value);
+            }
+        }
+        if (payload.getLongValue() != null) {
+            output.writeLong(payload.getLongValue());
+        }
+        if (payload.getLongArray() != null) {
+            output.writeInt(payload.getLongArray().length);
+            for (final Long value : payload.getLongArray()) {
+                output.writeBoolean(value != null);
+                output.writeLong((value == null) ? 0 : value);
+            }
+        }
+        if (payload.getStringValue() != null) {
+            output.writeInt(strings.ref(payload.getStringValue()));
+        }
+        if (payload.getStringArray() != null) {
+            output.writeInt(payload.getStringArray().length);
+            for (final String value : payload.getStringArray()) {
+                output.writeInt(strings.ref(value));
+            }
+        }
+        if (payload.getMap() != null) {
+            writeJson(output, payload.getMap());
+        }
+    }
+
+    private static void writeJson(@Nonnull final DataOutputStream output, @Nonnull final Map<String, Object> map) throws IOException {
+        if (map.isEmpty()) {
+            output.writeInt(0);
+            return;
+        }
+        final byte[] json = OBJECT_MAPPER.writeValueAsBytes(map);
+        output.writeInt(json.length);
+        output.write(json);
+    }
+
+    private static class StringTable {
+        private final Map<String, Integer> refs = new LinkedHashMap<>();
+
+        int ref(@Nullable final String value) {
+            if (value == null) {
+                return NULL_REF;
+            }
+            final Integer ref = refs.get(value);
+            if (ref != null) {
+                return ref;
+            }
+            refs.put(value, refs.size());
+            return refs.size() - 1;
+        }
+
+        void writeTo(@Nonnull final DataOutputStream output) throws IOException {
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final int[] offsets = new int[refs.size() + 1];
+            int i = 0;
+            for (final String value : refs.keySet()) {
+                offsets[i++] = bytes.size();
+                bytes.write(value.getBytes(StandardCharsets.UTF_8));
+            }
+            offsets[i] = bytes.size();
+
+            output.writeInt(refs.size());
+            for (final int offset : offsets) {
+                output.writeInt(offset);
+            }
+            bytes.writeTo(output);
+        }
+    }
+
+    /**
+     * Header of a binary test matrix, to decode tests by name.
+     * Tests can be read from multiple threads, as the buffer is only read at absolute positions
+     * and decoded strings are immutable.
+     */
+    public static final class Index {
+        @Nonnull
+        private final ByteBuffer buffer;
+        private final int stringOffsetsStart;
+        private final int stringBytesStart;
+        @Nonnull
+        private final String[] strings;
+        @CheckForNull
+        private final Audit audit;
+        @Nonnull
+        private final Map<String, Integer> testEntries;
+        @Nonnull
+        private final int[] testOffsets;
+        private final int testsStart;
+
+        private Index(@Nonnull final ByteBuffer buffer) throws IOException {
+            this.buffer = buffer;
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Not a binary test matrix");
+            }
+            final int formatVersion = buffer.getInt();
+            if (formatVersion != FORMAT_VERSION) {
+                throw new IOException("Unsupported binary test matrix version " + formatVersion);
+            }
+
+            final int stringCount = buffer.getInt();
+            strings = new String[stringCount];
+            stringOffsetsStart = buffer.position();
+            stringBytesStart = stringOffsetsStart + (stringCount + 1) * Integer.BYTES;
+            buffer.position(stringBytesStart + buffer.getInt(stringOffsetsStart + stringCount * Integer.BYTES));
+
+            final boolean hasAudit = buffer.get() != 0;
+            final String auditVersion = readString(buffer);
+            final long auditUpdated = buffer.getLong();
+            final String auditUpdatedBy = readString(buffer);
+            if (hasAudit) {
+                audit = new Audit();
+                audit.setVersion(auditVersion);
+                audit.setUpdated(auditUpdated);
+                audit.setUpdatedBy(auditUpdatedBy);
+            } else {
+                audit = null;
+            }
+
+            final int testCount = buffer.getInt();
+            testEntries = new LinkedHashMap<>(testCount * 2);
+            testOffsets = new int[testCount];
+            for (int i = 0; i < testCount; i++) {
+                testEntries.put(readString(buffer), i);
+                testOffsets[i] = buffer.getInt();
+                buffer.getInt(); // length, to skip a test
+            }
+            final int testsLength = buffer.getInt();
+            testsStart = buffer.position();
+            if (buffer.limit() < testsStart + testsLength) {
+                throw new IOException("Truncated binary test matrix");
+            }
+        }
+
+        @CheckForNull
+        public Audit getAudit() {
+            return audit;
+        }
+
+        /**
+         * @return names of all tests in the test matrix, in sorted order
+         */
+        @Nonnull
+        public List<String> getTestNames() {
+            return ImmutableList.copyOf(testEntries.keySet());
+        }
+
+        /**
+         * @return true if the test matrix has the test, even if its definition is null
+         */
+        public boolean containsTest(@Nonnull final String testName) {
+            return testEntries.containsKey(testName);
+        }
+
+        /**
+         * Decodes a test definition, without reading other tests.
+         *
+         * @return the test definition, or null if the test is missing or has a null definition
+         */
+        @CheckForNull
+        public ConsumableTestDefinition readTest(@Nonnull final String testName) throws IOException {
+            final Integer entry = testEntries.get(testName);
+            if ((entry == null) || (testOffsets[entry] < 0)) {
+                return null;
+            }
+            final ByteBuffer testBuffer = buffer.duplicate();
+            testBuffer.position(testsStart + testOffsets[entry]);
+            try {
+                return readTestDefinition(testBuffer);
+            } catch (final BufferUnderflowException | IndexOutOfBoundsException e) {
+                throw new IOException("Malformed binary test definition of " + testName, e);
+            }
+        }
+
+        @Nonnull
+        private ConsumableTestDefinition readTestDefinition(@Nonnull final ByteBuffer input) throws IOException {
+            final ConsumableTestDefinition definition = new ConsumableTestDefinition();
+            definition.setVersion(readString(input));
+            definition.setSalt(readString(input));
+            definition.setRule(readString(input));
+            final String testType = readString(input);
+            if (testType != null) {
+                definition.setTestType(TestType.getTestType(testType));
+            }
+            definition.setDescription(readString(input));
+            definition.setSilent(input.get() != 0);
+
+            final int metaTagCount = input.getInt();
+            final List<String> metaTags = new ArrayList<>(metaTagCount);
+            for (int i = 0; i < metaTagCount; i++) {
+                metaTags.add(readString(input));
+            }
+            definition.setMetaTags(metaTags);
+
+            if (input.get() != 0) {
+                definition.setDependsOn(new TestDependency(readString(input), input.getInt()));
+            }
+
+            definition.setConstants(readJson(input));
+
+            final int bucketCount = input.getInt();
+            final List<TestBucket> buckets = new ArrayList<>(bucketCount);
+            for (int i = 0; i < bucketCount; i++) {
+                // fields are read in the order they were written
+                buckets.add(TestBucket.builder()
+                        .name(readString(input))
+                        .value(input.getInt())
+                        .description(readString(input))
+                        .payload(readPayload(input))
+                        .build());
+            }
+            definition.setBuckets(buckets);
+
+            final int allocationCount = input.getInt();
+            final List<Allocation> allocations = new ArrayList<>(allocationCount);
+            for (int i = 0; i < allocationCount; i++) {
+                final String rule = readString(input);
+                final String id = readString(input);
+                final int rangeCount = input.getInt();
+                final List<Range> ranges = new ArrayList<>(rangeCount);
+                for (int j = 0; j < rangeCount; j++) {
+                    ranges.add(new Range(input.getInt(), input.getDouble()));
+                }
+                allocations.add(new Allocation(rule, ranges, id));
+            }
+            definition.setAllocations(allocations);
+            return definition;
+        }
+
+        @CheckForNull
+        private Payload readPayload(@Nonnull final ByteBuffer input) throws IOException {
+            final int fields = input.get() & 0xFF;
+            if (fields == NO_PAYLOAD) {
+                return null;
+            }
+            final Payload payload = new Payload();
+            if ((fields & PAYLOAD_DOUBLE_VALUE) != 0) {
+                payload.setDoubleValue(input.getDouble());
+            }
+            if ((fields & PAYLOAD_DOUBLE_ARRAY) != 0) {
+                final Double[] values = new Double[input.getInt()];
+                for (int i = 0; i < values.length; i++) {
+                    final boolean present = input.get() != 0;
+                    final double value = input.getDouble();
+                    values[i] = present ? value : null;
+                }
+                payload.setDoubleArray(values);
+            }
+            if ((fields & PAYLOAD_LONG_VALUE) != 0) {
+                payload.setLongValue(input.getLong());
+            }
+            if ((fields & PAYLOAD_LONG_ARRAY) != 0) {
+                final Long[] values = new Long[input.getInt()];
+                for (int i = 0; i < values.length; i++) {
+                    final boolean present = input.get() != 0;
+                    final long value = input.getLong();
+                    values[i] = present ? value : null;
+                }
+                payload.setLongArray(values);
+            }
+            if ((fields & PAYLOAD_STRING_VALUE) != 0) {
+                payload.setStringValue(readString(input));
+            }
+            if ((fields & PAYLOAD_STRING_ARRAY) != 0) {
+                final String[] values = new String[input.getInt()];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = readString(input);
+                }
+                payload.setStringArray(values);
+            }
+            if ((fields & PAYLOAD_MAP) != 0) {
+                payload.setMap(readJson(input));
+            }
+            return payload;
+        }
+
+        @Nonnull
+        private static Map<String, Object> readJson(@Nonnull final ByteBuffer input) throws IOException {
+            final int length = input.getInt();
+            if (length == 0) {
+                return Collections.emptyMap();
+            }
+            final byte[] json = new byte[length];
+            input.get(json);
+            return OBJECT_MAPPER.readValue(json, MAP_TYPE);
+        }
+
+        @CheckForNull
+        private String readString(@Nonnull final ByteBuffer input) {
+            final int ref = input.getInt();
+            if (ref == NULL_REF) {
+                return null;
+            }
+            String value = strings[ref];
+            if (value == null) {
+                final int start = buffer.getInt(stringOffsetsStart + ref * Integer.BYTES);
+                final int end = buffer.getInt(stringOffsetsStart + (ref + 1) * Integer.BYTES);
+                final byte[] bytes = new byte[end - start];
+                final ByteBuffer stringBuffer = buffer.duplicate();
+                stringBuffer.position(stringBytesStart + start);
+                stringBuffer.get(bytes);
+                value = new String(bytes, StandardCharsets.UTF_8);
+                strings[ref] = value;
+            }
+            return value;
+        }
+    }
+}
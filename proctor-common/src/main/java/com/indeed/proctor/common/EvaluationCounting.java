@@ -0,0 +1,41 @@
+package com.indeed.proctor.common;
+
+import javax.annotation.Nonnull;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Tells whether calls of the current thread are counted by {@link EvaluationErrorReporter} and {@link EvaluationStats},
+ * which they are not while a loader warms up a proctor with sampled arguments,
+ * so that warm-up does not show up as errors of requests.
+ */
+final class EvaluationCounting {
+    /**
+     * threads warming up a proctor, usually none
+     */
+    private static final Set<Thread> UNCOUNTED_THREADS = ConcurrentHashMap.newKeySet();
+
+    private EvaluationCounting() {
+    }
+
+    static boolean isCounted() {
+        return UNCOUNTED_THREADS.isEmpty() || !UNCOUNTED_THREADS.contains(Thread.currentThread());
+    }
+
+    /**
+     * Runs the calls without counting them
+     */
+    static void runUncounted(@Nonnull final Runnable calls) {
+        final Thread thread = Thread.currentThread();
+        // nested calls do not count again on return
+        if (!UNCOUNTED_THREADS.add(thread)) {
+            calls.run();
+            return;
+        }
+        try {
+            calls.run();
+        } finally {
+            UNCOUNTED_THREADS.remove(thread);
+        }
+    }
+}
@@ -0,0 +1,246 @@
+package com.indeed.proctor.common;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.indeed.proctor.common.model.TestType;
+import com.indeed.util.varexport.Export;
+import com.indeed.util.varexport.VarExporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Aggregates errors occurring while determining test groups, which tend to occur for every request once they occur,
+ * so that they are counted instead of logged each time.
+ *
+ * Per window (one minute by default), the first error of each test and exception type is logged with its stack trace,
+ * and a summary of the errors counted during a window is logged once it ended, by the next reload of any
+ * {@link AbstractProctorLoader} or by the next error reported, whichever comes first.
+ * Total counts are exported to VarExporter.
+ * Errors of calls warming up a proctor are neither counted nor logged.
+ * Counters of a test without errors for {@link #IDLE_SUMMARIES_TO_DROP} summaries are dropped,
+ * e.g. of a test removed from the test matrix, and only kept in the total count.
+ */
+public final class EvaluationErrorReporter {
+    private static final Logger LOGGER = LogManager.getLogger(EvaluationErrorReporter.class);
+    private static final long DEFAULT_WINDOW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    @VisibleForTesting
+    static final int IDLE_SUMMARIES_TO_DROP = 60;
+
+    private static final EvaluationErrorReporter INSTANCE = new EvaluationErrorReporter(DEFAULT_WINDOW_MILLIS, System::currentTimeMillis);
+
+    static {
+        VarExporter.forNamespace(EvaluationErrorReporter.class.getSimpleName()).includeInGlobal().export(INSTANCE, "");
+    }
+
+    private final long windowMillis;
+    @Nonnull
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, ConcurrentMap<Class<?>, Counter>> ruleEvaluationErrors = new ConcurrentHashMap<>();
+    private final ConcurrentMap<TestType, Counter> invalidIdentifiers = new ConcurrentHashMap<>();
+    /**
+     * total count of dropped rule evaluation error counters, guarded by the reporter
+     */
+    private volatile long droppedRuleEvaluationErrorCount;
+    private final AtomicLong summaryWindow;
+
+    @VisibleForTesting
+    EvaluationErrorReporter(final long windowMillis, @Nonnull final LongSupplier clock) {
+        this.windowMillis = windowMillis;
+        this.clock = clock;
+        this.summaryWindow = new AtomicLong(currentWindow());
+    }
+
+    /**
+     * @return the reporter shared by all instances of {@link Proctor}
+     */
+    @Nonnull
+    public static EvaluationErrorReporter getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Reports a failure to evaluate a rule of a test, which made the test fall back.
+     */
+    public void reportRuleEvaluationError(
+            @Nonnull final String testName,
+            @Nullable final String rule,
+            @Nonnull final RuntimeException error
+    ) {
+        if (!EvaluationCounting.isCounted()) {
+            return;
+        }
+        ConcurrentMap<Class<?>, Counter> countersByType = ruleEvaluationErrors.get(testName);
+        if (countersByType == null) {
+            countersByType = ruleEvaluationErrors.computeIfAbsent(testName, k -> new ConcurrentHashMap<>());
+        }
+        final Counter counter = getCounter(countersByType, error.getClass());
+        if (count(counter)) {
+            LOGGER.error("Failed to evaluate test rules; ", new InvalidRuleException(error, String.format(
+                    "Error evaluating rule '%s' for test '%s': '%s'. Failing evaluation and continuing.",
+                    rule, testName, error.getMessage())));
+        }
+    }
+
+    /**
+     * Reports an identifier rejected by an {@link IdentifierValidator}, which made tests of the test type fall back.
+     */
+    public void reportInvalidIdentifier(@Nonnull final TestType testType, @Nonnull final String identifier) {
+        if (!EvaluationCounting.isCounted()) {
+            return;
+        }
+        final Counter counter = getCounter(invalidIdentifiers, testType);
+        if (count(counter)) {
+            LOGGER.warn("An invalid identifier '" + identifier + "' for test type '" + testType + "'"
+                    + " was detected. Using fallback buckets for the test type.");
+        }
+    }
+
+    @Nonnull
+    private static <K> Counter getCounter(@Nonnull final ConcurrentMap<K, Counter> counters, @Nonnull final K key) {
+        // avoids locking of computeIfAbsent for existing keys
+        final Counter counter = counters.get(key);
+        return (counter != null) ? counter : counters.computeIfAbsent(key, k -> new Counter());
+    }
+
+    /**
+     * Logs the summary of the errors counted in the last window if it ended,
+     * so that it is logged even if no more errors are reported. Called periodically by loaders.
+     */
+    public void logSummaryIfWindowEnded() {
+        rollWindow();
+    }
+
+    /**
+     * @return the summary logged if the last window ended, else null
+     */
+    @VisibleForTesting
+    @Nullable
+    String rollWindow() {
+        final long window = currentWindow();
+        final long lastSummaryWindow = summaryWindow.get();
+        if ((window > lastSummaryWindow) && summaryWindow.compareAndSet(lastSummaryWindow, window)) {
+            return logSummary();
+        }
+        return null;
+    }
+
+    /**
+     * @return true if the error is the first of its counter in the current window and should be logged
+     */
+    private boolean count(@Nonnull final Counter counter) {
+        // the error belongs to the current window, not to the summary of the previous one
+        rollWindow();
+        counter.count.increment();
+        final long window = currentWindow();
+
+        final long lastSampledWindow = counter.sampledWindow.get();
+        return (window != lastSampledWindow) && counter.sampledWindow.compareAndSet(lastSampledWindow, window);
+    }
+
+    private long currentWindow() {
+        return clock.getAsLong() / windowMillis;
+    }
+
+    /**
+     * Logs the errors counted since the last summary
+     *
+     * @return the summary, or null if no errors were counted
+     */
+    @Nullable
+    private synchronized String logSummary() {
+        final StringBuilder summary = new StringBuilder();
+        for (final Map.Entry<String, ConcurrentMap<Class<?>, Counter>> entry : ruleEvaluationErrors.entrySet()) {
+            final ConcurrentMap<Class<?>, Counter> countersByType = entry.getValue();
+            for (final Map.Entry<Class<?>, Counter> typeEntry : countersByType.entrySet()) {
+                final Counter counter = typeEntry.getValue();
+                appendDelta(summary, entry.getKey() + " " + typeEntry.getKey().getSimpleName(), counter);
+                if ((counter.idleSummaries >= IDLE_SUMMARIES_TO_DROP) && countersByType.remove(typeEntry.getKey(), counter)) {
+                    // errors counted concurrently with the removal may be lost
+                    droppedRuleEvaluationErrorCount += counter.count.sum();
+                }
+            }
+            if (countersByType.isEmpty()) {
+                ruleEvaluationErrors.remove(entry.getKey(), countersByType);
+            }
+        }
+        for (final Map.Entry<TestType, Counter> entry : invalidIdentifiers.entrySet()) {
+            appendDelta(summary, "invalid identifier for " + entry.getKey(), entry.getValue());
+        }
+        if (summary.length() > 0) {
+            LOGGER.warn("Errors while determining test groups in the last " + TimeUnit.MILLISECONDS.toSeconds(windowMillis)
+                    + " seconds, only the first of each kind was logged: " + summary);
+            return summary.toString();
+        }
+        return null;
+    }
+
+    private static void appendDelta(@Nonnull final StringBuilder summary, @Nonnull final String description, @Nonnull final Counter counter) {
+        final long total = counter.count.sum();
+        final long delta = total - counter.summarizedCount;
+        counter.summarizedCount = total;
+        counter.idleSummaries = (delta > 0) ? 0 : (counter.idleSummaries + 1);
+        if (delta > 0) {
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(description).append(": ").append(delta);
+        }
+    }
+
+    @Export(name = "rule-evaluation-errors", doc = "Number of failed rule evaluations per test and exception type, of tests with errors in the last hour or so")
+    public Map<String, Long> getRuleEvaluationErrorCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        for (final Map.Entry<String, ConcurrentMap<Class<?>, Counter>> entry : ruleEvaluationErrors.entrySet()) {
+            for (final Map.Entry<Class<?>, Counter> typeEntry : entry.getValue().entrySet()) {
+                counts.put(entry.getKey() + ":" + typeEntry.getKey().getSimpleName(), typeEntry.getValue().count.sum());
+            }
+        }
+        return counts;
+    }
+
+    @Export(name = "rule-evaluation-error-count", doc = "Number of failed rule evaluations of all tests")
+    public long getRuleEvaluationErrorCount() {
+        long count = droppedRuleEvaluationErrorCount;
+        for (final ConcurrentMap<Class<?>, Counter> countersByType : ruleEvaluationErrors.values()) {
+            for (final Counter counter : countersByType.values()) {
+                count += counter.count.sum();
+            }
+        }
+        return count;
+    }
+
+    @Export(name = "invalid-identifiers", doc = "Number of invalid identifiers per test type")
+    public Map<String, Long> getInvalidIdentifierCounts() {
+        final Map<String, Long> counts = new TreeMap<>();
+        for (final Map.Entry<TestType, Counter> entry : invalidIdentifiers.entrySet()) {
+            counts.put(entry.getKey().name(), entry.getValue().count.sum());
+        }
+        return counts;
+    }
+
+    private static final class Counter {
+        private final LongAdder count = new LongAdder();
+        /**
+         * window in which an error of this counter was last logged
+         */
+        private final AtomicLong sampledWindow = new AtomicLong(Long.MIN_VALUE);
+        /**
+         * total count at the last summary, guarded by the reporter
+         */
+        private long summarizedCount;
+        /**
+         * number of consecutive summaries without errors of this counter, guarded by the reporter
+         */
+        private int idleSummaries;
+    }
+}
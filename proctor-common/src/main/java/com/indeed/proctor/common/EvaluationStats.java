@@ -0,0 +1,68 @@
+package com.indeed.proctor.common;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.indeed.util.varexport.Export;
+import com.indeed.util.varexport.VarExporter;
+
+import javax.annotation.Nonnull;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how test groups are determined by all instances of {@link Proctor} in the JVM,
+ * so that counts are kept across reloads of test matrices and exported once to VarExporter.
+ * Calls warming up a proctor are not counted.
+ */
+public final class EvaluationStats {
+    private static final EvaluationStats INSTANCE = new EvaluationStats();
+
+    static {
+        VarExporter.forNamespace(EvaluationStats.class.getSimpleName()).includeInGlobal().export(INSTANCE, "");
+    }
+
+    private final LongAdder filteredEvaluationOrderCacheHits = new LongAdder();
+    private final LongAdder filteredEvaluationOrderCacheMisses = new LongAdder();
+    private final LongAdder absentVariableSkips = new LongAdder();
+
+    @VisibleForTesting
+    EvaluationStats() {
+    }
+
+    /**
+     * @return the stats shared by all instances of {@link Proctor}
+     */
+    @Nonnull
+    public static EvaluationStats getInstance() {
+        return INSTANCE;
+    }
+
+    void recordFilteredEvaluationOrderCacheHit() {
+        if (EvaluationCounting.isCounted()) {
+            filteredEvaluationOrderCacheHits.increment();
+        }
+    }
+
+    void recordFilteredEvaluationOrderCacheMiss() {
+        if (EvaluationCounting.isCounted()) {
+            filteredEvaluationOrderCacheMisses.increment();
+        }
+    }
+
+    void recordAbsentVariableSkip() {
+        absentVariableSkips.increment();
+    }
+
+    @Export(name = "filtered-evaluation-order-cache-hits", doc = "Number of calls with a test name filter reusing a cached evaluation order")
+    public long getFilteredEvaluationOrderCacheHits() {
+        return filteredEvaluationOrderCacheHits.sum();
+    }
+
+    @Export(name = "filtered-evaluation-order-cache-misses", doc = "Number of calls with a test name filter computing an evaluation order")
+    public long getFilteredEvaluationOrderCacheMisses() {
+        return filteredEvaluationOrderCacheMisses.sum();
+    }
+
+    @Export(name = "absent-variable-skips", doc = "Number of times rules of a test were not evaluated because a variable was absent from the context")
+    public long getAbsentVariableSkipCount() {
+        return absentVariableSkips.sum();
+    }
+}
@@ -1,21 +1,43 @@
 package com.indeed.proctor.common;
 
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
 import com.indeed.proctor.common.model.TestMatrixArtifact;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.el.FunctionMapper;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileReader;
 import java.io.IOException;
+import java.io.InputStreamReader;
 import java.io.Reader;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Objects;
 
 /**
  * Support class for loading a test matrix artifact from a JSON file
+ *
+ * The file is not read again while its modification time, size and file key (e.g. inode) are unchanged
+ * since the last load, and is read through a memory-mapped buffer when changed.
+ * As the file is mapped while reading it, it should be replaced atomically (e.g. by renaming) rather than rewritten in place.
  * @author ketan
  */
 public class FileProctorLoader extends AbstractJsonProctorLoader {
+    private static final Logger LOGGER = LogManager.getLogger(FileProctorLoader.class);
+
     @Nonnull
     private final File inputFile;
 
@@ -34,6 +56,14 @@ public class FileProctorLoader extends AbstractJsonProctorLoader {
         return inputFile.getAbsolutePath();
     }
 
+    /**
+     * Synchronized as it may be run by the timer and by the watcher of {@link #startWatching()}
+     */
+    @Override
+    public synchronized boolean load() {
+        return super.load();
+    }
+
     @CheckForNull
     @Override
     protected TestMatrixArtifact loadTestMatrix() throws IOException, MissingTestMatrixException {
@@ -43,7 +73,93 @@ public class FileProctorLoader extends AbstractJsonProctorLoader {
         if (! inputFile.canRead()) {
             throw new MissingTestMatrixException("Cannot read input file " + inputFile);
         }
-        final Reader reader = new FileReader(inputFile);
-        return loadJsonTestMatrix(reader);
+
+        final FileState fileState = FileState.of(Files.readAttributes(inputFile.toPath(), BasicFileAttributes.class));
+        final Object loadedFileState = getLoadedSourceValidators();
+        if ((loadedFileState instanceof FileState) && fileState.isSameFile((FileState) loadedFileState)) {
+            setLoadingSourceValidators(loadedFileState);
+            return createLastAuditTestMatrix();
+        }
+
+        setLoadingSourceValidators(fileState);
+        try (FileChannel channel = FileChannel.open(inputFile.toPath(), StandardOpenOption.READ)) {
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            final Reader reader = new InputStreamReader(new ByteBufferBackedInputStream(buffer));
+            return loadJsonTestMatrix(reader);
+        }
+    }
+
+    /**
+     * Starts a daemon thread to reload the test matrix as soon as the file is created or modified,
+     * in addition to the periodic reloads by a timer.
+     *
+     * @return to stop watching the file
+     */
+    @Nonnull
+    public Closeable startWatching() throws IOException {
+        final Path file = inputFile.getAbsoluteFile().toPath();
+        final Path directory = Objects.requireNonNull(file.getParent(), "Missing directory of " + file);
+        final WatchService watchService = directory.getFileSystem().newWatchService();
+        directory.register(
+                watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY
+        );
+        final Thread thread = new Thread(() -> watch(watchService, file.getFileName()), "FileProctorLoader-" + file.getFileName());
+        thread.setDaemon(true);
+        thread.start();
+        return watchService;
+    }
+
+    private void watch(@Nonnull final WatchService watchService, @Nonnull final Path fileName) {
+        try {
+            while (true) {
+                final WatchKey key = watchService.take();
+                boolean changed = false;
+                for (final WatchEvent<?> event : key.pollEvents()) {
+                    // OVERFLOW has no context and may have lost events of the file
+                    changed |= (event.context() == null) || fileName.equals(event.context());
+                }
+                if (changed) {
+                    try {
+                        run();
+                    } catch (final RuntimeException e) {
+                        LOGGER.error("Failed to reload " + getSource() + " on its change", e);
+                    }
+                }
+                if (!key.reset()) {
+                    LOGGER.warn("Stopped watching " + getSource() + " as its directory is no longer accessible");
+                    return;
+                }
+            }
+        } catch (final ClosedWatchServiceException e) {
+            // stopped watching
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class FileState {
+        private final long lastModifiedMillis;
+        private final long size;
+        @Nullable
+        private final Object fileKey;
+
+        private FileState(final long lastModifiedMillis, final long size, @Nullable final Object fileKey) {
+            this.lastModifiedMillis = lastModifiedMillis;
+            this.size = size;
+            this.fileKey = fileKey;
+        }
+
+        @Nonnull
+        static FileState of(@Nonnull final BasicFileAttributes attributes) {
+            return new FileState(attributes.lastModifiedTime().toMillis(), attributes.size(), attributes.fileKey());
+        }
+
+        boolean isSameFile(@Nonnull final FileState other) {
+            return (lastModifiedMillis == other.lastModifiedMillis)
+                    && (size == other.size)
+                    && Objects.equals(fileKey, other.fileKey);
+        }
     }
 }
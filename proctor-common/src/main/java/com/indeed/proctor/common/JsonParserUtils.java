@@ -6,6 +6,7 @@ import com.google.common.base.Preconditions;
 
 import javax.annotation.Nonnull;
 import java.io.IOException;
+import java.util.function.BooleanSupplier;
 
 class JsonParserUtils {
     private JsonParserUtils() {
@@ -22,11 +23,23 @@ class JsonParserUtils {
     static void consumeJson(
             @Nonnull final JsonParser jsonParser,
             final PartialJsonConsumer consumer
+    ) throws IOException {
+        consumeJsonUntil(jsonParser, consumer, () -> false);
+    }
+
+    /**
+     * Same as {@link #consumeJson(JsonParser, PartialJsonConsumer)}, but stops iterating once stopCondition returns true
+     * after consuming an entry, leaving the remaining entries unparsed.
+     */
+    static void consumeJsonUntil(
+            @Nonnull final JsonParser jsonParser,
+            final PartialJsonConsumer consumer,
+            final BooleanSupplier stopCondition
     ) throws IOException {
         // The current position of jsonParser must be "{".
         Preconditions.checkState(jsonParser.currentToken() == JsonToken.START_OBJECT);
 
-        while (jsonParser.nextToken() != JsonToken.END_OBJECT) {
+        while (!stopCondition.getAsBoolean() && (jsonParser.nextToken() != JsonToken.END_OBJECT)) {
             // The token right after "{" must be field name.
             Preconditions.checkState(jsonParser.currentToken() == JsonToken.FIELD_NAME);
 
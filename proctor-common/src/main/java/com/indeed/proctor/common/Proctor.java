@@ -7,34 +7,44 @@ import com.google.common.base.Function;
 import com.google.common.base.Preconditions;
 import com.google.common.base.Predicate;
 import com.google.common.base.Predicates;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 import com.indeed.proctor.common.model.Allocation;
 import com.indeed.proctor.common.model.Audit;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
 import com.indeed.proctor.common.model.TestBucket;
+import com.indeed.proctor.common.model.TestDependency;
 import com.indeed.proctor.common.model.TestMatrixArtifact;
 import com.indeed.proctor.common.model.TestType;
+import com.indeed.util.varexport.Export;
 import com.indeed.util.varexport.VarExporter;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.el.ELContext;
 import javax.el.ExpressionFactory;
 import javax.el.FunctionMapper;
 import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.TreeMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -77,21 +87,79 @@ public class Proctor {
             @Nonnull final ProctorLoadResult loadResult,
             @Nonnull final FunctionMapper functionMapper,
             @Nonnull final IdentifierValidator identifierValidator
+    ) {
+        return construct(matrix, loadResult, functionMapper, identifierValidator, RuleEvaluationMode.getInitial());
+    }
+
+    /**
+     * Factory method to do the setup and transformation of inputs
+     *
+     * @param matrix             a {@link TestMatrixArtifact} loaded by ProctorLoader
+     * @param loadResult         a {@link ProctorLoadResult} which contains result of validation of test definition
+     * @param functionMapper     a given el {@link FunctionMapper}
+     * @param ruleEvaluationMode how rules are evaluated, all modes produce the same test groups
+     * @return constructed Proctor object
+     */
+    @Nonnull
+    public static Proctor construct(
+            @Nonnull final TestMatrixArtifact matrix,
+            @Nonnull final ProctorLoadResult loadResult,
+            @Nonnull final FunctionMapper functionMapper,
+            @Nonnull final IdentifierValidator identifierValidator,
+            @Nonnull final RuleEvaluationMode ruleEvaluationMode
+    ) {
+        return construct(matrix, loadResult, functionMapper, identifierValidator, ruleEvaluationMode, null);
+    }
+
+    /**
+     * Factory method to do the setup and transformation of inputs, reusing what was set up for tests
+     * of a previous proctor if their definitions are unchanged, e.g. when reloading a test matrix.
+     *
+     * @param matrix             a {@link TestMatrixArtifact} loaded by ProctorLoader
+     * @param loadResult         a {@link ProctorLoadResult} which contains result of validation of test definition
+     * @param functionMapper     a given el {@link FunctionMapper}
+     * @param ruleEvaluationMode how rules are evaluated, all modes produce the same test groups
+     * @param previous           a proctor constructed before, only reused if constructed with the same functionMapper and ruleEvaluationMode
+     * @return constructed Proctor object
+     */
+    @Nonnull
+    public static Proctor construct(
+            @Nonnull final TestMatrixArtifact matrix,
+            @Nonnull final ProctorLoadResult loadResult,
+            @Nonnull final FunctionMapper functionMapper,
+            @Nonnull final IdentifierValidator identifierValidator,
+            @Nonnull final RuleEvaluationMode ruleEvaluationMode,
+            @Nullable final Proctor previous
     ) {
         final ExpressionFactory expressionFactory = RuleEvaluator.EXPRESSION_FACTORY;
 
         final Map<String, TestChooser<?>> testChoosers = Maps.newLinkedHashMap();
         final Map<String, String> versions = Maps.newLinkedHashMap();
+        final boolean reusePrevious = (previous != null)
+                && (previous.functionMapper == functionMapper)
+                && (previous.ruleEvaluationMode == ruleEvaluationMode);
+        int reusedTestChoosers = 0;
 
         for (final Entry<String, ConsumableTestDefinition> entry : matrix.getTests().entrySet()) {
             final String testName = entry.getKey();
             final ConsumableTestDefinition testDefinition = entry.getValue();
             final TestType testType = testDefinition.getTestType();
+            final TestChooser<?> previousTestChooser = reusePrevious ? previous.testChoosers.get(testName) : null;
+            if ((previousTestChooser != null) && isSameTestDefinition(previousTestChooser.getTestDefinition(), testDefinition)) {
+                // choosers are immutable apart from statistics, and only depend on their own test definition
+                testChoosers.put(testName, previousTestChooser);
+                versions.put(testName, testDefinition.getVersion());
+                reusedTestChoosers++;
+                continue;
+            }
+            final RuleEvaluator ruleEvaluator = new RuleEvaluator(
+                    expressionFactory, functionMapper, testDefinition.getConstants(), ruleEvaluationMode);
+            final TestRangeSelector selector = new TestRangeSelector(ruleEvaluator, testName, testDefinition);
             final TestChooser<?> testChooser;
             if (TestType.RANDOM.equals(testType)) {
-                testChooser = new RandomTestChooser(expressionFactory, functionMapper, testName, testDefinition);
+                testChooser = new RandomTestChooser(selector);
             } else {
-                testChooser = new StandardTestChooser(expressionFactory, functionMapper, testName, testDefinition);
+                testChooser = new StandardTestChooser(selector);
             }
             testChoosers.put(testName, testChooser);
             versions.put(testName, testDefinition.getVersion());
@@ -99,7 +167,49 @@ public class Proctor {
 
         final List<String> testEvaluationOrder = TestDependencies.determineEvaluationOrder(matrix.getTests());
 
-        return new Proctor(matrix, loadResult, testChoosers, testEvaluationOrder, identifierValidator);
+        if (reusePrevious && LOGGER.isDebugEnabled()) {
+            LOGGER.debug("Reused " + reusedTestChoosers + " of " + testChoosers.size() + " tests of the previous proctor");
+        }
+
+        return new Proctor(matrix, loadResult, testChoosers, testEvaluationOrder, identifierValidator, functionMapper, ruleEvaluationMode);
+    }
+
+    /**
+     * Compares all properties, as {@link ConsumableTestDefinition} does not implement equals
+     * and {@link TestBucket#equals(Object)} only compares names.
+     */
+    private static boolean isSameTestDefinition(
+            @Nonnull final ConsumableTestDefinition definition,
+            @Nonnull final ConsumableTestDefinition other
+    ) {
+        if (definition == other) {
+            return true;
+        }
+        // versions differ for most changed tests, so compare them first
+        if (!Objects.equals(definition.getVersion(), other.getVersion())
+                || (definition.getSilent() != other.getSilent())
+                || !Objects.equals(definition.getTestType(), other.getTestType())
+                || !Objects.equals(definition.getSalt(), other.getSalt())
+                || !Objects.equals(definition.getRule(), other.getRule())
+                || !Objects.equals(definition.getConstants(), other.getConstants())
+                || !Objects.equals(definition.getAllocations(), other.getAllocations())
+                || !Objects.equals(definition.getDependsOn(), other.getDependsOn())
+                || !Objects.equals(definition.getDescription(), other.getDescription())
+                || !Objects.equals(definition.getMetaTags(), other.getMetaTags())
+                || (definition.getBuckets().size() != other.getBuckets().size())) {
+            return false;
+        }
+        for (int i = 0; i < definition.getBuckets().size(); i++) {
+            final TestBucket bucket = definition.getBuckets().get(i);
+            final TestBucket otherBucket = other.getBuckets().get(i);
+            if ((bucket.getValue() != otherBucket.getValue())
+                    || !Objects.equals(bucket.getName(), otherBucket.getName())
+                    || !Objects.equals(bucket.getDescription(), otherBucket.getDescription())
+                    || !Objects.equals(bucket.getPayload(), otherBucket.getPayload())) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Nonnull
@@ -123,17 +233,50 @@ public class Proctor {
     }
 
     static final long INT_RANGE = (long) Integer.MAX_VALUE - (long) Integer.MIN_VALUE;
+    private static final int FILTERED_EVALUATION_ORDER_CACHE_SIZE = 256;
     private final TestMatrixArtifact matrix;
     private final ProctorLoadResult loadResult;
     @Nonnull
     private final Map<String, TestChooser<?>> testChoosers;
     @Nonnull
     private final IdentifierValidator identifierValidator;
+    /**
+     * what test choosers were constructed with, null if unknown
+     */
+    @Nullable
+    private final FunctionMapper functionMapper;
+    @Nullable
+    private final RuleEvaluationMode ruleEvaluationMode;
 
     private final Map<String, ConsumableTestDefinition> testDefinitions = Maps.newLinkedHashMap();
 
     private final List<String> testEvaluationOrder;
     private final Map<String, Integer> evaluationOrderMap;
+    @Nonnull
+    private final TestNameIndex testNameIndex;
+    /**
+     * buckets of test definitions by value, indexed by test ordinals
+     */
+    @Nonnull
+    private final TestBucketIndex[] testBucketIndices;
+    /**
+     * logged forms of test groups, indexed by test ordinals
+     */
+    @Nonnull
+    private final TestGroupStrings[] testGroupStrings;
+
+    /**
+     * slots of {@link StandardTestChooser.SharedHashes} for tests sharing hashes of identifiers with other tests
+     */
+    private final Map<String, Integer> sharedHashSlots;
+    private final int sharedHashSlotCount;
+
+    /**
+     * callers usually filter by the same few sets of tests, so the evaluation order for them is kept
+     */
+    private final Cache<Set<String>, List<String>> filteredEvaluationOrderCache = CacheBuilder.newBuilder()
+            .maximumSize(FILTERED_EVALUATION_ORDER_CACHE_SIZE)
+            .build();
 
     @VisibleForTesting
     Proctor(
@@ -142,8 +285,22 @@ public class Proctor {
             @Nonnull final Map<String, TestChooser<?>> testChoosers,
             @Nonnull final List<String> testEvaluationOrder,
             @Nonnull final IdentifierValidator identifierValidator
+    ) {
+        this(matrix, loadResult, testChoosers, testEvaluationOrder, identifierValidator, null, null);
+    }
+
+    private Proctor(
+            @Nonnull final TestMatrixArtifact matrix,
+            @Nonnull final ProctorLoadResult loadResult,
+            @Nonnull final Map<String, TestChooser<?>> testChoosers,
+            @Nonnull final List<String> testEvaluationOrder,
+            @Nonnull final IdentifierValidator identifierValidator,
+            @Nullable final FunctionMapper functionMapper,
+            @Nullable final RuleEvaluationMode ruleEvaluationMode
     ) {
         this.matrix = matrix;
+        this.functionMapper = functionMapper;
+        this.ruleEvaluationMode = ruleEvaluationMode;
         this.loadResult = loadResult;
         this.testChoosers = testChoosers;
         for (final Entry<String, TestChooser<?>> entry : testChoosers.entrySet()) {
@@ -155,10 +312,53 @@ public class Proctor {
                 .boxed()
                 .collect(Collectors.toMap(testEvaluationOrder::get, index -> index));
 
+        this.testNameIndex = TestNameIndex.of(testChoosers.keySet());
+        this.testBucketIndices = new TestBucketIndex[testNameIndex.size()];
+        this.testGroupStrings = new TestGroupStrings[testNameIndex.size()];
+        for (int i = 0; i < testBucketIndices.length; i++) {
+            final String testName = testNameIndex.getTestName(i);
+            final TestChooser<?> testChooser = testChoosers.get(testName);
+            testBucketIndices[i] = testChooser.getTestBucketIndex();
+            final ConsumableTestDefinition testDefinition = testChooser.getTestDefinition();
+            testGroupStrings[i] = (testDefinition == null) ? null : TestGroupStrings.of(testName, testDefinition);
+        }
+        this.sharedHashSlots = assignSharedHashSlots(testChoosers);
+        this.sharedHashSlotCount = (int) sharedHashSlots.values().stream().distinct().count();
+
         VarExporter.forNamespace(Proctor.class.getSimpleName()).includeInGlobal().export(this, "");
         VarExporter.forNamespace(DetailedExport.class.getSimpleName()).export(new DetailedExport(), "");  //  intentionally not in global
     }
 
+    /**
+     * Tests of the same type with the same hash salt (e.g. linked tests with a salt starting with '&')
+     * assign the same hash to an identifier, so it only needs to be computed once per request.
+     */
+    @Nonnull
+    private static Map<String, Integer> assignSharedHashSlots(@Nonnull final Map<String, TestChooser<?>> testChoosers) {
+        final Map<List<Object>, List<String>> testNamesByHashKey = new HashMap<>();
+        for (final Entry<String, TestChooser<?>> entry : testChoosers.entrySet()) {
+            if (entry.getValue() instanceof StandardTestChooser) {
+                final StandardTestChooser testChooser = (StandardTestChooser) entry.getValue();
+                final List<Object> hashKey = Arrays.asList(
+                        testChooser.getTestDefinition().getTestType(),
+                        testChooser.getHashSalt()
+                );
+                testNamesByHashKey.computeIfAbsent(hashKey, k -> new ArrayList<>()).add(entry.getKey());
+            }
+        }
+        final Map<String, Integer> sharedHashSlots = new HashMap<>();
+        int slot = 0;
+        for (final List<String> testNames : testNamesByHashKey.values()) {
+            if (testNames.size() > 1) {
+                for (final String testName : testNames) {
+                    sharedHashSlots.put(testName, slot);
+                }
+                slot++;
+            }
+        }
+        return sharedHashSlots;
+    }
+
     private static class DetailedExport {
         /*
          * TODO: export useful details about the parsed test matrix
@@ -257,100 +457,401 @@ public class Proctor {
             @Nonnull final Collection<String> testNameFilter
     ) {
         final boolean determineAllTests = testNameFilter.isEmpty();
-        final Set<String> testNameFilterSet = testNameFilter.stream()
-                .filter(testChoosers::containsKey)
-                .collect(Collectors.toSet());
+        final Set<String> testNameFilterSet = filterTestNames(testNameFilter);
+        final List<String> filteredEvaluationOrder = getFilteredEvaluationOrder(determineAllTests, testNameFilterSet);
 
-        // ProctorResult requires SortedMap internally, avoid copy overhead
+        // ProctorResult requires SortedMap internally, avoid copy overhead and lookups by comparing test names
         // use mutable map for legacy reasons, inside this codebase should not be modified after this method
-        final SortedMap<String, TestBucket> testGroups = new TreeMap<>();
-        final SortedMap<String, Allocation> testAllocations = new TreeMap<>();
+        final SortedMap<String, TestBucket> testGroups = new TestIndexedSortedMap<>(testNameIndex);
+        final SortedMap<String, Allocation> testAllocations = new TestIndexedSortedMap<>(testNameIndex);
+
+        // shared by all tests to avoid wrapping the input context for each rule
+        final ELContext elContext = RuleEvaluator.createEvaluationContext(inputContext);
+
+        determineTestGroups(
+                identifiers,
+                elContext,
+                forceGroupsOptions,
+                filteredEvaluationOrder,
+                testGroups,
+                testAllocations
+        );
+
+        if (!determineAllTests) {
+            for (final String testName : filteredEvaluationOrder) {
+                if (!testNameFilterSet.contains(testName)) {
+                    testGroups.remove(testName);
+                    testAllocations.remove(testName);
+                }
+            }
+        }
+
+        return new ProctorResult(getMatrixVersion(), testGroups, testAllocations, testDefinitions, testBucketIndices, testGroupStrings);
+    }
+
+    /**
+     * Same as {@link #determineTestGroups(Identifiers, Map, ForceGroupsOptions, Collection)} for all tests,
+     * but each test is determined when the result is first asked for its group, together with the tests it depends on.
+     * Iterating over groups, or any other access than looking up a test, determines all remaining tests.
+     *
+     * This saves determining tests that are never looked up, e.g. when a request only checks a few tests
+     * and does not log groups. The groups are the same as determined eagerly.
+     *
+     * The result is not thread-safe, even for reads, until all tests are determined.
+     *
+     * @param identifiers        identifiers of the client, see {@link #determineTestGroups(Identifiers, Map, Map)}
+     * @param inputContext       variables describing the context in which the request is executing,
+     *                           which should not be modified while tests are determined
+     * @param forceGroupsOptions forced groups for tests
+     * @return a {@link ProctorResult} determining test groups on demand
+     */
+    @Nonnull
+    public ProctorResult determineTestGroupsLazily(
+            @Nonnull final Identifiers identifiers,
+            @Nonnull final Map<String, Object> inputContext,
+            @Nonnull final ForceGroupsOptions forceGroupsOptions
+    ) {
+        final TestIndexedSortedMap<TestBucket> testGroups = new TestIndexedSortedMap<>(testNameIndex);
+        final TestIndexedSortedMap<Allocation> testAllocations = new TestIndexedSortedMap<>(testNameIndex);
+        final LazyTestGroups lazyTestGroups = new LazyTestGroups(
+                identifiers,
+                RuleEvaluator.createEvaluationContext(inputContext),
+                forceGroupsOptions,
+                testGroups,
+                testAllocations
+        );
+        testGroups.setLazyEvaluation(lazyTestGroups);
+        testAllocations.setLazyEvaluation(lazyTestGroups);
+        return new ProctorResult(getMatrixVersion(), testGroups, testAllocations, testDefinitions, testBucketIndices, testGroupStrings);
+    }
+
+    /**
+     * Determines the test groups for many clients, like calling
+     * {@link #determineTestGroups(Identifiers, Map, ForceGroupsOptions, Collection)} for each of them,
+     * but doing the setup once for all of them.
+     * Consecutive input contexts that are equal to each other share the results of evaluating rules, so callers with
+     * many clients in the same context should pass the same (or equal) maps next to each other, e.g. sorted by context.
+     *
+     * @param identifiersList    the identifiers of each client
+     * @param inputContexts      the input context of each client, in the same order as identifiersList
+     * @param forceGroupsOptions forced groups applied to all clients
+     * @param testNameFilter     Only evaluates and returns the tests named in this collection. If empty, no filter is applied.
+     * @return a {@link ProctorBatchResult} containing the test buckets for each client in the order of identifiersList
+     */
+    @Nonnull
+    public ProctorBatchResult determineTestGroupsBatch(
+            @Nonnull final List<Identifiers> identifiersList,
+            @Nonnull final List<Map<String, Object>> inputContexts,
+            @Nonnull final ForceGroupsOptions forceGroupsOptions,
+            @Nonnull final Collection<String> testNameFilter
+    ) {
+        Preconditions.checkArgument(
+                identifiersList.size() == inputContexts.size(),
+                "Expected one input context per identifiers, but got %s identifiers and %s input contexts",
+                identifiersList.size(),
+                inputContexts.size()
+        );
+        final boolean determineAllTests = testNameFilter.isEmpty();
+        final Set<String> testNameFilterSet = filterTestNames(testNameFilter);
+        final List<String> filteredEvaluationOrder = getFilteredEvaluationOrder(determineAllTests, testNameFilterSet);
+        final List<String> resultTestNames = (determineAllTests ? testChoosers.keySet() : testNameFilterSet).stream()
+                .sorted()
+                .collect(Collectors.toList());
+
+        final int size = identifiersList.size();
+        final TestBucket[][] buckets = new TestBucket[resultTestNames.size()][size];
+        final Allocation[][] allocations = new Allocation[resultTestNames.size()][size];
+
+        // reused for each client, only needed to look up dependencies
+        final Map<String, TestBucket> testGroups = new HashMap<>();
+        final Map<String, Allocation> testAllocations = new HashMap<>();
+        // only the context of the previous client is kept, as batches are large and contexts mostly distinct
+        Map<String, Object> previousInputContext = null;
+        ELContext elContext = null;
+
+        for (int i = 0; i < size; i++) {
+            final Map<String, Object> inputContext = inputContexts.get(i);
+            if ((elContext == null) || ((inputContext != previousInputContext) && !inputContext.equals(previousInputContext))) {
+                elContext = RuleEvaluator.createEvaluationContext(inputContext);
+                TestRangeSelector.memoizeMatchingRules(elContext);
+                previousInputContext = inputContext;
+            }
 
-        final List<String> filteredEvaluationOrder;
+            testGroups.clear();
+            testAllocations.clear();
+            determineTestGroups(
+                    identifiersList.get(i),
+                    elContext,
+                    forceGroupsOptions,
+                    filteredEvaluationOrder,
+                    testGroups,
+                    testAllocations
+            );
+
+            for (int testIndex = 0; testIndex < resultTestNames.size(); testIndex++) {
+                final String testName = resultTestNames.get(testIndex);
+                buckets[testIndex][i] = testGroups.get(testName);
+                allocations[testIndex][i] = testAllocations.get(testName);
+            }
+        }
+
+        return new ProctorBatchResult(getMatrixVersion(), size, resultTestNames, buckets, allocations, testDefinitions);
+    }
+
+    @Nonnull
+    private Set<String> filterTestNames(@Nonnull final Collection<String> testNameFilter) {
+        return testNameFilter.stream()
+                .filter(testChoosers::containsKey)
+                .collect(Collectors.toSet());
+    }
+
+    @Nonnull
+    private List<String> getFilteredEvaluationOrder(final boolean determineAllTests, @Nonnull final Set<String> testNameFilterSet) {
         if (determineAllTests) {
-            filteredEvaluationOrder = testEvaluationOrder;
-        } else {
-            // Following code runs in a function of the number of transitive dependencies
-            // instead of the number of all loaded tests.
-            final Set<String> transitiveDependencies = TestDependencies.computeTransitiveDependencies(
-                    testDefinitions,
-                    testNameFilterSet
+            return testEvaluationOrder;
+        }
+        final List<String> cachedEvaluationOrder = filteredEvaluationOrderCache.getIfPresent(testNameFilterSet);
+        if (cachedEvaluationOrder != null) {
+            EvaluationStats.getInstance().recordFilteredEvaluationOrderCacheHit();
+            return cachedEvaluationOrder;
+        }
+        EvaluationStats.getInstance().recordFilteredEvaluationOrderCacheMiss();
+        final List<String> filteredEvaluationOrder = computeFilteredEvaluationOrder(testNameFilterSet);
+        filteredEvaluationOrderCache.put(ImmutableSet.copyOf(testNameFilterSet), filteredEvaluationOrder);
+        return filteredEvaluationOrder;
+    }
+
+    @Nonnull
+    private List<String> computeFilteredEvaluationOrder(@Nonnull final Set<String> testNameFilterSet) {
+        // Following code runs in a function of the number of transitive dependencies
+        // instead of the number of all loaded tests.
+        final Set<String> transitiveDependencies = TestDependencies.computeTransitiveDependencies(
+                testDefinitions,
+                testNameFilterSet
+        );
+        return transitiveDependencies.stream()
+                .sorted(Comparator.comparing(evaluationOrderMap::get))
+                .collect(Collectors.collectingAndThen(Collectors.toList(), Collections::unmodifiableList));
+    }
+
+    @Nonnull
+    private String getMatrixVersion() {
+        // TODO Can we make getAudit nonnull?
+        final Audit audit = Preconditions.checkNotNull(matrix.getAudit(), "Missing audit");
+        return audit.getVersion();
+    }
+
+    /**
+     * Determines the groups of the given tests for one client, adding them to testGroups and testAllocations
+     */
+    private void determineTestGroups(
+            @Nonnull final Identifiers identifiers,
+            @Nonnull final ELContext elContext,
+            @Nonnull final ForceGroupsOptions forceGroupsOptions,
+            @Nonnull final List<String> filteredEvaluationOrder,
+            @Nonnull final Map<String, TestBucket> testGroups,
+            @Nonnull final Map<String, Allocation> testAllocations
+    ) {
+        final Set<TestType> testTypesWithInvalidIdentifier = validateIdentifiers(identifiers);
+        final StandardTestChooser.SharedHashes sharedHashes = createSharedHashes();
+
+        for (final String testName : filteredEvaluationOrder) {
+            final TestChooser.Result chooseResult = determineTestGroup(
+                    testName,
+                    identifiers,
+                    elContext,
+                    forceGroupsOptions,
+                    testTypesWithInvalidIdentifier,
+                    sharedHashes,
+                    testGroups
             );
-            filteredEvaluationOrder = transitiveDependencies.stream()
-                    .sorted(Comparator.comparing(evaluationOrderMap::get))
-                    .collect(Collectors.toList());
+            if (chooseResult == null) {
+                continue;
+            }
+            if (chooseResult.getTestBucket() != null) {
+                testGroups.put(testName, chooseResult.getTestBucket());
+            }
+            if (chooseResult.getAllocation() != null) {
+                testAllocations.put(testName, chooseResult.getAllocation());
+            }
         }
+    }
 
+    /**
+     * @return test types whose identifier is invalid, after reporting them
+     */
+    @Nonnull
+    private Set<TestType> validateIdentifiers(@Nonnull final Identifiers identifiers) {
         final Set<TestType> testTypesWithInvalidIdentifier = new HashSet<>();
         for (final TestType testType : identifiers.getAvailableTestTypes()) {
             final String identifier = identifiers.getIdentifier(testType);
             if ((identifier != null) && !identifierValidator.validate(testType, identifier)) {
-                LOGGER.warn("An invalid identifier '" + identifier + "' for test type '" + testType + "'"
-                        + " was detected. Using fallback buckets for the test type.");
+                EvaluationErrorReporter.getInstance().reportInvalidIdentifier(testType, identifier);
                 testTypesWithInvalidIdentifier.add(testType);
             }
         }
+        return testTypesWithInvalidIdentifier;
+    }
 
-        for (final String testName : filteredEvaluationOrder) {
-            final Optional<Integer> forceGroupBucket = forceGroupsOptions.getForcedBucketValue(testName);
-            final TestChooser<?> testChooser = testChoosers.get(testName);
-            final String identifier;
-            if (testChooser instanceof StandardTestChooser) {
-                final TestType testType = testChooser.getTestDefinition().getTestType();
-                if (testTypesWithInvalidIdentifier.contains(testType)) {
-                    // skipping here to make it use the fallback bucket.
-                    continue;
-                }
+    @Nullable
+    private StandardTestChooser.SharedHashes createSharedHashes() {
+        return (sharedHashSlotCount > 0)
+                ? new StandardTestChooser.SharedHashes(sharedHashSlotCount)
+                : null;
+    }
 
-                identifier = identifiers.getIdentifier(testType);
-                if (identifier == null) {
-                    // No identifier for the testType of this chooser, nothing to do
-                    continue;
-                }
-            } else {
-                if (!identifiers.isRandomEnabled()) {
-                    // test wants random chooser, but client disabled random, nothing to do
-                    continue;
-                }
-                identifier = null;
+    /**
+     * Determines the group of a test for one client, after the groups of the tests it depends on
+     *
+     * @param testGroups groups determined so far, to look up dependencies
+     * @return the chosen bucket and allocation, or null if the test has no group for the client
+     */
+    @Nullable
+    private TestChooser.Result determineTestGroup(
+            @Nonnull final String testName,
+            @Nonnull final Identifiers identifiers,
+            @Nonnull final ELContext elContext,
+            @Nonnull final ForceGroupsOptions forceGroupsOptions,
+            @Nonnull final Set<TestType> testTypesWithInvalidIdentifier,
+            @Nullable final StandardTestChooser.SharedHashes sharedHashes,
+            @Nonnull final Map<String, TestBucket> testGroups
+    ) {
+        final Optional<Integer> forceGroupBucket = forceGroupsOptions.getForcedBucketValue(testName);
+        final TestChooser<?> testChooser = testChoosers.get(testName);
+        final String identifier;
+        if (testChooser instanceof StandardTestChooser) {
+            final TestType testType = testChooser.getTestDefinition().getTestType();
+            if (testTypesWithInvalidIdentifier.contains(testType)) {
+                // skipping here to make it use the fallback bucket.
+                return null;
             }
-            if (forceGroupBucket.isPresent()) {
-                final TestBucket forcedTestBucket = testChooser.getTestBucket(forceGroupBucket.get());
-                if (forcedTestBucket != null) {
-                    testGroups.put(testName, forcedTestBucket);
-                    // use forced group
-                    continue;
+
+            identifier = identifiers.getIdentifier(testType);
+            if (identifier == null) {
+                // No identifier for the testType of this chooser, nothing to do
+                return null;
+            }
+        } else {
+            if (!identifiers.isRandomEnabled()) {
+                // test wants random chooser, but client disabled random, nothing to do
+                return null;
+            }
+            identifier = null;
+        }
+        if (forceGroupBucket.isPresent()) {
+            final TestBucket forcedTestBucket = testChooser.getTestBucket(forceGroupBucket.get());
+            if (forcedTestBucket != null) {
+                // use forced group
+                return new TestChooser.Result(forcedTestBucket, null);
+            }
+        } else if (forceGroupsOptions.getDefaultMode().equals(ForceGroupsDefaultMode.FALLBACK)) {
+            // skip choosing a test bucket
+            return null;
+        }
+        if (identifier == null) {
+            return ((RandomTestChooser) testChooser).choose(null, elContext, testGroups);
+        }
+        return ((StandardTestChooser) testChooser).choose(
+                identifier,
+                elContext,
+                testGroups,
+                sharedHashes,
+                sharedHashSlots.getOrDefault(testName, -1)
+        );
+    }
+
+    /**
+     * Determines groups of tests on demand for a result of {@link #determineTestGroupsLazily}.
+     * Each test is determined once, after the tests it depends on.
+     */
+    private class LazyTestGroups implements TestIndexedSortedMap.LazyEvaluation {
+        @Nonnull
+        private final Identifiers identifiers;
+        @Nonnull
+        private final ELContext elContext;
+        @Nonnull
+        private final ForceGroupsOptions forceGroupsOptions;
+        @Nonnull
+        private final Set<TestType> testTypesWithInvalidIdentifier;
+        @Nullable
+        private final StandardTestChooser.SharedHashes sharedHashes;
+        @Nonnull
+        private final TestIndexedSortedMap<TestBucket> testGroups;
+        @Nonnull
+        private final TestIndexedSortedMap<Allocation> testAllocations;
+        @Nonnull
+        private final boolean[] evaluated;
+
+        private LazyTestGroups(
+                @Nonnull final Identifiers identifiers,
+                @Nonnull final ELContext elContext,
+                @Nonnull final ForceGroupsOptions forceGroupsOptions,
+                @Nonnull final TestIndexedSortedMap<TestBucket> testGroups,
+                @Nonnull final TestIndexedSortedMap<Allocation> testAllocations
+        ) {
+            this.identifiers = identifiers;
+            this.elContext = elContext;
+            this.forceGroupsOptions = forceGroupsOptions;
+            // validated upfront to report invalid identifiers as eagerly determined results do
+            this.testTypesWithInvalidIdentifier = validateIdentifiers(identifiers);
+            this.sharedHashes = createSharedHashes();
+            this.testGroups = testGroups;
+            this.testAllocations = testAllocations;
+            this.evaluated = new boolean[testNameIndex.size()];
+        }
+
+        @Override
+        public void evaluate(final int ordinal) {
+            if (evaluated[ordinal]) {
+                return;
+            }
+            evaluated[ordinal] = true;
+
+            final String testName = testNameIndex.getTestName(ordinal);
+            final TestDependency dependsOn = testDefinitions.get(testName).getDependsOn();
+            if (dependsOn != null) {
+                final int dependencyOrdinal = testNameIndex.getOrdinal(dependsOn.getTestName());
+                if (dependencyOrdinal >= 0) {
+                    evaluate(dependencyOrdinal);
                 }
-            } else if (forceGroupsOptions.getDefaultMode().equals(ForceGroupsDefaultMode.FALLBACK)) {
-                // skip choosing a test bucket
-                continue;
             }
-            final TestChooser.Result chooseResult;
-            if (identifier == null) {
-                chooseResult = ((RandomTestChooser) testChooser).choose(null, inputContext, testGroups);
-            } else {
-                chooseResult = ((StandardTestChooser) testChooser).choose(identifier, inputContext, testGroups);
+
+            final TestChooser.Result chooseResult = determineTestGroup(
+                    testName,
+                    identifiers,
+                    elContext,
+                    forceGroupsOptions,
+                    testTypesWithInvalidIdentifier,
+                    sharedHashes,
+                    testGroups
+            );
+            if (chooseResult == null) {
+                return;
             }
             if (chooseResult.getTestBucket() != null) {
-                testGroups.put(testName, chooseResult.getTestBucket());
+                testGroups.setEvaluated(ordinal, chooseResult.getTestBucket());
             }
             if (chooseResult.getAllocation() != null) {
-                testAllocations.put(testName, chooseResult.getAllocation());
+                testAllocations.setEvaluated(ordinal, chooseResult.getAllocation());
             }
         }
 
-        if (!determineAllTests) {
-            for (final String testName : filteredEvaluationOrder) {
-                if (!testNameFilterSet.contains(testName)) {
-                    testGroups.remove(testName);
-                    testAllocations.remove(testName);
-                }
+        @Override
+        public void evaluateAll() {
+            for (final String testName : testEvaluationOrder) {
+                evaluate(testNameIndex.getOrdinal(testName));
             }
+            testGroups.finishLazyEvaluation();
+            testAllocations.finishLazyEvaluation();
         }
+    }
 
-        // TODO Can we make getAudit nonnull?
-        final Audit audit = Preconditions.checkNotNull(matrix.getAudit(), "Missing audit");
-        return new ProctorResult(audit.getVersion(), testGroups, testAllocations, testDefinitions);
+    /**
+     * @return the ordinals of tests in results of {@link #determineTestGroups(Identifiers, Map, ForceGroupsOptions, Collection)}
+     */
+    @Nonnull
+    public TestNameIndex getTestNameIndex() {
+        return testNameIndex;
     }
 
     TestMatrixArtifact getArtifact() {
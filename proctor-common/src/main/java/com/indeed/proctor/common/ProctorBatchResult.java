@@ -0,0 +1,113 @@
+package com.indeed.proctor.common;
+
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.TestBucket;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Return value from {@link Proctor#determineTestGroupsBatch(List, List, ForceGroupsOptions, java.util.Collection)}.
+ * Holds the groups of many clients column-wise: for each test, one array of buckets and one array of allocations,
+ * indexed like the clients given to determineTestGroupsBatch.
+ */
+public class ProctorBatchResult {
+    private final String matrixVersion;
+    private final int size;
+    /**
+     * sorted names of the determined tests
+     */
+    @Nonnull
+    private final List<String> testNames;
+    /**
+     * buckets[testIndex][clientIndex], null if no bucket was determined
+     */
+    @Nonnull
+    private final TestBucket[][] buckets;
+    /**
+     * allocations[testIndex][clientIndex], null if no allocation was determined
+     */
+    @Nonnull
+    private final Allocation[][] allocations;
+    /**
+     * maps from testname to TestDefinition
+     */
+    @Nonnull
+    private final Map<String, ConsumableTestDefinition> testDefinitions;
+
+    ProctorBatchResult(
+            @Nonnull final String matrixVersion,
+            final int size,
+            @Nonnull final List<String> testNames,
+            @Nonnull final TestBucket[][] buckets,
+            @Nonnull final Allocation[][] allocations,
+            @Nonnull final Map<String, ConsumableTestDefinition> testDefinitions
+    ) {
+        this.matrixVersion = matrixVersion;
+        this.size = size;
+        this.testNames = Collections.unmodifiableList(testNames);
+        this.buckets = buckets;
+        this.allocations = allocations;
+        this.testDefinitions = Collections.unmodifiableMap(testDefinitions);
+    }
+
+    public String getMatrixVersion() {
+        return matrixVersion;
+    }
+
+    /**
+     * @return the number of clients
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return the names of the determined tests in sorted order, the index of a name is its test index
+     */
+    @Nonnull
+    public List<String> getTestNames() {
+        return testNames;
+    }
+
+    @CheckForNull
+    public TestBucket getBucket(final int testIndex, final int clientIndex) {
+        return buckets[testIndex][clientIndex];
+    }
+
+    @CheckForNull
+    public Allocation getAllocation(final int testIndex, final int clientIndex) {
+        return allocations[testIndex][clientIndex];
+    }
+
+    @Nonnull
+    public Map<String, ConsumableTestDefinition> getTestDefinitions() {
+        return testDefinitions;
+    }
+
+    /**
+     * @return the result for one client, same as determined by
+     * {@link Proctor#determineTestGroups(Identifiers, Map, ForceGroupsOptions, java.util.Collection)}
+     */
+    @Nonnull
+    public ProctorResult getProctorResult(final int clientIndex) {
+        final SortedMap<String, TestBucket> clientBuckets = new TreeMap<>();
+        final SortedMap<String, Allocation> clientAllocations = new TreeMap<>();
+        for (int testIndex = 0; testIndex < testNames.size(); testIndex++) {
+            final String testName = testNames.get(testIndex);
+            if (buckets[testIndex][clientIndex] != null) {
+                clientBuckets.put(testName, buckets[testIndex][clientIndex]);
+            }
+            if (allocations[testIndex][clientIndex] != null) {
+                clientAllocations.put(testName, allocations[testIndex][clientIndex]);
+            }
+        }
+        return new ProctorResult(matrixVersion, clientBuckets, clientAllocations, testDefinitions);
+    }
+}
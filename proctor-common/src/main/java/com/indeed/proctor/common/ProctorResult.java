@@ -5,6 +5,7 @@ import com.indeed.proctor.common.model.Audit;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
 import com.indeed.proctor.common.model.TestBucket;
 
+import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collections;
@@ -48,6 +49,23 @@ public class ProctorResult {
      */
     @Nonnull
     private final Map<String, ConsumableTestDefinition> testDefinitions;
+    /**
+     * same maps as buckets and allocations if those are indexed by test ordinals (possibly wrapped), else null
+     */
+    @Nullable
+    private final TestIndexedSortedMap<TestBucket> indexedBuckets;
+    @Nullable
+    private final TestIndexedSortedMap<Allocation> indexedAllocations;
+    /**
+     * buckets of test definitions by value, indexed by test ordinals of indexedBuckets, else null
+     */
+    @Nullable
+    private final TestBucketIndex[] testBucketIndices;
+    /**
+     * logged forms of test groups, indexed by test ordinals of indexedBuckets, else null
+     */
+    @Nullable
+    private final TestGroupStrings[] testGroupStrings;
 
     /**
      * Create a ProctorResult with copies of the provided collections
@@ -117,11 +135,53 @@ public class ProctorResult {
             @Nonnull final SortedMap<String, TestBucket> buckets,
             @Nonnull final SortedMap<String, Allocation> allocations,
             @Nonnull final Map<String, ConsumableTestDefinition> testDefinitions
+    ) {
+        this(matrixVersion, buckets, allocations, testDefinitions, null, null);
+    }
+
+    /**
+     * @param testBucketIndices buckets of test definitions by value, indexed by the test ordinals of buckets
+     * @param testGroupStrings logged forms of test groups, indexed by the test ordinals of buckets
+     */
+    @SuppressWarnings("unchecked")
+    ProctorResult(
+            @Nonnull final String matrixVersion,
+            @Nonnull final SortedMap<String, TestBucket> buckets,
+            @Nonnull final SortedMap<String, Allocation> allocations,
+            @Nonnull final Map<String, ConsumableTestDefinition> testDefinitions,
+            @Nullable final TestBucketIndex[] testBucketIndices,
+            @Nullable final TestGroupStrings[] testGroupStrings
+    ) {
+        this(
+                matrixVersion,
+                buckets,
+                allocations,
+                testDefinitions,
+                (buckets instanceof TestIndexedSortedMap) ? (TestIndexedSortedMap<TestBucket>) buckets : null,
+                (allocations instanceof TestIndexedSortedMap) ? (TestIndexedSortedMap<Allocation>) allocations : null,
+                (buckets instanceof TestIndexedSortedMap) ? testBucketIndices : null,
+                (buckets instanceof TestIndexedSortedMap) ? testGroupStrings : null
+        );
+    }
+
+    private ProctorResult(
+            @Nonnull final String matrixVersion,
+            @Nonnull final SortedMap<String, TestBucket> buckets,
+            @Nonnull final SortedMap<String, Allocation> allocations,
+            @Nonnull final Map<String, ConsumableTestDefinition> testDefinitions,
+            @Nullable final TestIndexedSortedMap<TestBucket> indexedBuckets,
+            @Nullable final TestIndexedSortedMap<Allocation> indexedAllocations,
+            @Nullable final TestBucketIndex[] testBucketIndices,
+            @Nullable final TestGroupStrings[] testGroupStrings
     ) {
         this.matrixVersion = matrixVersion;
         this.buckets = buckets;
         this.allocations = allocations;
         this.testDefinitions = testDefinitions;
+        this.indexedBuckets = indexedBuckets;
+        this.indexedAllocations = indexedAllocations;
+        this.testBucketIndices = testBucketIndices;
+        this.testGroupStrings = testGroupStrings;
     }
 
     /**
@@ -134,7 +194,11 @@ public class ProctorResult {
                 // using fields directly because methods do not expose SortedMap type
                 Collections.unmodifiableSortedMap(proctorResult.buckets),
                 Collections.unmodifiableSortedMap(proctorResult.allocations),
-                Collections.unmodifiableMap(proctorResult.testDefinitions)
+                Collections.unmodifiableMap(proctorResult.testDefinitions),
+                proctorResult.indexedBuckets,
+                proctorResult.indexedAllocations,
+                proctorResult.testBucketIndices,
+                proctorResult.testGroupStrings
         );
     }
 
@@ -165,4 +229,107 @@ public class ProctorResult {
     public Map<String, ConsumableTestDefinition> getTestDefinitions() {
         return testDefinitions;
     }
+
+    /**
+     * Results determined by {@link Proctor} store buckets in arrays indexed by the ordinals of the tests
+     * in the test matrix, so that callers can resolve ordinals of tests once per test matrix and
+     * look up buckets by ordinal.
+     *
+     * @return the index of tests for {@link #getBucket(int)} and {@link #getAllocation(int)},
+     * or null if this result is not indexed by test ordinals
+     */
+    @CheckForNull
+    public TestNameIndex getTestNameIndex() {
+        return (indexedBuckets == null) ? null : indexedBuckets.getTestNameIndex();
+    }
+
+    /**
+     * Same as getBuckets().get(testName) for the test with the given ordinal
+     *
+     * @param testOrdinal an ordinal of {@link #getTestNameIndex()}
+     * @throws IllegalStateException if this result is not indexed by test ordinals
+     */
+    @CheckForNull
+    public TestBucket getBucket(final int testOrdinal) {
+        if (indexedBuckets == null) {
+            throw new IllegalStateException("ProctorResult is not indexed by test ordinals");
+        }
+        return indexedBuckets.getByOrdinal(testOrdinal);
+    }
+
+    /**
+     * Same as getAllocations().get(testName) for the test with the given ordinal
+     *
+     * @param testOrdinal an ordinal of {@link #getTestNameIndex()}
+     * @throws IllegalStateException if this result is not indexed by test ordinals
+     */
+    @CheckForNull
+    public Allocation getAllocation(final int testOrdinal) {
+        final TestNameIndex testNameIndex = getTestNameIndex();
+        if (testNameIndex == null) {
+            throw new IllegalStateException("ProctorResult is not indexed by test ordinals");
+        }
+        if ((indexedAllocations != null) && (indexedAllocations.getTestNameIndex() == testNameIndex)) {
+            return indexedAllocations.getByOrdinal(testOrdinal);
+        }
+        return allocations.get(testNameIndex.getTestName(testOrdinal));
+    }
+
+    /**
+     * Looks up a bucket of the definition of a test by value, e.g. to use a bucket other than the determined one.
+     * Results determined by {@link Proctor} use buckets indexed once per test matrix,
+     * other results scan the buckets of the test definition.
+     *
+     * @return the first bucket with the value in the definition of the test,
+     * or null if the test is not defined or has no such bucket
+     */
+    @CheckForNull
+    public TestBucket getTestBucketWithValue(@Nonnull final String testName, final int bucketValue) {
+        if (testBucketIndices != null) {
+            final int testOrdinal = indexedBuckets.getTestNameIndex().getOrdinal(testName);
+            if ((testOrdinal >= 0) && (testBucketIndices[testOrdinal] != null)) {
+                return testBucketIndices[testOrdinal].get(bucketValue);
+            }
+        }
+        final ConsumableTestDefinition testDefinition = (testDefinitions == null) ? null : testDefinitions.get(testName);
+        if ((testDefinition == null) || (testDefinition.getBuckets() == null)) {
+            return null;
+        }
+        for (final TestBucket testBucket : testDefinition.getBuckets()) {
+            if (testBucket.getValue() == bucketValue) {
+                return testBucket;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lookup of buckets by value for the test with the given ordinal, built once per test matrix
+     *
+     * @param testOrdinal an ordinal of {@link #getTestNameIndex()}
+     * @return the lookup, or null if unknown for the test
+     * @throws IllegalStateException if this result is not indexed by test ordinals
+     */
+    @CheckForNull
+    public TestBucketIndex getTestBucketIndex(final int testOrdinal) {
+        if (indexedBuckets == null) {
+            throw new IllegalStateException("ProctorResult is not indexed by test ordinals");
+        }
+        return (testBucketIndices == null) ? null : testBucketIndices[testOrdinal];
+    }
+
+    /**
+     * Logged forms of the groups of a test, rendered once per test matrix,
+     * available for results determined by {@link Proctor}
+     *
+     * @return the logged forms, or null if not available for the test
+     */
+    @CheckForNull
+    public TestGroupStrings getTestGroupStrings(@Nonnull final String testName) {
+        if (testGroupStrings == null) {
+            return null;
+        }
+        final int testOrdinal = indexedBuckets.getTestNameIndex().getOrdinal(testName);
+        return (testOrdinal < 0) ? null : testGroupStrings[testOrdinal];
+    }
 }
@@ -54,6 +54,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 import static java.util.stream.Collectors.joining;
@@ -91,6 +95,18 @@ public abstract class ProctorUtils {
         return context;
     }
 
+    /**
+     * Like {@link #convertToValueExpressionMap(ExpressionFactory, Map)}, but returns a view converting values
+     * only when they are looked up, for values that are looked up rarely.
+     */
+    @Nonnull
+    public static Map<String, ValueExpression> asValueExpressionMap(
+            @Nonnull final ExpressionFactory expressionFactory,
+            @Nonnull final Map<String, Object> values
+    ) {
+        return Maps.transformValues(values, value -> expressionFactory.createValueExpression(value, Object.class));
+    }
+
     @SuppressWarnings("UnusedDeclaration") // TODO Remove?
     public static String convertToArtifact(@Nonnull final TestMatrixVersion testMatrix) throws IOException {
         try (final StringWriter sw = new StringWriter()) {
@@ -178,6 +194,7 @@ public abstract class ProctorUtils {
         }
 
         artifact.setTests(consumableTestDefinitions);
+        new TestDefinitionInterner().intern(artifact);
         return artifact;
     }
 
@@ -277,6 +294,30 @@ public abstract class ProctorUtils {
             @Nonnull final FunctionMapper functionMapper,
             final ProvidedContext providedContext,
             @Nonnull final Set<String> dynamicTests
+    ) {
+        return verifyAndConsolidate(
+                testMatrix,
+                matrixSource,
+                requiredTests,
+                functionMapper,
+                providedContext,
+                dynamicTests,
+                null
+        );
+    }
+
+    /**
+     * @param testMatrix       will be modified by removing unused tests and adding missing tests
+     * @param verifierExecutor executor to verify tests in parallel, or null to verify them in the calling thread
+     */
+    public static ProctorLoadResult verifyAndConsolidate(
+            @Nonnull final TestMatrixArtifact testMatrix,
+            final String matrixSource,
+            @Nonnull final Map<String, TestSpecification> requiredTests,
+            @Nonnull final FunctionMapper functionMapper,
+            final ProvidedContext providedContext,
+            @Nonnull final Set<String> dynamicTests,
+            @Nullable final Executor verifierExecutor
     ) {
         final ProctorLoadResult result = verify(
                 testMatrix,
@@ -284,7 +325,8 @@ public abstract class ProctorUtils {
                 requiredTests,
                 functionMapper,
                 providedContext,
-                dynamicTests
+                dynamicTests,
+                verifierExecutor
         );
 
         final Map<String, ConsumableTestDefinition> definedTests = testMatrix.getTests();
@@ -419,6 +461,34 @@ public abstract class ProctorUtils {
             @Nonnull final FunctionMapper functionMapper,
             final ProvidedContext providedContext,
             @Nonnull final Set<String> dynamicTests
+    ) {
+        return verify(
+                testMatrix,
+                matrixSource,
+                requiredTests,
+                functionMapper,
+                providedContext,
+                dynamicTests,
+                null
+        );
+    }
+
+    /**
+     * Same as {@link #verify(TestMatrixArtifact, String, Map, FunctionMapper, ProvidedContext, Set)},
+     * but optionally verifying each test in parallel. The result is the same as verifying tests one by one,
+     * including the order of errors.
+     *
+     * @param verifierExecutor executor to verify tests in parallel, e.g. a bounded {@link java.util.concurrent.ForkJoinPool},
+     *                         or null to verify them in the calling thread
+     */
+    public static ProctorLoadResult verify(
+            @Nonnull final TestMatrixArtifact testMatrix,
+            final String matrixSource,
+            @Nonnull final Map<String, TestSpecification> requiredTests,
+            @Nonnull final FunctionMapper functionMapper,
+            final ProvidedContext providedContext,
+            @Nonnull final Set<String> dynamicTests,
+            @Nullable final Executor verifierExecutor
     ) {
         final ProctorLoadResult.Builder resultBuilder = ProctorLoadResult.newBuilder();
 
@@ -428,40 +498,39 @@ public abstract class ProctorUtils {
         final Set<String> missingTests = new HashSet<>();
         final Set<String> incompatibleTests = new HashSet<>();
 
+        final List<String> testsToVerify = new ArrayList<>();
         for (final String testName : testsToLoad) {
             if (!definedTests.containsKey(testName)) {
                 // required by specification but missing in test matrix
                 resultBuilder.recordMissing(testName);
                 missingTests.add(testName);
-            } else if (requiredTests.containsKey(testName)) {
-                // required by specification
-                try {
-                    verifyRequiredTest(
-                            testName,
-                            definedTests.get(testName),
-                            requiredTests.get(testName),
-                            matrixSource,
-                            functionMapper,
-                            providedContext
-                    );
-                } catch (final IncompatibleTestMatrixException e) {
-                    resultBuilder.recordError(testName, e);
-                    incompatibleTests.add(testName);
-                }
-            } else if (dynamicTests.contains(testName)) {
-                // resolved by dynamic filter
-                try {
-                    verifyDynamicTest(
-                            testName,
-                            definedTests.get(testName),
-                            matrixSource,
-                            functionMapper,
-                            providedContext
-                    );
-                } catch (final IncompatibleTestMatrixException e) {
-                    resultBuilder.recordIncompatibleDynamicTest(testName, e);
-                    incompatibleTests.add(testName);
+            } else {
+                testsToVerify.add(testName);
+            }
+        }
+
+        final List<IncompatibleTestMatrixException> errors = verifyTests(
+                testsToVerify,
+                verifierExecutor,
+                testName -> verifyTestToLoad(
+                        testName,
+                        definedTests.get(testName),
+                        requiredTests,
+                        matrixSource,
+                        functionMapper,
+                        providedContext
+                )
+        );
+        for (int i = 0; i < testsToVerify.size(); i++) {
+            final String testName = testsToVerify.get(i);
+            final IncompatibleTestMatrixException error = errors.get(i);
+            if (error != null) {
+                if (requiredTests.containsKey(testName)) {
+                    resultBuilder.recordError(testName, error);
+                } else {
+                    resultBuilder.recordIncompatibleDynamicTest(testName, error);
                 }
+                incompatibleTests.add(testName);
             }
         }
 
@@ -486,6 +555,81 @@ public abstract class ProctorUtils {
         return resultBuilder.build();
     }
 
+    /**
+     * @return errors of the tests in the same order, null for valid tests
+     */
+    @Nonnull
+    private static List<IncompatibleTestMatrixException> verifyTests(
+            @Nonnull final List<String> testNames,
+            @Nullable final Executor verifierExecutor,
+            @Nonnull final Function<String, IncompatibleTestMatrixException> verifier
+    ) {
+        if (verifierExecutor == null) {
+            return testNames.stream().map(verifier).collect(Collectors.toList());
+        }
+        final List<CompletableFuture<IncompatibleTestMatrixException>> futures = testNames.stream()
+                .map(testName -> CompletableFuture.supplyAsync(() -> verifier.apply(testName), verifierExecutor))
+                .collect(Collectors.toList());
+        final List<IncompatibleTestMatrixException> errors = new ArrayList<>(futures.size());
+        for (final CompletableFuture<IncompatibleTestMatrixException> future : futures) {
+            try {
+                errors.add(future.join());
+            } catch (final CompletionException e) {
+                // rethrow as verifying in the calling thread would
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                if (e.getCause() instanceof Error) {
+                    throw (Error) e.getCause();
+                }
+                throw e;
+            }
+        }
+        return errors;
+    }
+
+    /**
+     * Verifies a required or dynamic test
+     *
+     * @return the error, or null if the test is valid
+     */
+    @CheckForNull
+    private static IncompatibleTestMatrixException verifyTestToLoad(
+            @Nonnull final String testName,
+            @Nonnull final ConsumableTestDefinition testDefinition,
+            @Nonnull final Map<String, TestSpecification> requiredTests,
+            final String matrixSource,
+            @Nonnull final FunctionMapper functionMapper,
+            final ProvidedContext providedContext
+    ) {
+        try {
+            final TestSpecification testSpecification = requiredTests.get(testName);
+            if (testSpecification != null) {
+                // required by specification
+                verifyRequiredTest(
+                        testName,
+                        testDefinition,
+                        testSpecification,
+                        matrixSource,
+                        functionMapper,
+                        providedContext
+                );
+            } else {
+                // resolved by dynamic filter
+                verifyDynamicTest(
+                        testName,
+                        testDefinition,
+                        matrixSource,
+                        functionMapper,
+                        providedContext
+                );
+            }
+            return null;
+        } catch (final IncompatibleTestMatrixException e) {
+            return e;
+        }
+    }
+
     /**
      * Verifies that a single required test is valid against {@link TestSpecification}
      * and {@link FunctionMapper} and {@link ProvidedContext}.
@@ -1061,7 +1205,8 @@ public abstract class ProctorUtils {
         //verify test rule is valid EL
         final String testRule = testDefinition.getRule();
 
-        final Map<String, ValueExpression> testConstants = ProctorUtils.convertToValueExpressionMap(
+        // only looked up for variables of rules parsed here
+        final Map<String, ValueExpression> testConstants = ProctorUtils.asValueExpressionMap(
                 expressionFactory,
                 testDefinition.getConstants()
         );
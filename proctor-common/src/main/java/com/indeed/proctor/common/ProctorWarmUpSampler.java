@@ -0,0 +1,33 @@
+package com.indeed.proctor.common;
+
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Supplies representative arguments of {@link Proctor#determineTestGroups} to warm up a newly loaded {@link Proctor}
+ * before it is published by {@link AbstractProctorLoader#setWarmUp(ProctorWarmUpSampler, int)}.
+ */
+public interface ProctorWarmUpSampler {
+    /**
+     * @param iteration index of the warm-up call, from 0
+     */
+    @Nonnull
+    Identifiers sampleIdentifiers(int iteration);
+
+    /**
+     * @param iteration index of the warm-up call, from 0
+     */
+    @Nonnull
+    Map<String, Object> sampleContext(int iteration);
+
+    /**
+     * @param iteration index of the warm-up call, from 0
+     * @return test names to determine, or an empty collection to determine all tests
+     */
+    @Nonnull
+    default Collection<String> sampleTestNameFilter(final int iteration) {
+        return Collections.emptyList();
+    }
+}
@@ -8,6 +8,7 @@ import com.indeed.proctor.common.model.TestBucket;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.el.ELContext;
 import javax.el.ExpressionFactory;
 import javax.el.FunctionMapper;
 import java.io.PrintWriter;
@@ -47,8 +48,16 @@ class RandomTestChooser implements TestChooser<Void> {
             final String testName,
             @Nonnull final ConsumableTestDefinition testDefinition
     ) {
-        testRangeSelector = new TestRangeSelector(expressionFactory, functionMapper, testName, testDefinition);
-        allocations = testDefinition.getAllocations();
+        this(seed, new TestRangeSelector(expressionFactory, functionMapper, testName, testDefinition));
+    }
+
+    RandomTestChooser(@Nonnull final TestRangeSelector selector) {
+        this(System.nanoTime(), selector);
+    }
+
+    private RandomTestChooser(final long seed, @Nonnull final TestRangeSelector selector) {
+        testRangeSelector = selector;
+        allocations = selector.getTestDefinition().getAllocations();
         random = new Random(seed);
     }
 
@@ -79,6 +88,12 @@ class RandomTestChooser implements TestChooser<Void> {
         return testRangeSelector.getTestBucket(value);
     }
 
+    @Nonnull
+    @Override
+    public TestBucketIndex getTestBucketIndex() {
+        return testRangeSelector.getTestBucketIndex();
+    }
+
     @Override
     @Nonnull
     public String[] getRules() {
@@ -101,10 +116,10 @@ class RandomTestChooser implements TestChooser<Void> {
     @Override
     public TestChooser.Result choose(
             @Nullable final Void identifier,
-            @Nonnull final Map<String, Object> values,
+            @Nonnull final ELContext elContext,
             @Nonnull final Map<String, TestBucket> testGroups
     ) {
-        final int matchingRuleIndex = testRangeSelector.findMatchingRule(values, testGroups);
+        final int matchingRuleIndex = testRangeSelector.findMatchingRule(elContext, testGroups);
         if (matchingRuleIndex < 0) {
             return TestChooser.Result.EMPTY;
         }
@@ -0,0 +1,24 @@
+package com.indeed.proctor.common;
+
+import com.indeed.proctor.common.el.RuleCompiler;
+
+/**
+ * Options to define how rules of tests and allocations are evaluated.
+ * All options produce the same results.
+ */
+public enum RuleEvaluationMode {
+    /**
+     * The initial option. Rules are evaluated by the apache-el interpreter.
+     */
+    INTERPRETED,
+    /**
+     * Rules are compiled by {@link RuleCompiler} when a Proctor is constructed,
+     * rules that cannot be compiled are evaluated by the apache-el interpreter.
+     */
+    COMPILED,
+    ;
+
+    public static RuleEvaluationMode getInitial() {
+        return INTERPRETED;
+    }
+}
@@ -1,7 +1,11 @@
 package com.indeed.proctor.common;
 
+import com.indeed.proctor.common.el.ContextVariableExpression;
+import com.indeed.proctor.common.el.DeferredVariableMapper;
 import com.indeed.proctor.common.el.LibraryFunctionMapperBuilder;
-import com.indeed.proctor.common.el.MulticontextReadOnlyVariableMapper;
+import com.indeed.proctor.common.el.RuleAnalyzer;
+import com.indeed.proctor.common.el.RuleCompiler;
+import com.indeed.proctor.common.el.RuleCompiler.CompiledRule;
 import org.apache.commons.lang3.ClassUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.el.ExpressionFactoryImpl;
@@ -10,6 +14,7 @@ import org.apache.logging.log4j.Logger;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.el.ArrayELResolver;
 import javax.el.BeanELResolver;
 import javax.el.CompositeELResolver;
@@ -21,6 +26,7 @@ import javax.el.ListELResolver;
 import javax.el.MapELResolver;
 import javax.el.ValueExpression;
 import javax.el.VariableMapper;
+import java.util.Collections;
 import java.util.Map;
 
 /**
@@ -37,27 +43,47 @@ public class RuleEvaluator {
 
     static final ExpressionFactory EXPRESSION_FACTORY = new ExpressionFactoryImpl();
 
+    /**
+     * Stateless apart from thread-safe caches, so shared by all evaluations
+     */
+    private static final ELResolver EL_RESOLVER = constructStandardElResolver();
+
+    private static final VariableMapper EMPTY_VARIABLE_MAPPER = new DeferredVariableMapper(Collections.emptyMap());
+
     @Nonnull
     final ExpressionFactory expressionFactory;
     @Nonnull
-    final CompositeELResolver elResolver;
-    @Nonnull
     private final Map<String, ValueExpression> testConstants;
     @Nonnull
+    private final VariableMapper testConstantsMapper;
+    @Nonnull
     private final FunctionMapper functionMapper;
+    @Nonnull
+    private final RuleEvaluationMode ruleEvaluationMode;
 
     RuleEvaluator(
             @Nonnull final ExpressionFactory expressionFactory,
             @Nonnull final FunctionMapper functionMapper,
             @Nonnull final Map<String, Object> testConstantsMap
+    ) {
+        this(expressionFactory, functionMapper, testConstantsMap, RuleEvaluationMode.getInitial());
+    }
+
+    RuleEvaluator(
+            @Nonnull final ExpressionFactory expressionFactory,
+            @Nonnull final FunctionMapper functionMapper,
+            @Nonnull final Map<String, Object> testConstantsMap,
+            @Nonnull final RuleEvaluationMode ruleEvaluationMode
     ) {
         this.expressionFactory = expressionFactory;
 
-        this.functionMapper = functionMapper;
+        this.ruleEvaluationMode = ruleEvaluationMode;
 
-        elResolver = constructStandardElResolver();
+        this.functionMapper = functionMapper;
 
         testConstants = ProctorUtils.convertToValueExpressionMap(expressionFactory, testConstantsMap);
+
+        testConstantsMapper = new DeferredVariableMapper(testConstants);
     }
 
     public static RuleEvaluator createDefaultRuleEvaluator(final Map<String, Object> testConstantsMap) {
@@ -83,21 +109,42 @@ public class RuleEvaluator {
         return builder;
     }
 
+    /**
+     * Test constants are bound when a rule is parsed, other variables are resolved from the given values
+     * when a rule is evaluated, so the returned context can be used for both parsing and evaluating rules.
+     */
     @Nonnull
     ELContext createElContext(@Nonnull final Map<String, Object> values) {
-        final Map<String, ValueExpression> localContext = ProctorUtils.convertToValueExpressionMap(expressionFactory, values);
-        @SuppressWarnings("unchecked")
-        final VariableMapper variableMapper = new MulticontextReadOnlyVariableMapper(testConstants, localContext);
-        return createELContext(variableMapper);
+        return createELContext(functionMapper, testConstantsMapper, values);
     }
 
     @Nonnull
     ELContext createELContext(@Nonnull final VariableMapper variableMapper) {
+        return createELContext(functionMapper, variableMapper, Collections.emptyMap());
+    }
+
+    /**
+     * Creates a context to evaluate rules prepared by any rule evaluator against the given values,
+     * so that a single context can be used for all tests determined for one request.
+     * The values are not copied, and contexts are not thread-safe.
+     */
+    @Nonnull
+    static ELContext createEvaluationContext(@Nonnull final Map<String, Object> values) {
+        // functions and variables are bound when rules are prepared, so these are never used for evaluation
+        return createELContext(FUNCTION_MAPPER, EMPTY_VARIABLE_MAPPER, values);
+    }
+
+    @Nonnull
+    private static ELContext createELContext(
+            @Nonnull final FunctionMapper functionMapper,
+            @Nonnull final VariableMapper variableMapper,
+            @Nonnull final Map<String, Object> values
+    ) {
         return new ELContext() {
             @Nonnull
             @Override
             public ELResolver getELResolver() {
-                return elResolver;
+                return EL_RESOLVER;
             }
 
             @Nonnull
@@ -111,28 +158,77 @@ public class RuleEvaluator {
             public VariableMapper getVariableMapper() {
                 return variableMapper;
             }
+
+            @Override
+            public Object getContext(final Class key) {
+                if (key == ContextVariableExpression.class) {
+                    return values;
+                }
+                return super.getContext(key);
+            }
         };
     }
 
-    public boolean evaluateBooleanRule(final String rule, @Nonnull final Map<String, Object> values) throws IllegalArgumentException {
+    /**
+     * Parses the rule once, so that it can be evaluated for many contexts
+     * via {@link #evaluateBooleanRule(PreparedRule, ELContext)}.
+     * Invalid rules do not fail here, but fail when evaluated like in {@link #evaluateBooleanRule(String, Map)}.
+     */
+    @Nonnull
+    PreparedRule prepareBooleanRule(@Nullable final String rule) {
         if (StringUtils.isBlank(rule)) {
-            return true;
+            return PreparedRule.constant(rule, true);
         }
         if (!rule.startsWith("${") || !rule.endsWith("}")) {
             LOGGER.error("Invalid rule '" +  rule + "'");   //  TODO: should this be an exception?
-            return false;
+            return PreparedRule.constant(rule, false);
         }
         final String bareRule = ProctorUtils.removeElExpressionBraces(rule);
         if (StringUtils.isBlank(bareRule) || "true".equalsIgnoreCase(bareRule)) {
-            return true;    //  always passes
+            return PreparedRule.constant(rule, true);    //  always passes
         }
         if ("false".equalsIgnoreCase(bareRule)) {
-            return false;
+            return PreparedRule.constant(rule, false);
         }
 
-        final ELContext elContext = createElContext(values);
-        final ValueExpression ve = expressionFactory.createValueExpression(elContext, rule, boolean.class);
-        checkRuleIsBooleanType(rule, elContext, ve);
+        try {
+            final ELContext elContext = createElContext(Collections.emptyMap());
+            final ValueExpression valueExpression = expressionFactory.createValueExpression(elContext, rule, boolean.class);
+            final CompiledRule compiledRule = (ruleEvaluationMode == RuleEvaluationMode.COMPILED)
+                    ? RuleCompiler.compile(rule, functionMapper, testConstantsMapper)
+                    : null;
+            // test constants are bound, so never absent from the values
+            final String[] requiredVariables = RuleAnalyzer.getRequiredVariables(rule).stream()
+                    .filter(variable -> !testConstants.containsKey(variable))
+                    .toArray(String[]::new);
+            return new PreparedRule(rule, valueExpression, compiledRule, requiredVariables, null, false);
+        } catch (final RuntimeException e) {
+            return new PreparedRule(rule, null, null, PreparedRule.NO_VARIABLES, e, false);
+        }
+    }
+
+    public boolean evaluateBooleanRule(final String rule, @Nonnull final Map<String, Object> values) throws IllegalArgumentException {
+        return evaluateBooleanRule(prepareBooleanRule(rule), createEvaluationContext(values));
+    }
+
+    /**
+     * @param elContext a context created by {@link #createEvaluationContext(Map)} holding the values to evaluate against
+     */
+    boolean evaluateBooleanRule(@Nonnull final PreparedRule preparedRule, @Nonnull final ELContext elContext) throws IllegalArgumentException {
+        final ValueExpression ve = preparedRule.getValueExpression();
+        if (ve == null) {
+            return preparedRule.getConstantResult();
+        }
+        // the context may have been used for other rules, evaluate as with a new context
+        elContext.setPropertyResolved(false);
+
+        final CompiledRule compiledRule = preparedRule.getCompiledRule();
+        if (compiledRule != null) {
+            // compiled rules are always of boolean type
+            return compiledRule.evaluate(elContext, ContextVariableExpression.getValues(elContext));
+        }
+
+        checkRuleIsBooleanType(preparedRule.getRule(), elContext, ve);
 
         final Object result = ve.getValue(elContext);
 
@@ -142,7 +238,7 @@ public class RuleEvaluator {
         // this should never happen, evaluateRule throws ELException when it cannot coerce to Boolean
         throw new IllegalArgumentException("Received non-boolean return value: "
                 + (result == null ? "null" : result.getClass().getCanonicalName())
-                + " from rule " + rule);
+                + " from rule " + preparedRule.getRule());
     }
 
     /**
@@ -178,4 +274,88 @@ public class RuleEvaluator {
         return ve.getValue(elContext);
     }
 
+    /**
+     * A rule parsed with test constants and functions bound, to be evaluated against the values of each request.
+     * Instances are immutable and can be shared between threads.
+     */
+    static final class PreparedRule {
+        private static final String[] NO_VARIABLES = new String[0];
+
+        @Nullable
+        private final String rule;
+        @Nullable
+        private final ValueExpression valueExpression;
+        @Nullable
+        private final CompiledRule compiledRule;
+        @Nonnull
+        private final String[] requiredVariables;
+        @Nullable
+        private final RuntimeException parseException;
+        private final boolean constantResult;
+
+        private PreparedRule(
+                @Nullable final String rule,
+                @Nullable final ValueExpression valueExpression,
+                @Nullable final CompiledRule compiledRule,
+                @Nonnull final String[] requiredVariables,
+                @Nullable final RuntimeException parseException,
+                final boolean constantResult
+        ) {
+            this.rule = rule;
+            this.valueExpression = valueExpression;
+            this.compiledRule = compiledRule;
+            this.requiredVariables = requiredVariables;
+            this.parseException = parseException;
+            this.constantResult = constantResult;
+        }
+
+        private static PreparedRule constant(@Nullable final String rule, final boolean constantResult) {
+            return new PreparedRule(rule, null, null, NO_VARIABLES, null, constantResult);
+        }
+
+        @Nullable
+        String getRule() {
+            return rule;
+        }
+
+        /**
+         * @return null if the rule does not need to be evaluated
+         * @throws RuntimeException if the rule failed to be parsed
+         */
+        @CheckForNull
+        ValueExpression getValueExpression() {
+            if (parseException != null) {
+                throw parseException;
+            }
+            return valueExpression;
+        }
+
+        /**
+         * @return null if the rule has to be evaluated by its value expression
+         */
+        @CheckForNull
+        CompiledRule getCompiledRule() {
+            return compiledRule;
+        }
+
+        /**
+         * Checks variables that every evaluation of the rule resolves,
+         * so that an evaluation is known to fail without evaluating the rule.
+         *
+         * @return a variable required by the rule that is absent from the values, or null if there is none
+         */
+        @CheckForNull
+        String findAbsentVariable(@Nonnull final Map<String, Object> values) {
+            for (final String variable : requiredVariables) {
+                if (!values.containsKey(variable)) {
+                    return variable;
+                }
+            }
+            return null;
+        }
+
+        boolean getConstantResult() {
+            return constantResult;
+        }
+    }
 }
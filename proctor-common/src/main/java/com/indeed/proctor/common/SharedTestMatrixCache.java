@@ -0,0 +1,188 @@
+package com.indeed.proctor.common;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.indeed.proctor.common.model.Audit;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+import com.indeed.util.varexport.Export;
+import com.indeed.util.varexport.VarExporter;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Shares a test matrix among loaders of the same source in a JVM,
+ * e.g. several {@link AbstractProctorLoader} with different specifications for the same test matrix url,
+ * so that the source is fetched and parsed once per reload instead of once per loader.
+ *
+ * The whole test matrix is kept per source in {@link BinaryTestMatrixFormat} in a direct buffer outside the heap,
+ * and replaced when a newer audit version is loaded.
+ * Each loader decodes only the tests it uses into its own instances,
+ * as loaders modify test definitions while verifying them.
+ *
+ * Enabled per loader by {@link AbstractProctorLoader#setSharedTestMatrixCache(SharedTestMatrixCache, long)}.
+ */
+public final class SharedTestMatrixCache {
+    private static final Logger LOGGER = LogManager.getLogger(SharedTestMatrixCache.class);
+
+    private static final SharedTestMatrixCache INSTANCE = new SharedTestMatrixCache(System::currentTimeMillis);
+
+    static {
+        VarExporter.forNamespace(SharedTestMatrixCache.class.getSimpleName()).includeInGlobal().export(INSTANCE, "");
+    }
+
+    @Nonnull
+    private final LongSupplier clock;
+    private final ConcurrentMap<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong loads = new AtomicLong();
+
+    @VisibleForTesting
+    SharedTestMatrixCache(@Nonnull final LongSupplier clock) {
+        this.clock = clock;
+    }
+
+    /**
+     * @return the cache shared in the JVM
+     */
+    @Nonnull
+    public static SharedTestMatrixCache getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Loads the whole test matrix from the source
+     */
+    @FunctionalInterface
+    interface TestMatrixSource {
+        /**
+         * @param cachedAudit      audit of the cached test matrix, or null if not cached yet.
+         *                         A test matrix of only this audit can be returned if the source is unchanged.
+         * @param cachedValidators validators of the source kept with the cached test matrix, e.g. an ETag
+         */
+        @Nonnull
+        LoadedTestMatrix load(
+                @Nullable Audit cachedAudit,
+                @Nullable Object cachedValidators
+        ) throws IOException, MissingTestMatrixException;
+    }
+
+    /**
+     * A test matrix loaded from a source, and validators of the source to tell whether it is unchanged on the next load.
+     * Validators are opaque to the cache, and only passed back to loaders.
+     */
+    static final class LoadedTestMatrix {
+        @Nullable
+        private final TestMatrixArtifact testMatrix;
+        @Nullable
+        private final Object validators;
+
+        LoadedTestMatrix(@Nullable final TestMatrixArtifact testMatrix, @Nullable final Object validators) {
+            this.testMatrix = testMatrix;
+            this.validators = validators;
+        }
+    }
+
+    /**
+     * @param source       key of the source, e.g. its url or path
+     * @param maxAgeMillis how long a cached test matrix is returned without loading it again
+     * @param loader       loads the whole test matrix if it is not cached or too old,
+     *                     or only its audit if the source is unchanged since the cached test matrix.
+     *                     Called by one thread at a time per source.
+     * @return the cached test matrix of the source
+     */
+    @Nonnull
+    BinaryTestMatrixFormat.Index get(
+            @Nonnull final String source,
+            final long maxAgeMillis,
+            @Nonnull final TestMatrixSource loader
+    ) throws IOException, MissingTestMatrixException {
+        final Entry entry = entries.computeIfAbsent(source, key -> new Entry());
+        synchronized (entry) {
+            final long now = clock.getAsLong();
+            if ((entry.index != null) && (now - entry.loadedMillis < maxAgeMillis)) {
+                hits.incrementAndGet();
+                return entry.index;
+            }
+
+            final LoadedTestMatrix loaded = loader.load(
+                    (entry.index == null) ? null : entry.index.getAudit(),
+                    entry.validators
+            );
+            final TestMatrixArtifact testMatrix = loaded.testMatrix;
+            if (testMatrix == null) {
+                throw new MissingTestMatrixException("Failed to load Test Matrix from " + source);
+            }
+            loads.incrementAndGet();
+            entry.loadedMillis = now;
+            entry.validators = loaded.validators;
+            if ((entry.index != null) && isSameAuditVersion(entry.index.getAudit(), testMatrix.getAudit())) {
+                return entry.index;
+            }
+
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            BinaryTestMatrixFormat.write(testMatrix, bytes);
+            final ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.size());
+            buffer.put(bytes.toByteArray());
+            buffer.flip();
+            entry.index = BinaryTestMatrixFormat.read(buffer);
+            entry.sizeBytes = bytes.size();
+            LOGGER.info("Cached test matrix of " + source + " in " + entry.sizeBytes + " bytes");
+            return entry.index;
+        }
+    }
+
+    /**
+     * Drops the cached test matrix of the source, so that the next loader loads it again
+     */
+    public void invalidate(@Nonnull final String source) {
+        entries.remove(source);
+    }
+
+    private static boolean isSameAuditVersion(@Nullable final Audit cached, @Nullable final Audit loaded) {
+        return (cached != null) && (loaded != null) && Objects.equals(cached.getVersion(), loaded.getVersion());
+    }
+
+    @Export(name = "hits", doc = "Number of test matrices returned from the cache without loading the source")
+    public long getHits() {
+        return hits.get();
+    }
+
+    @Export(name = "loads", doc = "Number of test matrices loaded from sources for the cache")
+    public long getLoads() {
+        return loads.get();
+    }
+
+    @Export(name = "sources", doc = "Number of sources of cached test matrices")
+    public int getSourceCount() {
+        return entries.size();
+    }
+
+    @Export(name = "cached-bytes", doc = "Total bytes of cached test matrices, kept outside the heap")
+    public long getCachedBytes() {
+        long total = 0;
+        for (final Entry entry : entries.values()) {
+            total += entry.sizeBytes;
+        }
+        return total;
+    }
+
+    private static final class Entry {
+        @Nullable
+        private BinaryTestMatrixFormat.Index index;
+        private long loadedMillis;
+        @Nullable
+        private Object validators;
+        private volatile long sizeBytes;
+    }
+}
@@ -13,6 +13,7 @@ import com.indeed.proctor.common.model.TestDependency;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.el.ELContext;
 import javax.el.ExpressionFactory;
 import javax.el.FunctionMapper;
 import java.io.PrintWriter;
@@ -120,10 +121,25 @@ class StandardTestChooser implements TestChooser<String> {
     @Override
     public TestChooser.Result choose(
             @Nullable final String identifier,
-            @Nonnull final Map<String, Object> values,
+            @Nonnull final ELContext elContext,
             @Nonnull final Map<String, TestBucket> testGroups
     ) {
-        final int matchingRuleIndex = testRangeSelector.findMatchingRule(values, testGroups);
+        return choose(identifier, elContext, testGroups, null, -1);
+    }
+
+    /**
+     * @param sharedHashes hashes of the identifier already computed for this request, or null
+     * @param sharedHashSlot the slot of sharedHashes shared with other tests with the same salt, or -1 if not shared
+     */
+    @Nonnull
+    TestChooser.Result choose(
+            @Nullable final String identifier,
+            @Nonnull final ELContext elContext,
+            @Nonnull final Map<String, TestBucket> testGroups,
+            @Nullable final SharedHashes sharedHashes,
+            final int sharedHashSlot
+    ) {
+        final int matchingRuleIndex = testRangeSelector.findMatchingRule(elContext, testGroups);
         if (matchingRuleIndex < 0) {
             return Result.EMPTY;
         }
@@ -134,14 +150,20 @@ class StandardTestChooser implements TestChooser<String> {
                 chooseBucket(
                         cutoffs[matchingRuleIndex],
                         testRangeSelector.getBucketRange(matchingRuleIndex),
-                        Preconditions.checkNotNull(identifier, "Missing identifier")
+                        hash(Preconditions.checkNotNull(identifier, "Missing identifier"), sharedHashes, sharedHashSlot)
                 ),
                 matchingAllocation
         );
     }
 
-    private TestBucket chooseBucket(@Nonnull final int[] matchingCutoffs, final TestBucket[] matchingBucketRange, @Nonnull final String identifier) {
-        final int value = hasher.hash(identifier);
+    private int hash(@Nonnull final String identifier, @Nullable final SharedHashes sharedHashes, final int sharedHashSlot) {
+        if ((sharedHashes == null) || (sharedHashSlot < 0)) {
+            return hasher.hash(identifier);
+        }
+        return sharedHashes.hash(sharedHashSlot, hasher, identifier);
+    }
+
+    private TestBucket chooseBucket(@Nonnull final int[] matchingCutoffs, final TestBucket[] matchingBucketRange, final int value) {
         int i;
         for (i = 0; i < matchingCutoffs.length && value > matchingCutoffs[i]; i++) { /* intentionally empty */ }
         return matchingBucketRange[i];
@@ -154,6 +176,15 @@ class StandardTestChooser implements TestChooser<String> {
         return parameters;
     }
 
+    /**
+     * @return the salt hashed together with identifiers, tests of the same type with the same hash salt
+     * always assign the same hash to an identifier
+     */
+    @Nonnull
+    String getHashSalt() {
+        return hasher.getSalt();
+    }
+
     @Override
     public String toString() {
         final Map<String, String> parameters = getDescriptorParameters();
@@ -175,6 +206,12 @@ class StandardTestChooser implements TestChooser<String> {
         return testRangeSelector.getTestBucket(value);
     }
 
+    @Nonnull
+    @Override
+    public TestBucketIndex getTestBucketIndex() {
+        return testRangeSelector.getTestBucketIndex();
+    }
+
     @Nonnull
     @Override
     public String[] getRules() {
@@ -198,23 +235,62 @@ class StandardTestChooser implements TestChooser<String> {
      */
     private interface Hasher {
         int hash(@Nonnull String identifier);
+
+        @Nonnull
+        String getSalt();
+    }
+
+    /**
+     * Hashes of identifiers computed while determining the groups of one request,
+     * for tests sharing the same hash salt and test type. Not thread-safe.
+     */
+    static final class SharedHashes {
+        private final int[] hashes;
+        private final boolean[] computed;
+
+        SharedHashes(final int size) {
+            hashes = new int[size];
+            computed = new boolean[size];
+        }
+
+        private int hash(final int slot, @Nonnull final Hasher hasher, @Nonnull final String identifier) {
+            if (!computed[slot]) {
+                hashes[slot] = hasher.hash(identifier);
+                computed[slot] = true;
+            }
+            return hashes[slot];
+        }
     }
 
     /**
      * @author matts
      */
     private abstract static class AbstractMD5Hasher implements Hasher {
+        private final String salt;
         private final byte[] bytes;
+        /**
+         * digest already updated with the salt, cloned for each hash instead of looking up a digest and hashing the salt again,
+         * or null if the provider of the digest does not support cloning
+         */
+        @Nullable
+        private final MessageDigest saltedDigest;
 
         public AbstractMD5Hasher(final String salt) {
+            this.salt = salt;
             this.bytes = salt.getBytes(Charsets.UTF_8);
+            this.saltedDigest = createCloneableSaltedDigest(bytes);
+        }
+
+        @Nonnull
+        @Override
+        public String getSalt() {
+            return salt;
         }
 
         @Override
         public int hash(@Nonnull final String identifier) {
-            final MessageDigest md = ProctorUtils.createMessageDigest();
+            final MessageDigest md = newSaltedDigest();
 
-            md.update(bytes);
             md.update(identifier.getBytes(Charsets.UTF_8));
 
             final byte[] digest = md.digest();
@@ -222,6 +298,32 @@ class StandardTestChooser implements TestChooser<String> {
             return convertToInt(digest);
         }
 
+        @Nonnull
+        private MessageDigest newSaltedDigest() {
+            if (saltedDigest != null) {
+                try {
+                    return (MessageDigest) saltedDigest.clone();
+                } catch (final CloneNotSupportedException e) {
+                    throw new IllegalStateException("Failed to clone MD5 digest", e);
+                }
+            }
+            final MessageDigest md = ProctorUtils.createMessageDigest();
+            md.update(bytes);
+            return md;
+        }
+
+        @Nullable
+        private static MessageDigest createCloneableSaltedDigest(@Nonnull final byte[] bytes) {
+            final MessageDigest md = ProctorUtils.createMessageDigest();
+            md.update(bytes);
+            try {
+                md.clone();
+                return md;
+            } catch (final CloneNotSupportedException e) {
+                return null;
+            }
+        }
+
         private static int convertToInt(final byte[] digest) {
             final int offset = 12;  //  arbitrary choice; changing this would reshuffle all groups just like changing the salt
             return (0xff & digest[offset+0]) << 24 |
@@ -0,0 +1,96 @@
+package com.indeed.proctor.common;
+
+import com.indeed.proctor.common.model.TestBucket;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable lookup of the buckets of a test definition by bucket value, built once per test when a {@link Proctor}
+ * is constructed, instead of scanning the buckets of the definition for each lookup.
+ *
+ * Same as the first bucket of the definition with the value, as of construction.
+ * Bucket values are usually a small range (e.g. -1 to 3), stored in an array indexed by value,
+ * else they are binary searched.
+ */
+public final class TestBucketIndex {
+    static final TestBucketIndex EMPTY = new TestBucketIndex(0, new TestBucket[0], null);
+
+    /**
+     * ranges of bucket values wider than this multiple of the number of buckets (plus slack) are binary searched
+     */
+    private static final int MAX_SPARSENESS = 4;
+
+    private final int minValue;
+    /**
+     * buckets by value - minValue if dense, else by position in sortedValues
+     */
+    @Nonnull
+    private final TestBucket[] buckets;
+    @CheckForNull
+    private final int[] sortedValues;
+
+    private TestBucketIndex(final int minValue, @Nonnull final TestBucket[] buckets, @CheckForNull final int[] sortedValues) {
+        this.minValue = minValue;
+        this.buckets = buckets;
+        this.sortedValues = sortedValues;
+    }
+
+    @Nonnull
+    public static TestBucketIndex of(@Nonnull final List<TestBucket> testBuckets) {
+        if (testBuckets.isEmpty()) {
+            return EMPTY;
+        }
+        int minValue = Integer.MAX_VALUE;
+        int maxValue = Integer.MIN_VALUE;
+        for (final TestBucket testBucket : testBuckets) {
+            minValue = Math.min(minValue, testBucket.getValue());
+            maxValue = Math.max(maxValue, testBucket.getValue());
+        }
+
+        final long span = (long) maxValue - minValue + 1;
+        if (span <= (long) MAX_SPARSENESS * testBuckets.size() + 8) {
+            final TestBucket[] bucketsByOffset = new TestBucket[(int) span];
+            for (final TestBucket testBucket : testBuckets) {
+                final int offset = testBucket.getValue() - minValue;
+                // keep the first bucket with the value, as a scan of the definition would
+                if (bucketsByOffset[offset] == null) {
+                    bucketsByOffset[offset] = testBucket;
+                }
+            }
+            return new TestBucketIndex(minValue, bucketsByOffset, null);
+        }
+
+        final TestBucket[] sortedBuckets = testBuckets.stream()
+                // stable sort keeps the first bucket with a value first
+                .sorted((a, b) -> Integer.compare(a.getValue(), b.getValue()))
+                .toArray(TestBucket[]::new);
+        final int[] sortedValues = new int[sortedBuckets.length];
+        for (int i = 0; i < sortedBuckets.length; i++) {
+            sortedValues[i] = sortedBuckets[i].getValue();
+        }
+        return new TestBucketIndex(minValue, sortedBuckets, sortedValues);
+    }
+
+    /**
+     * @return the bucket with the value, or null if the test has no such bucket
+     */
+    @CheckForNull
+    public TestBucket get(final int value) {
+        if (sortedValues == null) {
+            final long offset = (long) value - minValue;
+            return ((offset >= 0) && (offset < buckets.length)) ? buckets[(int) offset] : null;
+        }
+        int index = Arrays.binarySearch(sortedValues, value);
+        if (index < 0) {
+            return null;
+        }
+        // find the first of equal values
+        while ((index > 0) && (sortedValues[index - 1] == value)) {
+            index--;
+        }
+        return buckets[index];
+    }
+}
@@ -6,6 +6,7 @@ import com.indeed.proctor.common.model.TestBucket;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.el.ELContext;
 import java.io.PrintWriter;
 import java.util.Map;
 
@@ -16,6 +17,12 @@ interface TestChooser<IdentifierType> {
     @Nullable
     TestBucket getTestBucket(final int value);
 
+    /**
+     * @return lookup of the buckets of the test definition by value
+     */
+    @Nonnull
+    TestBucketIndex getTestBucketIndex();
+
     @Nonnull
     String[] getRules();
 
@@ -26,7 +33,16 @@ interface TestChooser<IdentifierType> {
     String getTestName();
 
     @Nonnull
-    TestChooser.Result choose(@Nullable IdentifierType identifier, @Nonnull Map<String, Object> values, @Nonnull Map<String, TestBucket> testGroups);
+    default TestChooser.Result choose(@Nullable final IdentifierType identifier, @Nonnull final Map<String, Object> values, @Nonnull final Map<String, TestBucket> testGroups) {
+        return choose(identifier, RuleEvaluator.createEvaluationContext(values), testGroups);
+    }
+
+    /**
+     * @param elContext a context created by {@link RuleEvaluator#createEvaluationContext(Map)},
+     *                  which can be shared by all tests determined for one request
+     */
+    @Nonnull
+    TestChooser.Result choose(@Nullable IdentifierType identifier, @Nonnull ELContext elContext, @Nonnull Map<String, TestBucket> testGroups);
 
     /**
      * Models a result of an assigned bucket and allocation by {@code TestChooser}.
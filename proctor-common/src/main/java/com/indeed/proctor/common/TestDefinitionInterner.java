@@ -0,0 +1,274 @@
+package com.indeed.proctor.common;
+
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.Payload;
+import com.indeed.proctor.common.model.Range;
+import com.indeed.proctor.common.model.TestBucket;
+import com.indeed.proctor.common.model.TestDependency;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates strings and value objects among test definitions of a test matrix,
+ * as definitions of a large test matrix share many bucket names, rules, ranges and allocations.
+ *
+ * Buckets, allocations and ranges of the given definitions are not modified but replaced by shared instances,
+ * so they should not be modified in place after interning.
+ * An instance is used for a single load, so that nothing is retained after the test matrix is discarded.
+ */
+final class TestDefinitionInterner {
+    // rough estimates of the retained size on a 64-bit JVM with compressed oops
+    private static final int STRING_BYTES = 40;
+    private static final int OBJECT_BYTES = 24;
+    private static final int LIST_BYTES = 40;
+    private static final int REFERENCE_BYTES = 4;
+
+    private final Map<String, String> strings = new HashMap<>();
+    private final Map<Object, Object> values = new HashMap<>();
+    private final Map<ListKey, List<?>> lists = new HashMap<>();
+    private long duplicateCount;
+    private long estimatedSavedBytes;
+
+    /**
+     * Interns all test definitions of the test matrix
+     */
+    void intern(@Nonnull final TestMatrixArtifact testMatrix) {
+        for (final ConsumableTestDefinition testDefinition : testMatrix.getTests().values()) {
+            if (testDefinition != null) {
+                intern(testDefinition);
+            }
+        }
+    }
+
+    /**
+     * Replaces strings and value objects of the test definition with shared instances
+     */
+    void intern(@Nonnull final ConsumableTestDefinition testDefinition) {
+        testDefinition.setVersion(intern(testDefinition.getVersion()));
+        testDefinition.setSalt(intern(testDefinition.getSalt()));
+        testDefinition.setRule(intern(testDefinition.getRule()));
+        testDefinition.setDescription(intern(testDefinition.getDescription()));
+
+        final List<String> metaTags = new ArrayList<>(testDefinition.getMetaTags().size());
+        for (final String metaTag : testDefinition.getMetaTags()) {
+            metaTags.add(intern(metaTag));
+        }
+        testDefinition.setMetaTags(internList(metaTags));
+
+        final TestDependency dependsOn = testDefinition.getDependsOn();
+        if (dependsOn != null) {
+            testDefinition.setDependsOn(internValue(dependsOn, () -> new TestDependency(
+                    intern(dependsOn.getTestName()), dependsOn.getBucketValue()), OBJECT_BYTES));
+        }
+
+        final List<TestBucket> buckets = new ArrayList<>(testDefinition.getBuckets().size());
+        for (final TestBucket bucket : testDefinition.getBuckets()) {
+            buckets.add(intern(bucket));
+        }
+        testDefinition.setBuckets(internList(buckets));
+
+        final List<Allocation> allocations = new ArrayList<>(testDefinition.getAllocations().size());
+        for (final Allocation allocation : testDefinition.getAllocations()) {
+            allocations.add(intern(allocation));
+        }
+        testDefinition.setAllocations(internList(allocations));
+    }
+
+    /**
+     * @return number of strings and objects replaced with a shared instance
+     */
+    long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    /**
+     * @return rough estimate of heap bytes saved by sharing instances
+     */
+    long getEstimatedSavedBytes() {
+        return estimatedSavedBytes;
+    }
+
+    @CheckForNull
+    String intern(@Nullable final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String interned = strings.putIfAbsent(value, value);
+        if (interned == null) {
+            return value;
+        }
+        if (interned != value) {
+            countDuplicate(STRING_BYTES + 2L * value.length());
+        }
+        return interned;
+    }
+
+    @Nonnull
+    private TestBucket intern(@Nonnull final TestBucket bucket) {
+        // TestBucket.equals only compares names
+        final Payload payload = (bucket.getPayload() == null)
+                ? null
+                : internValue(bucket.getPayload(), bucket::getPayload, OBJECT_BYTES + 8 * REFERENCE_BYTES);
+        final BucketKey key = new BucketKey(bucket.getName(), bucket.getValue(), bucket.getDescription(), payload);
+        final BucketKey interned = internValue(key, () -> new BucketKey(
+                intern(bucket.getName()),
+                bucket.getValue(),
+                intern(bucket.getDescription()),
+                payload
+        ), OBJECT_BYTES);
+        if (interned.bucket == null) {
+            interned.bucket = new TestBucket(interned.name, interned.value, interned.description, interned.payload);
+        }
+        return interned.bucket;
+    }
+
+    @Nonnull
+    private Allocation intern(@Nonnull final Allocation allocation) {
+        final List<Range> ranges = new ArrayList<>(allocation.getRanges().size());
+        for (final Range range : allocation.getRanges()) {
+            ranges.add(internValue(range, () -> range, OBJECT_BYTES));
+        }
+        final List<Range> internedRanges = internList(ranges);
+        return internValue(
+                new Allocation(allocation.getRule(), internedRanges, allocation.getId()),
+                () -> new Allocation(intern(allocation.getRule()), internedRanges, intern(allocation.getId())),
+                OBJECT_BYTES
+        );
+    }
+
+    /**
+     * @param list list of interned elements, compared by identity as TestBucket.equals only compares names
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private <T> List<T> internList(@Nonnull final List<T> list) {
+        final List<?> interned = lists.putIfAbsent(new ListKey(list), list);
+        if (interned == null) {
+            return list;
+        }
+        countDuplicate(LIST_BYTES + (long) REFERENCE_BYTES * list.size());
+        return (List<T>) interned;
+    }
+
+    /**
+     * @param key    value to look up an equal instance
+     * @param create creates the shared instance if no equal value is interned yet
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    private <T> T internValue(@Nonnull final T key, @Nonnull final Supplier<T> create, final long bytes) {
+        final Object interned = values.get(key);
+        if (interned != null) {
+            countDuplicate(bytes);
+            return (T) interned;
+        }
+        final T value = create.get();
+        values.put(value, value);
+        return value;
+    }
+
+    private void countDuplicate(final long bytes) {
+        duplicateCount++;
+        estimatedSavedBytes += bytes;
+    }
+
+    /**
+     * Key of a list of interned elements
+     */
+    private static final class ListKey {
+        @Nonnull
+        private final List<?> elements;
+        private final int hashCode;
+
+        private ListKey(@Nonnull final List<?> elements) {
+            this.elements = elements;
+            int hashCode = 1;
+            for (final Object element : elements) {
+                hashCode = 31 * hashCode + System.identityHashCode(element);
+            }
+            this.hashCode = hashCode;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            final List<?> other = ((ListKey) o).elements;
+            if (elements.size() != other.size()) {
+                return false;
+            }
+            for (int i = 0; i < elements.size(); i++) {
+                if (elements.get(i) != other.get(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public int hashCode() {
+            return hashCode;
+        }
+    }
+
+    /**
+     * Key for all fields of a bucket and its shared instance
+     */
+    private static final class BucketKey {
+        @Nullable
+        private final String name;
+        private final int value;
+        @Nullable
+        private final String description;
+        @Nullable
+        private final Payload payload;
+        @Nullable
+        private TestBucket bucket;
+
+        private BucketKey(
+                @Nullable final String name,
+                final int value,
+                @Nullable final String description,
+                @Nullable final Payload payload
+        ) {
+            this.name = name;
+            this.value = value;
+            this.description = description;
+            this.payload = payload;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if (this == o) {
+                return true;
+            }
+            if ((o == null) || (getClass() != o.getClass())) {
+                return false;
+            }
+            final BucketKey that = (BucketKey) o;
+            return (value == that.value)
+                    && Objects.equals(name, that.name)
+                    && Objects.equals(description, that.description)
+                    && Objects.equals(payload, that.payload);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, value, description, payload);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package com.indeed.proctor.common;
+
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.TestBucket;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Logged forms of the groups of a test, rendered once per test when a {@link Proctor} is constructed,
+ * so that logging appends whole strings instead of formatting each group for each request.
+ *
+ * Forms are [test name + bucket value], e.g. "bgcolortst1",
+ * and [allocation id + ":" + test name + bucket value], e.g. "#A1:bgcolortst1",
+ * for all buckets and allocations of the test definition.
+ */
+public final class TestGroupStrings {
+    public static final char ALLOCATION_GROUP_SEPARATOR = ':';
+
+    @Nonnull
+    private final int[] bucketValues;
+    /**
+     * test name + bucket value, by position in bucketValues
+     */
+    @Nonnull
+    private final String[] testGroups;
+    @Nonnull
+    private final String[] allocationIds;
+    /**
+     * allocation id + ":" + test name + bucket value, by position in allocationIds and in bucketValues
+     */
+    @Nonnull
+    private final String[][] testGroupsWithAllocations;
+
+    private TestGroupStrings(
+            @Nonnull final int[] bucketValues,
+            @Nonnull final String[] testGroups,
+            @Nonnull final String[] allocationIds,
+            @Nonnull final String[][] testGroupsWithAllocations
+    ) {
+        this.bucketValues = bucketValues;
+        this.testGroups = testGroups;
+        this.allocationIds = allocationIds;
+        this.testGroupsWithAllocations = testGroupsWithAllocations;
+    }
+
+    @Nonnull
+    public static TestGroupStrings of(@Nonnull final String testName, @Nonnull final ConsumableTestDefinition testDefinition) {
+        final List<Integer> distinctValues = new ArrayList<>();
+        if (testDefinition.getBuckets() != null) {
+            for (final TestBucket testBucket : testDefinition.getBuckets()) {
+                if (!distinctValues.contains(testBucket.getValue())) {
+                    distinctValues.add(testBucket.getValue());
+                }
+            }
+        }
+        final int[] bucketValues = distinctValues.stream().mapToInt(Integer::intValue).toArray();
+        final String[] testGroups = new String[bucketValues.length];
+        for (int i = 0; i < bucketValues.length; i++) {
+            testGroups[i] = testName + bucketValues[i];
+        }
+
+        final List<String> distinctIds = new ArrayList<>();
+        if (testDefinition.getAllocations() != null) {
+            for (final Allocation allocation : testDefinition.getAllocations()) {
+                final String id = allocation.getId();
+                // empty ids are not logged
+                if ((id != null) && !id.isEmpty() && !distinctIds.contains(id)) {
+                    distinctIds.add(id);
+                }
+            }
+        }
+        final String[] allocationIds = distinctIds.toArray(new String[0]);
+        final String[][] testGroupsWithAllocations = new String[allocationIds.length][bucketValues.length];
+        for (int i = 0; i < allocationIds.length; i++) {
+            for (int j = 0; j < bucketValues.length; j++) {
+                testGroupsWithAllocations[i][j] = allocationIds[i] + ALLOCATION_GROUP_SEPARATOR + testGroups[j];
+            }
+        }
+        return new TestGroupStrings(bucketValues, testGroups, allocationIds, testGroupsWithAllocations);
+    }
+
+    /**
+     * @return test name + bucket value, or null if the test definition has no bucket with the value
+     */
+    @CheckForNull
+    public String getTestGroup(final int bucketValue) {
+        final int position = getPosition(bucketValue);
+        return (position < 0) ? null : testGroups[position];
+    }
+
+    /**
+     * @return allocation id + ":" + test name + bucket value,
+     * or null if the test definition has no such allocation id or no bucket with the value
+     */
+    @CheckForNull
+    public String getTestGroupWithAllocation(@Nonnull final String allocationId, final int bucketValue) {
+        final int position = getPosition(bucketValue);
+        if (position < 0) {
+            return null;
+        }
+        // only a few allocations per test
+        for (int i = 0; i < allocationIds.length; i++) {
+            if (allocationIds[i].equals(allocationId)) {
+                return testGroupsWithAllocations[i][position];
+            }
+        }
+        return null;
+    }
+
+    private int getPosition(final int bucketValue) {
+        // only a few buckets per test
+        for (int i = 0; i < bucketValues.length; i++) {
+            if (bucketValues[i] == bucketValue) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
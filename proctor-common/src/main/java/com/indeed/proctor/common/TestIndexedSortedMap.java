@@ -0,0 +1,351 @@
+package com.indeed.proctor.common;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * A sorted map from test names to non-null values, stored in an array indexed by the ordinals of a {@link TestNameIndex}.
+ * Values can be looked up by ordinal without any comparison of test names.
+ *
+ * For compatibility with clients modifying maps of a {@link ProctorResult}, the map stays modifiable:
+ * modifications that cannot be stored in the array (e.g. unknown test names, null values, sub map views)
+ * copy all entries into a {@link TreeMap} that backs this map from then on.
+ *
+ * Values can be determined on demand by a {@link LazyEvaluation}: looking up a test evaluates only that test,
+ * and any other access (e.g. iteration, size, modification) evaluates all tests first.
+ *
+ * Not thread-safe, even for reads if values are determined on demand.
+ */
+class TestIndexedSortedMap<V> extends AbstractMap<String, V> implements SortedMap<String, V> {
+    @Nonnull
+    private final TestNameIndex testNameIndex;
+    @CheckForNull
+    private V[] values;
+    private int size;
+    private int modCount;
+    @CheckForNull
+    private TreeMap<String, V> delegate;
+    /**
+     * determines values on demand, null once all values are determined
+     */
+    @CheckForNull
+    private LazyEvaluation lazyEvaluation;
+
+    /**
+     * Determines values of tests on demand, by {@link #setEvaluated(int, Object)}
+     */
+    interface LazyEvaluation {
+        /**
+         * Determines the value of the test if not done yet
+         */
+        void evaluate(int ordinal);
+
+        /**
+         * Determines values of all tests not determined yet, then calls {@link #finishLazyEvaluation()}
+         */
+        void evaluateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    TestIndexedSortedMap(@Nonnull final TestNameIndex testNameIndex) {
+        this.testNameIndex = testNameIndex;
+        this.values = (V[]) new Object[testNameIndex.size()];
+    }
+
+    void setLazyEvaluation(@Nonnull final LazyEvaluation lazyEvaluation) {
+        this.lazyEvaluation = lazyEvaluation;
+    }
+
+    void finishLazyEvaluation() {
+        lazyEvaluation = null;
+    }
+
+    /**
+     * Stores a value determined by {@link LazyEvaluation}, without evaluating other tests
+     */
+    void setEvaluated(final int ordinal, @Nonnull final V value) {
+        if (values[ordinal] == null) {
+            size++;
+            modCount++;
+        }
+        values[ordinal] = value;
+    }
+
+    private void evaluate(final int ordinal) {
+        if ((lazyEvaluation != null) && (ordinal >= 0)) {
+            lazyEvaluation.evaluate(ordinal);
+        }
+    }
+
+    private void evaluateAll() {
+        if (lazyEvaluation != null) {
+            lazyEvaluation.evaluateAll();
+        }
+    }
+
+    @Nonnull
+    TestNameIndex getTestNameIndex() {
+        return testNameIndex;
+    }
+
+    /**
+     * @param ordinal an ordinal of {@link #getTestNameIndex()}
+     */
+    @CheckForNull
+    V getByOrdinal(final int ordinal) {
+        evaluate(ordinal);
+        if (delegate != null) {
+            return delegate.get(testNameIndex.getTestName(ordinal));
+        }
+        return values[ordinal];
+    }
+
+    private int getOrdinal(final Object key) {
+        return (key instanceof String) ? testNameIndex.getOrdinal((String) key) : -1;
+    }
+
+    @Override
+    public int size() {
+        evaluateAll();
+        return (delegate != null) ? delegate.size() : size;
+    }
+
+    @Override
+    public boolean containsKey(final Object key) {
+        if (delegate != null) {
+            return delegate.containsKey(key);
+        }
+        return get(key) != null;
+    }
+
+    @Override
+    public V get(final Object key) {
+        if (delegate != null) {
+            return delegate.get(key);
+        }
+        final int ordinal = getOrdinal(key);
+        evaluate(ordinal);
+        return (ordinal < 0) ? null : values[ordinal];
+    }
+
+    @Override
+    public V put(final String key, final V value) {
+        evaluateAll();
+        final int ordinal = getOrdinal(key);
+        if ((delegate != null) || (ordinal < 0) || (value == null)) {
+            return toTreeMap().put(key, value);
+        }
+        final V previous = values[ordinal];
+        if (previous == null) {
+            size++;
+            modCount++;
+        }
+        values[ordinal] = value;
+        return previous;
+    }
+
+    @Override
+    public V remove(final Object key) {
+        evaluateAll();
+        if (delegate != null) {
+            return delegate.remove(key);
+        }
+        final int ordinal = getOrdinal(key);
+        return (ordinal < 0) ? null : removeOrdinal(ordinal);
+    }
+
+    private V removeOrdinal(final int ordinal) {
+        final V previous = values[ordinal];
+        if (previous != null) {
+            values[ordinal] = null;
+            size--;
+            modCount++;
+        }
+        return previous;
+    }
+
+    @Override
+    public void clear() {
+        evaluateAll();
+        if (delegate != null) {
+            delegate.clear();
+        } else {
+            Arrays.fill(values, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    @Override
+    public Comparator<? super String> comparator() {
+        // natural ordering, same as ordinals
+        return null;
+    }
+
+    @Override
+    public String firstKey() {
+        evaluateAll();
+        if (delegate != null) {
+            return delegate.firstKey();
+        }
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                return testNameIndex.getTestName(i);
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public String lastKey() {
+        evaluateAll();
+        if (delegate != null) {
+            return delegate.lastKey();
+        }
+        for (int i = values.length - 1; i >= 0; i--) {
+            if (values[i] != null) {
+                return testNameIndex.getTestName(i);
+            }
+        }
+        throw new NoSuchElementException();
+    }
+
+    @Override
+    public SortedMap<String, V> subMap(final String fromKey, final String toKey) {
+        return toTreeMap().subMap(fromKey, toKey);
+    }
+
+    @Override
+    public SortedMap<String, V> headMap(final String toKey) {
+        return toTreeMap().headMap(toKey);
+    }
+
+    @Override
+    public SortedMap<String, V> tailMap(final String fromKey) {
+        return toTreeMap().tailMap(fromKey);
+    }
+
+    @Override
+    public Set<Entry<String, V>> entrySet() {
+        evaluateAll();
+        if (delegate != null) {
+            return delegate.entrySet();
+        }
+        return new EntrySet();
+    }
+
+    @Nonnull
+    private TreeMap<String, V> toTreeMap() {
+        evaluateAll();
+        if (delegate == null) {
+            final TreeMap<String, V> treeMap = new TreeMap<>();
+            for (int i = 0; i < values.length; i++) {
+                if (values[i] != null) {
+                    treeMap.put(testNameIndex.getTestName(i), values[i]);
+                }
+            }
+            delegate = treeMap;
+            values = null;
+            modCount++;
+        }
+        return delegate;
+    }
+
+    private class EntrySet extends AbstractSet<Entry<String, V>> {
+        @Override
+        public Iterator<Entry<String, V>> iterator() {
+            if (delegate != null) {
+                return delegate.entrySet().iterator();
+            }
+            return new EntryIterator();
+        }
+
+        @Override
+        public int size() {
+            return TestIndexedSortedMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            TestIndexedSortedMap.this.clear();
+        }
+    }
+
+    private class EntryIterator implements Iterator<Entry<String, V>> {
+        private int expectedModCount = modCount;
+        private int next = findNext(0);
+        private int last = -1;
+
+        private int findNext(final int from) {
+            int i = from;
+            while ((i < values.length) && (values[i] == null)) {
+                i++;
+            }
+            return i;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next < testNameIndex.size();
+        }
+
+        @Override
+        public Entry<String, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = next;
+            next = findNext(next + 1);
+            return new OrdinalEntry(last);
+        }
+
+        @Override
+        public void remove() {
+            if (last < 0) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeOrdinal(last);
+            expectedModCount = modCount;
+            last = -1;
+        }
+    }
+
+    private class OrdinalEntry extends SimpleEntry<String, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int ordinal;
+
+        private OrdinalEntry(final int ordinal) {
+            super(testNameIndex.getTestName(ordinal), values[ordinal]);
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public V setValue(final V value) {
+            if (value == null) {
+                throw new NullPointerException("Test groups cannot be set to null");
+            }
+            if (values == null) {
+                throw new ConcurrentModificationException();
+            }
+            values[ordinal] = value;
+            return super.setValue(value);
+        }
+    }
+}
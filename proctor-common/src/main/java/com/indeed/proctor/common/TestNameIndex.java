@@ -0,0 +1,96 @@
+package com.indeed.proctor.common;
+
+import javax.annotation.Nonnull;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Assigns an ordinal to each test of a test matrix, in the natural order of test names,
+ * so that the results of determining test groups can be stored in arrays indexed by ordinal.
+ *
+ * Each {@link Proctor} has its own index, so ordinals must not be reused across reloads of the test matrix,
+ * compare indices by identity to detect that.
+ */
+public final class TestNameIndex {
+    static final TestNameIndex EMPTY = new TestNameIndex(new String[0]);
+
+    @Nonnull
+    private final String[] testNames;
+    @Nonnull
+    private final Map<String, Integer> ordinals;
+    /**
+     * ordinals of lists of test names by their owner, see {@link #getOrdinals(Object, String[])}
+     */
+    private final ConcurrentMap<Object, int[]> resolvedOrdinals = new ConcurrentHashMap<>();
+
+    private TestNameIndex(@Nonnull final String[] testNames) {
+        this.testNames = testNames;
+        this.ordinals = new HashMap<>(testNames.length * 2);
+        for (int i = 0; i < testNames.length; i++) {
+            ordinals.put(testNames[i], i);
+        }
+    }
+
+    @Nonnull
+    static TestNameIndex of(@Nonnull final Collection<String> testNames) {
+        final String[] sortedTestNames = testNames.stream().distinct().sorted().toArray(String[]::new);
+        return new TestNameIndex(sortedTestNames);
+    }
+
+    /**
+     * @return the number of tests, ordinals range from 0 (inclusive) to size (exclusive)
+     */
+    public int size() {
+        return testNames.length;
+    }
+
+    /**
+     * @return the ordinal of the test, or -1 if the test is not in this index
+     */
+    public int getOrdinal(@Nonnull final String testName) {
+        final Integer ordinal = ordinals.get(testName);
+        return (ordinal == null) ? -1 : ordinal;
+    }
+
+    /**
+     * Ordinals of the test names, resolved once per owner for this index,
+     * e.g. for the tests of a generated groups class while results of several indices are in use.
+     *
+     * @param owner identifies the test names, e.g. the object listing them, which should not override equals().
+     *              Kept as long as this index.
+     * @return the ordinal of each test name, or -1 for test names not in this index. Must not be modified.
+     */
+    @Nonnull
+    public int[] getOrdinals(@Nonnull final Object owner, @Nonnull final String[] testNames) {
+        final int[] cached = resolvedOrdinals.get(owner);
+        if (cached != null) {
+            return cached;
+        }
+        return resolvedOrdinals.computeIfAbsent(owner, key -> {
+            final int[] resolved = new int[testNames.length];
+            for (int i = 0; i < testNames.length; i++) {
+                resolved[i] = getOrdinal(testNames[i]);
+            }
+            return resolved;
+        });
+    }
+
+    @Nonnull
+    public String getTestName(final int ordinal) {
+        return testNames[ordinal];
+    }
+
+    /**
+     * @return all test names in the order of their ordinals
+     */
+    @Nonnull
+    public List<String> getTestNames() {
+        return Collections.unmodifiableList(Arrays.asList(testNames));
+    }
+}
@@ -1,6 +1,8 @@
 package com.indeed.proctor.common;
 
 import com.google.common.collect.Maps;
+import com.indeed.proctor.common.RuleEvaluator.PreparedRule;
+import com.indeed.proctor.common.el.ContextVariableExpression;
 import com.indeed.proctor.common.model.Allocation;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
 import com.indeed.proctor.common.model.Range;
@@ -11,16 +13,20 @@ import org.apache.logging.log4j.Logger;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
-import javax.annotation.Nullable;
+import javax.el.ELContext;
 import javax.el.ExpressionFactory;
 import javax.el.FunctionMapper;
 import java.io.PrintWriter;
 import java.text.NumberFormat;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * This is perhaps not the greatest abstraction the world has seen; is meant to consolidate common functionality needed for different types of choosers WITHOUT using inheritance
@@ -29,6 +35,7 @@ import java.util.Map.Entry;
  */
 public class TestRangeSelector {
     private static final Logger LOGGER = LogManager.getLogger(TestRangeSelector.class);
+    private static final long ABSENT_VARIABLE_LOG_INTERVAL_MILLIS = TimeUnit.MINUTES.toMillis(1);
 
     @Nonnull
     private final String testName;
@@ -37,8 +44,16 @@ public class TestRangeSelector {
     @Nonnull
     private final String[] rules;
     @Nonnull
+    private final PreparedRule testRule;
+    @Nonnull
+    private final PreparedRule[] allocationRules;
+    @Nonnull
     private final TestBucket[][] rangeToBucket;
+    @Nonnull
+    private final TestBucketIndex bucketIndex;
     private final RuleEvaluator ruleEvaluator;
+    private final LongAdder absentVariableSkipCount = new LongAdder();
+    private final AtomicLong nextAbsentVariableLogMillis = new AtomicLong();
 
     TestRangeSelector(@Nonnull final ExpressionFactory expressionFactory, @Nonnull final FunctionMapper functionMapper, final String testName, @Nonnull final ConsumableTestDefinition testDefinition) {
         this(new RuleEvaluator(expressionFactory, functionMapper, testDefinition.getConstants()), testName, testDefinition);
@@ -53,18 +68,24 @@ public class TestRangeSelector {
 
         this.testName = testName;
         this.testDefinition = testDefinition;
+        this.bucketIndex = TestBucketIndex.of(testDefinition.getBuckets());
 
         final Map<Integer, TestBucket> bucketValueToTest = Maps.newHashMap();
         for (final TestBucket testBucket : testDefinition.getBuckets()) {
             bucketValueToTest.put(testBucket.getValue(), testBucket);
         }
 
+        // parse rules once here instead of on every evaluation
+        this.testRule = ruleEvaluator.prepareBooleanRule(testDefinition.getRule());
+
         final List<Allocation> allocations = testDefinition.getAllocations();
         this.rangeToBucket = new TestBucket[allocations.size()][];
         this.rules = new String[allocations.size()];
+        this.allocationRules = new PreparedRule[allocations.size()];
         for (int i = 0; i < allocations.size(); i++) {
             final Allocation allocation = allocations.get(i);
             rules[i] = allocation.getRule();
+            allocationRules[i] = ruleEvaluator.prepareBooleanRule(allocation.getRule());
             final List<Range> ranges = allocation.getRanges();
             this.rangeToBucket[i] = new TestBucket[ranges.size()];
             for (int j = 0; j < ranges.size(); j++) {
@@ -78,6 +99,14 @@ public class TestRangeSelector {
     }
 
     public int findMatchingRule(@Nonnull final Map<String, Object> values, @Nonnull final Map<String, TestBucket> testGroups) {
+        return findMatchingRule(RuleEvaluator.createEvaluationContext(values), testGroups);
+    }
+
+    /**
+     * @param elContext a context created by {@link RuleEvaluator#createEvaluationContext(Map)}
+     * @return index of the first matching allocation, or -1 if the test rule or no allocation rule matched
+     */
+    public int findMatchingRule(@Nonnull final ELContext elContext, @Nonnull final Map<String, TestBucket> testGroups) {
         final TestDependency dependsOn = testDefinition.getDependsOn();
         if (dependsOn != null) {
             final TestBucket testBucket = testGroups.get(dependsOn.getTestName());
@@ -86,36 +115,77 @@ public class TestRangeSelector {
             }
         }
 
+        @SuppressWarnings("unchecked")
+        final Map<TestRangeSelector, Integer> memo = (Map<TestRangeSelector, Integer>) elContext.getContext(TestRangeSelector.class);
+        if (memo == null) {
+            return evaluateRules(elContext);
+        }
+        return memo.computeIfAbsent(this, selector -> selector.evaluateRules(elContext));
+    }
+
+    /**
+     * Makes test range selectors evaluate their rules against the given context only once,
+     * for a context used to determine the groups of many clients.
+     */
+    static void memoizeMatchingRules(@Nonnull final ELContext elContext) {
+        elContext.putContext(TestRangeSelector.class, new IdentityHashMap<TestRangeSelector, Integer>());
+    }
+
+    private int evaluateRules(@Nonnull final ELContext elContext) {
+        final Map<String, Object> values = ContextVariableExpression.getValues(elContext);
+        PreparedRule rule = testRule;
         try {
-            @Nullable final String rule = testDefinition.getRule();
-            if (rule != null) {
-                if (! evaluateRule(rule, values)) {
-                    return -1;
-                }
+            // evaluation of a rule without its variables fails, which fails the test
+            if (hasAbsentVariable(testRule, values) || ! ruleEvaluator.evaluateBooleanRule(testRule, elContext)) {
+                return -1;
             }
 
-            for (int i = 0; i < rules.length; i++) {
-                if (evaluateRule(rules[i], values)) {
+            for (int i = 0; i < allocationRules.length; i++) {
+                rule = allocationRules[i];
+                if (hasAbsentVariable(rule, values)) {
+                    return -1;
+                }
+                if (ruleEvaluator.evaluateBooleanRule(rule, elContext)) {
                     return i;
                 }
             }
 
-        } catch (InvalidRuleException e) {
-            LOGGER.error("Failed to evaluate test rules; ", e);
+        } catch (final RuntimeException e) {
+            // failing evaluation and continuing
+            EvaluationErrorReporter.getInstance().reportRuleEvaluationError(testName, rule.getRule(), e);
         }
 
         return -1;
     }
 
-    private boolean evaluateRule(final String rule, @Nonnull final Map<String, Object> values) throws InvalidRuleException {
-        try {
-            return ruleEvaluator.evaluateBooleanRule(rule, values);
-
-        } catch (final RuntimeException e) {
-            throw new InvalidRuleException(e, String.format(
-                    "Error evaluating rule '%s' for test '%s': '%s'. Failing evaluation and continuing.",
-                    rule, testName, e.getMessage()));
+    /**
+     * Counts skipped evaluations instead of logging each failure, as callers commonly omit variables of some tests
+     */
+    private boolean hasAbsentVariable(@Nonnull final PreparedRule rule, @Nonnull final Map<String, Object> values) {
+        final String absentVariable = rule.findAbsentVariable(values);
+        if (absentVariable == null) {
+            return false;
+        }
+        if (!EvaluationCounting.isCounted()) {
+            return true;
         }
+        absentVariableSkipCount.increment();
+        EvaluationStats.getInstance().recordAbsentVariableSkip();
+        final long now = System.currentTimeMillis();
+        final long nextLogMillis = nextAbsentVariableLogMillis.get();
+        if ((now >= nextLogMillis) && nextAbsentVariableLogMillis.compareAndSet(nextLogMillis, now + ABSENT_VARIABLE_LOG_INTERVAL_MILLIS)) {
+            LOGGER.warn("Skipped evaluating rule '" + rule.getRule() + "' for test '" + testName
+                    + "' without variable '" + absentVariable + "' in the context, "
+                    + absentVariableSkipCount.sum() + " evaluations of the test skipped so far");
+        }
+        return true;
+    }
+
+    /**
+     * @return number of times rules of this test were not evaluated because a variable was absent from the context
+     */
+    public long getAbsentVariableSkipCount() {
+        return absentVariableSkipCount.sum();
     }
 
     @Nonnull
@@ -137,12 +207,12 @@ public class TestRangeSelector {
      */
     @CheckForNull
     public TestBucket getTestBucket(final int value) {
-        for (final TestBucket testBucket : testDefinition.getBuckets()) {
-            if (testBucket.getValue() == value) {
-                return testBucket;
-            }
-        }
-        return null;
+        return bucketIndex.get(value);
+    }
+
+    @Nonnull
+    public TestBucketIndex getTestBucketIndex() {
+        return bucketIndex;
     }
 
     @Nonnull
@@ -4,22 +4,39 @@ import com.indeed.proctor.common.model.TestMatrixArtifact;
 
 import javax.annotation.CheckForNull;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.el.FunctionMapper;
 import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.net.URLConnection;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Support class for loading a test matrix artifact from a URL-based JSON file
+ *
+ * For http(s) URLs, the ETag or Last-Modified of the last loaded test matrix is sent
+ * as a conditional request, so that an unchanged test matrix is not downloaded again (304 Not Modified),
+ * and the test matrix is accepted in gzip or deflate encoding.
  * @author jack
  */
 public class UrlProctorLoader extends AbstractJsonProctorLoader {
+    private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(30);
+    private static final int DEFAULT_READ_TIMEOUT_MILLIS = (int) TimeUnit.SECONDS.toMillis(60);
+
     @Nonnull
     private final URL inputURL;
 
+    private int connectTimeoutMillis = DEFAULT_CONNECT_TIMEOUT_MILLIS;
+    private int readTimeoutMillis = DEFAULT_READ_TIMEOUT_MILLIS;
+
     public UrlProctorLoader(@Nonnull final ProctorSpecification specification, @Nonnull final String inputUrl) throws MalformedURLException {
         this(specification, new URL(inputUrl));
     }
@@ -37,6 +54,20 @@ public class UrlProctorLoader extends AbstractJsonProctorLoader {
         this.inputURL = inputUrl;
     }
 
+    /**
+     * @param connectTimeoutMillis timeout to connect to the URL, 0 for no timeout
+     */
+    public void setConnectTimeoutMillis(final int connectTimeoutMillis) {
+        this.connectTimeoutMillis = connectTimeoutMillis;
+    }
+
+    /**
+     * @param readTimeoutMillis timeout to wait for data from the URL, 0 for no timeout
+     */
+    public void setReadTimeoutMillis(final int readTimeoutMillis) {
+        this.readTimeoutMillis = readTimeoutMillis;
+    }
+
     @Nonnull
     @Override
     protected String getSource() {
@@ -46,8 +77,83 @@ public class UrlProctorLoader extends AbstractJsonProctorLoader {
     @CheckForNull
     @Override
     protected TestMatrixArtifact loadTestMatrix() throws IOException {
-        try (Reader reader = new BufferedReader(new InputStreamReader(inputURL.openStream()))) {
-            return loadJsonTestMatrix(reader);
+        final URLConnection connection = inputURL.openConnection();
+        connection.setConnectTimeout(connectTimeoutMillis);
+        connection.setReadTimeout(readTimeoutMillis);
+        if (!(connection instanceof HttpURLConnection)) {
+            try (Reader reader = new BufferedReader(new InputStreamReader(connection.getInputStream()))) {
+                return loadJsonTestMatrix(reader);
+            }
+        }
+
+        final HttpURLConnection httpConnection = (HttpURLConnection) connection;
+        httpConnection.setRequestProperty("Accept-Encoding", "gzip, deflate");
+        final CacheValidators validators = getLoadedValidators();
+        if (validators != null) {
+            if (validators.etag != null) {
+                httpConnection.setRequestProperty("If-None-Match", validators.etag);
+            }
+            if (validators.lastModified != null) {
+                httpConnection.setRequestProperty("If-Modified-Since", validators.lastModified);
+            }
+        }
+
+        // streams are closed instead of disconnecting, so that the connection is kept alive for the next poll
+        try {
+            if (httpConnection.getResponseCode() == HttpURLConnection.HTTP_NOT_MODIFIED) {
+                httpConnection.getInputStream().close();
+                setLoadingSourceValidators(validators);
+                return createLastAuditTestMatrix();
+            }
+            final CacheValidators newValidators = new CacheValidators(
+                    httpConnection.getHeaderField("ETag"),
+                    httpConnection.getHeaderField("Last-Modified")
+            );
+            if ((newValidators.etag != null) || (newValidators.lastModified != null)) {
+                setLoadingSourceValidators(newValidators);
+            }
+            try (Reader reader = new BufferedReader(new InputStreamReader(decode(httpConnection)))) {
+                return loadJsonTestMatrix(reader);
+            }
+        } catch (final IOException e) {
+            final InputStream errorStream = httpConnection.getErrorStream();
+            if (errorStream != null) {
+                errorStream.close();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return validators of the response of the loaded test matrix to send, if any
+     */
+    @CheckForNull
+    private CacheValidators getLoadedValidators() {
+        final Object validators = getLoadedSourceValidators();
+        return (validators instanceof CacheValidators) ? (CacheValidators) validators : null;
+    }
+
+    @Nonnull
+    private static InputStream decode(@Nonnull final HttpURLConnection connection) throws IOException {
+        final InputStream inputStream = connection.getInputStream();
+        final String contentEncoding = connection.getContentEncoding();
+        if ("gzip".equalsIgnoreCase(contentEncoding)) {
+            return new GZIPInputStream(inputStream);
+        } else if ("deflate".equalsIgnoreCase(contentEncoding)) {
+            return new InflaterInputStream(inputStream);
+        }
+        return inputStream;
+    }
+
+    private static class CacheValidators {
+        @Nullable
+        private final String etag;
+        @Nullable
+        private final String lastModified;
+
+        CacheValidators(@Nullable final String etag, @Nullable final String lastModified) {
+            this.etag = etag;
+            this.lastModified = lastModified;
         }
     }
 }
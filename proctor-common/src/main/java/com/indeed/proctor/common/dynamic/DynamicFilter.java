@@ -17,4 +17,14 @@ public interface DynamicFilter {
      * @return true if the testname or the definition match the filter
      */
     boolean matches(@Nullable final String testName, final ConsumableTestDefinition testDefinition);
+
+    /**
+     * Loaders skip deserializing definitions of tests unless a filter requires them.
+     *
+     * @return false if {@link #matches(String, ConsumableTestDefinition)} only depends on the test name,
+     * and can be called with a null definition
+     */
+    default boolean requiresTestDefinition() {
+        return true;
+    }
 }
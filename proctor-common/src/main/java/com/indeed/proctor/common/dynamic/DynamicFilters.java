@@ -88,6 +88,23 @@ public class DynamicFilters implements JsonSerializable {
         );
     }
 
+    /**
+     * @return true if any filter matches the test name without its definition
+     */
+    public final boolean matchesTestName(@Nullable final String testName) {
+        return filters.stream().anyMatch(
+                filter -> !filter.requiresTestDefinition() && filter.matches(testName, null)
+        );
+    }
+
+    /**
+     * @return true if any filter needs test definitions to match tests,
+     * otherwise tests can be determined by {@link #matchesTestName(String)}
+     */
+    public boolean requiresTestDefinition() {
+        return filters.stream().anyMatch(DynamicFilter::requiresTestDefinition);
+    }
+
     /**
      * @return unmodifiable view of underlying dynamic filters
      */
@@ -18,4 +18,9 @@ public class MatchAllFilter implements DynamicFilter {
         return true;
     }
 
+    @Override
+    public boolean requiresTestDefinition() {
+        return false;
+    }
+
 }
@@ -46,6 +46,11 @@ public class TestNamePatternFilter implements DynamicFilter {
         return !Strings.isNullOrEmpty(testName) && pattern.matcher(testName).matches();
     }
 
+    @Override
+    public boolean requiresTestDefinition() {
+        return false;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -39,6 +39,11 @@ public class TestNamePrefixFilter implements DynamicFilter {
         return !Strings.isNullOrEmpty(testName) && testName.startsWith(prefix);
     }
 
+    @Override
+    public boolean requiresTestDefinition() {
+        return false;
+    }
+
     @Override
     public boolean equals(final Object o) {
         if (this == o) {
@@ -0,0 +1,103 @@
+package com.indeed.proctor.common.el;
+
+import org.apache.el.util.MessageFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.el.ELContext;
+import javax.el.PropertyNotFoundException;
+import javax.el.PropertyNotWritableException;
+import javax.el.ValueExpression;
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * A variable of a parsed expression that is looked up in the values bound to the {@link ELContext}
+ * at the time of evaluation, instead of being fixed at the time of parsing.
+ *
+ * The values are provided by {@link ELContext#getContext(Class)} for the key {@code ContextVariableExpression.class}.
+ * A variable absent from the values fails evaluation the same way as an unresolvable identifier.
+ */
+public class ContextVariableExpression extends ValueExpression {
+    private static final long serialVersionUID = 1L;
+
+    @Nonnull
+    private final String name;
+
+    public ContextVariableExpression(@Nonnull final String name) {
+        this.name = name;
+    }
+
+    @Nullable
+    @Override
+    public Object getValue(final ELContext context) {
+        return getValue(getValues(context), name);
+    }
+
+    /**
+     * Looks up a variable the same way as evaluating a {@link ContextVariableExpression}
+     */
+    @Nullable
+    public static Object getValue(@Nonnull final Map<String, Object> values, @Nonnull final String name) {
+        final Object value = values.get(name);
+        if ((value == null) && !values.containsKey(name)) {
+            throw new PropertyNotFoundException(MessageFactory.get("error.resolver.unhandled.null", name));
+        }
+        return value;
+    }
+
+    /**
+     * Same as the type of a literal value expression
+     */
+    @Nullable
+    @Override
+    public Class<?> getType(final ELContext context) {
+        final Object value = getValue(context);
+        return (value == null) ? null : value.getClass();
+    }
+
+    @Override
+    public void setValue(final ELContext context, final Object value) {
+        throw new PropertyNotWritableException("Setting variables is not allowed");
+    }
+
+    @Override
+    public boolean isReadOnly(final ELContext context) {
+        return true;
+    }
+
+    @Override
+    public Class<?> getExpectedType() {
+        return Object.class;
+    }
+
+    @Override
+    public String getExpressionString() {
+        return name;
+    }
+
+    @Override
+    public boolean isLiteralText() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(final Object o) {
+        return (o instanceof ContextVariableExpression) && name.equals(((ContextVariableExpression) o).name);
+    }
+
+    @Override
+    public int hashCode() {
+        return name.hashCode();
+    }
+
+    /**
+     * @return the values bound to the context for evaluating variables
+     */
+    @Nonnull
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> getValues(@Nonnull final ELContext context) {
+        final Map<String, Object> values = (Map<String, Object>) context.getContext(ContextVariableExpression.class);
+        return (values == null) ? Collections.emptyMap() : values;
+    }
+}
@@ -0,0 +1,36 @@
+package com.indeed.proctor.common.el;
+
+import javax.annotation.Nonnull;
+import javax.el.ValueExpression;
+import javax.el.VariableMapper;
+import java.util.Map;
+
+/**
+ * Provides services for the Unified Expression Language to look up variables when parsing an expression.
+ * Variables in the given constants are bound immediately, all others are bound as {@link ContextVariableExpression}
+ * and resolved each time the parsed expression is evaluated.
+ */
+public class DeferredVariableMapper extends VariableMapper {
+    @Nonnull
+    private final Map<String, ValueExpression> constants;
+
+    public DeferredVariableMapper(@Nonnull final Map<String, ValueExpression> constants) {
+        this.constants = constants;
+    }
+
+    @Nonnull
+    @Override
+    public ValueExpression resolveVariable(final String name) {
+        final ValueExpression constant = constants.get(name);
+        if (constant != null) {
+            return constant;
+        }
+        return new ContextVariableExpression(name);
+    }
+
+    @Nonnull
+    @Override
+    public ValueExpression setVariable(final String name, final ValueExpression expression) {
+        throw new IllegalStateException("Setting variables is not allowed");
+    }
+}
@@ -2,9 +2,32 @@ package com.indeed.proctor.common.el;
 
 import com.google.common.collect.ImmutableSet;
 import com.indeed.proctor.common.RuleEvaluator;
+import org.apache.el.lang.ExpressionBuilder;
+import org.apache.el.parser.AstAnd;
+import org.apache.el.parser.AstChoice;
+import org.apache.el.parser.AstDiv;
+import org.apache.el.parser.AstEmpty;
+import org.apache.el.parser.AstEqual;
+import org.apache.el.parser.AstFunction;
+import org.apache.el.parser.AstGreaterThan;
+import org.apache.el.parser.AstGreaterThanEqual;
+import org.apache.el.parser.AstIdentifier;
+import org.apache.el.parser.AstLessThan;
+import org.apache.el.parser.AstLessThanEqual;
+import org.apache.el.parser.AstMinus;
+import org.apache.el.parser.AstMod;
+import org.apache.el.parser.AstMult;
+import org.apache.el.parser.AstNegative;
+import org.apache.el.parser.AstNot;
+import org.apache.el.parser.AstNotEqual;
+import org.apache.el.parser.AstOr;
+import org.apache.el.parser.AstPlus;
+import org.apache.el.parser.AstValue;
+import org.apache.el.parser.Node;
 
 import javax.el.CompositeELResolver;
 import javax.el.ELContext;
+import javax.el.ELException;
 import javax.el.ELResolver;
 import javax.el.ExpressionFactory;
 import javax.el.FunctionMapper;
@@ -49,6 +72,46 @@ public class RuleAnalyzer {
         return variableMapper.getGatheredVariables();
     }
 
+    /**
+     * Unlike {@link #getReferencedVariables(String)}, ignores variables that are not evaluated
+     * for some values due to short-circuiting, e.g. only "a" is required in "${a || b}".
+     *
+     * @return variables resolved by every evaluation of the expression,
+     * so that an evaluation fails if one of them cannot be resolved. Empty if the expression cannot be parsed.
+     */
+    public static Set<String> getRequiredVariables(final String elString) {
+        final Node root;
+        try {
+            root = ExpressionBuilder.createNode(elString);
+        } catch (final ELException e) {
+            return ImmutableSet.of();
+        }
+        final Set<String> variables = new HashSet<>();
+        gatherRequiredVariables(root, variables);
+        return ImmutableSet.copyOf(variables);
+    }
+
+    private static void gatherRequiredVariables(final Node node, final Set<String> variables) {
+        if (node instanceof AstIdentifier) {
+            variables.add(node.getImage());
+        } else if ((node instanceof AstAnd) || (node instanceof AstOr) || (node instanceof AstChoice)
+                || (node instanceof AstValue) || (node instanceof AstGreaterThan) || (node instanceof AstLessThan)) {
+            // other operands and property suffixes are not evaluated for some values,
+            // e.g. "a > b" is false without evaluating b if a is null
+            gatherRequiredVariables(node.jjtGetChild(0), variables);
+        } else if ((node instanceof AstNot) || (node instanceof AstEmpty) || (node instanceof AstNegative)
+                || (node instanceof AstEqual) || (node instanceof AstNotEqual)
+                || (node instanceof AstGreaterThanEqual) || (node instanceof AstLessThanEqual)
+                || (node instanceof AstPlus) || (node instanceof AstMinus) || (node instanceof AstMult)
+                || (node instanceof AstDiv) || (node instanceof AstMod) || (node instanceof AstFunction)) {
+            // all operands are evaluated
+            for (int i = 0; i < node.jjtGetNumChildren(); i++) {
+                gatherRequiredVariables(node.jjtGetChild(i), variables);
+            }
+        }
+        // variables of other nodes are not gathered, as they might not be evaluated
+    }
+
     /**
      * Catches the Java Expression Language's events for variables to determine what variables are mentioned in
      * an el statement (which is what proctor rules are). Does not actually resolve variables.
@@ -0,0 +1,382 @@
+package com.indeed.proctor.common.el;
+
+import org.apache.el.lang.ELSupport;
+import org.apache.el.lang.ExpressionBuilder;
+import org.apache.el.parser.AstAnd;
+import org.apache.el.parser.AstBracketSuffix;
+import org.apache.el.parser.AstDotSuffix;
+import org.apache.el.parser.AstEmpty;
+import org.apache.el.parser.AstEqual;
+import org.apache.el.parser.AstFalse;
+import org.apache.el.parser.AstFloatingPoint;
+import org.apache.el.parser.AstFunction;
+import org.apache.el.parser.AstGreaterThan;
+import org.apache.el.parser.AstGreaterThanEqual;
+import org.apache.el.parser.AstIdentifier;
+import org.apache.el.parser.AstInteger;
+import org.apache.el.parser.AstLessThan;
+import org.apache.el.parser.AstLessThanEqual;
+import org.apache.el.parser.AstNot;
+import org.apache.el.parser.AstNotEqual;
+import org.apache.el.parser.AstNull;
+import org.apache.el.parser.AstOr;
+import org.apache.el.parser.AstString;
+import org.apache.el.parser.AstTrue;
+import org.apache.el.parser.AstValue;
+import org.apache.el.parser.Node;
+import org.apache.el.util.MessageFactory;
+
+import javax.annotation.CheckForNull;
+import javax.annotation.Nonnull;
+import javax.el.ELContext;
+import javax.el.ELException;
+import javax.el.FunctionMapper;
+import javax.el.PropertyNotFoundException;
+import javax.el.ValueExpression;
+import javax.el.VariableMapper;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compiles boolean rules into trees of java closures, so that evaluating a rule does not walk the
+ * parse tree of apache-el and does not go through the {@link javax.el.ELResolver} chain for the common
+ * case of accessing a property of a map.
+ *
+ * Compiled rules behave like the interpreted rule would, including coercions, short-circuiting and exceptions.
+ * Rules using syntax that is not supported by the compiler (e.g. arithmetic or method calls) are not compiled,
+ * and should be evaluated by the interpreter instead.
+ */
+public class RuleCompiler {
+
+    /**
+     * @param rule a rule including the braces, e.g. "${lang == 'en'}", that the interpreter can parse
+     * @param functionMapper functions available to the rule
+     * @param variableMapper variables available to the rule, variables resolved as {@link ContextVariableExpression}
+     *                       are looked up from the values given on evaluation
+     * @return null if the rule cannot be compiled
+     */
+    @CheckForNull
+    public static CompiledRule compile(
+            @Nonnull final String rule,
+            @Nonnull final FunctionMapper functionMapper,
+            @Nonnull final VariableMapper variableMapper
+    ) {
+        final Node root;
+        try {
+            root = ExpressionBuilder.createNode(rule);
+        } catch (final ELException e) {
+            return null;
+        }
+        if (!isBooleanNode(root, functionMapper)) {
+            // the type of the result would have to be checked on each evaluation
+            return null;
+        }
+        final Evaluation evaluation = new RuleCompiler(functionMapper, variableMapper).compileNode(root);
+        if (evaluation == null) {
+            return null;
+        }
+        return (elContext, values) -> (Boolean) ELSupport.coerceToType(evaluation.getValue(elContext, values), boolean.class);
+    }
+
+    /**
+     * A rule compiled by {@link RuleCompiler}, can be shared between threads.
+     */
+    public interface CompiledRule {
+        /**
+         * @param elContext context used for resolving properties of objects other than maps
+         * @param values values of variables of the rule
+         */
+        boolean evaluate(@Nonnull ELContext elContext, @Nonnull Map<String, Object> values) throws ELException;
+    }
+
+    private interface Evaluation {
+        Object getValue(@Nonnull ELContext elContext, @Nonnull Map<String, Object> values) throws ELException;
+    }
+
+    @Nonnull
+    private final FunctionMapper functionMapper;
+    @Nonnull
+    private final VariableMapper variableMapper;
+
+    private RuleCompiler(@Nonnull final FunctionMapper functionMapper, @Nonnull final VariableMapper variableMapper) {
+        this.functionMapper = functionMapper;
+        this.variableMapper = variableMapper;
+    }
+
+    private static boolean isBooleanNode(final Node node, final FunctionMapper functionMapper) {
+        if ((node instanceof AstAnd) || (node instanceof AstOr) || (node instanceof AstNot)
+                || (node instanceof AstEqual) || (node instanceof AstNotEqual)
+                || (node instanceof AstGreaterThan) || (node instanceof AstGreaterThanEqual)
+                || (node instanceof AstLessThan) || (node instanceof AstLessThanEqual)
+                || (node instanceof AstEmpty)) {
+            return true;
+        }
+        if (node instanceof AstFunction) {
+            final Method method = resolveFunction((AstFunction) node, functionMapper);
+            return (method != null) && ((method.getReturnType() == boolean.class) || (method.getReturnType() == Boolean.class));
+        }
+        return false;
+    }
+
+    @CheckForNull
+    private static Method resolveFunction(final AstFunction node, final FunctionMapper functionMapper) {
+        final Method method = functionMapper.resolveFunction(node.getPrefix(), node.getLocalName());
+        if ((method == null) || (method.getParameterTypes().length != node.jjtGetNumChildren())) {
+            return null;
+        }
+        return method;
+    }
+
+    /**
+     * @return null if the node or one of its children is not supported
+     */
+    @CheckForNull
+    private Evaluation compileNode(final Node node) {
+        if ((node instanceof AstString) || (node instanceof AstInteger) || (node instanceof AstFloatingPoint)
+                || (node instanceof AstTrue) || (node instanceof AstFalse) || (node instanceof AstNull)) {
+            // literals do not use the context
+            final Object literal = node.getValue(null);
+            return (elContext, values) -> literal;
+        }
+        if (node instanceof AstIdentifier) {
+            return compileIdentifier(node.getImage());
+        }
+        if (node instanceof AstValue) {
+            return compileValue(node);
+        }
+        if (node instanceof AstFunction) {
+            return compileFunction((AstFunction) node);
+        }
+
+        final Evaluation[] children = compileChildren(node);
+        if (children == null) {
+            return null;
+        }
+        if (node instanceof AstAnd) {
+            return (elContext, values) -> {
+                for (final Evaluation child : children) {
+                    if (!ELSupport.coerceToBoolean(child.getValue(elContext, values))) {
+                        return Boolean.FALSE;
+                    }
+                }
+                return Boolean.TRUE;
+            };
+        }
+        if (node instanceof AstOr) {
+            return (elContext, values) -> {
+                for (final Evaluation child : children) {
+                    if (ELSupport.coerceToBoolean(child.getValue(elContext, values))) {
+                        return Boolean.TRUE;
+                    }
+                }
+                return Boolean.FALSE;
+            };
+        }
+        if (node instanceof AstNot) {
+            final Evaluation child = children[0];
+            return (elContext, values) -> !ELSupport.coerceToBoolean(child.getValue(elContext, values));
+        }
+        if (node instanceof AstEmpty) {
+            final Evaluation child = children[0];
+            return (elContext, values) -> isEmpty(child.getValue(elContext, values));
+        }
+        if (children.length != 2) {
+            return null;
+        }
+        final Evaluation left = children[0];
+        final Evaluation right = children[1];
+        if (node instanceof AstEqual) {
+            return (elContext, values) -> ELSupport.equals(left.getValue(elContext, values), right.getValue(elContext, values));
+        }
+        if (node instanceof AstNotEqual) {
+            return (elContext, values) -> !ELSupport.equals(left.getValue(elContext, values), right.getValue(elContext, values));
+        }
+        if (node instanceof AstGreaterThan) {
+            return (elContext, values) -> {
+                final Object obj0 = left.getValue(elContext, values);
+                if (obj0 == null) {
+                    return Boolean.FALSE;
+                }
+                final Object obj1 = right.getValue(elContext, values);
+                if (obj1 == null) {
+                    return Boolean.FALSE;
+                }
+                return ELSupport.compare(obj0, obj1) > 0;
+            };
+        }
+        if (node instanceof AstLessThan) {
+            return (elContext, values) -> {
+                final Object obj0 = left.getValue(elContext, values);
+                if (obj0 == null) {
+                    return Boolean.FALSE;
+                }
+                final Object obj1 = right.getValue(elContext, values);
+                if (obj1 == null) {
+                    return Boolean.FALSE;
+                }
+                return ELSupport.compare(obj0, obj1) < 0;
+            };
+        }
+        if (node instanceof AstGreaterThanEqual) {
+            return (elContext, values) -> {
+                final Object obj0 = left.getValue(elContext, values);
+                final Object obj1 = right.getValue(elContext, values);
+                if (obj0 == obj1) {
+                    return Boolean.TRUE;
+                }
+                if ((obj0 == null) || (obj1 == null)) {
+                    return Boolean.FALSE;
+                }
+                return ELSupport.compare(obj0, obj1) >= 0;
+            };
+        }
+        if (node instanceof AstLessThanEqual) {
+            return (elContext, values) -> {
+                final Object obj0 = left.getValue(elContext, values);
+                final Object obj1 = right.getValue(elContext, values);
+                if (obj0 == obj1) {
+                    return Boolean.TRUE;
+                }
+                if ((obj0 == null) || (obj1 == null)) {
+                    return Boolean.FALSE;
+                }
+                return ELSupport.compare(obj0, obj1) <= 0;
+            };
+        }
+        return null;
+    }
+
+    @CheckForNull
+    private Evaluation[] compileChildren(final Node node) {
+        final Evaluation[] children = new Evaluation[node.jjtGetNumChildren()];
+        for (int i = 0; i < children.length; i++) {
+            children[i] = compileNode(node.jjtGetChild(i));
+            if (children[i] == null) {
+                return null;
+            }
+        }
+        return children;
+    }
+
+    @Nonnull
+    private Evaluation compileIdentifier(final String name) {
+        final ValueExpression expression = variableMapper.resolveVariable(name);
+        if (expression instanceof ContextVariableExpression) {
+            return (elContext, values) -> ContextVariableExpression.getValue(values, name);
+        }
+        if (expression == null) {
+            return (elContext, values) -> {
+                throw new PropertyNotFoundException(MessageFactory.get("error.resolver.unhandled.null", name));
+            };
+        }
+        return (elContext, values) -> expression.getValue(elContext);
+    }
+
+    /**
+     * Property access such as "a.b" or "a['b']"
+     */
+    @CheckForNull
+    private Evaluation compileValue(final Node node) {
+        final Evaluation base = compileNode(node.jjtGetChild(0));
+        if (base == null) {
+            return null;
+        }
+        final Evaluation[] suffixes = new Evaluation[node.jjtGetNumChildren() - 1];
+        for (int i = 0; i < suffixes.length; i++) {
+            final Node suffix = node.jjtGetChild(i + 1);
+            if (suffix instanceof AstDotSuffix) {
+                final String property = suffix.getImage();
+                suffixes[i] = (elContext, values) -> property;
+            } else if (suffix instanceof AstBracketSuffix) {
+                suffixes[i] = compileNode(suffix.jjtGetChild(0));
+                if (suffixes[i] == null) {
+                    return null;
+                }
+            } else {
+                // method invocation
+                return null;
+            }
+        }
+        return (elContext, values) -> {
+            Object value = base.getValue(elContext, values);
+            Object property = null;
+            for (int i = 0; (value != null) && (i < suffixes.length); i++) {
+                property = suffixes[i].getValue(elContext, values);
+                if (property == null) {
+                    return null;
+                }
+                elContext.setPropertyResolved(false);
+                value = getProperty(elContext, value, property);
+            }
+            if (!elContext.isPropertyResolved()) {
+                throw new PropertyNotFoundException(MessageFactory.get("error.resolver.unhandled", value, property));
+            }
+            return value;
+        };
+    }
+
+    private static Object getProperty(final ELContext elContext, final Object base, final Object property) {
+        if ((base instanceof Map) && !(base instanceof List)) {
+            // same as MapELResolver, without trying the other resolvers first
+            elContext.setPropertyResolved(true);
+            return ((Map<?, ?>) base).get(property);
+        }
+        return elContext.getELResolver().getValue(elContext, base, property);
+    }
+
+    @CheckForNull
+    private Evaluation compileFunction(final AstFunction node) {
+        final Method method = resolveFunction(node, functionMapper);
+        if (method == null) {
+            return null;
+        }
+        final Evaluation[] arguments = compileChildren(node);
+        if (arguments == null) {
+            return null;
+        }
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        final String outputName = node.getOutputName();
+        return (elContext, values) -> {
+            Object[] parameters = null;
+            if (arguments.length > 0) {
+                parameters = new Object[arguments.length];
+                try {
+                    for (int i = 0; i < arguments.length; i++) {
+                        parameters[i] = ELSupport.coerceToType(arguments[i].getValue(elContext, values), parameterTypes[i]);
+                    }
+                } catch (final ELException e) {
+                    throw new ELException(MessageFactory.get("error.function", outputName), e);
+                }
+            }
+            try {
+                return method.invoke(null, parameters);
+            } catch (final IllegalAccessException e) {
+                throw new ELException(MessageFactory.get("error.function", outputName), e);
+            } catch (final InvocationTargetException e) {
+                throw new ELException(MessageFactory.get("error.function", outputName), e.getCause());
+            }
+        };
+    }
+
+    private static Boolean isEmpty(final Object value) {
+        if (value == null) {
+            return Boolean.TRUE;
+        }
+        if (value instanceof String) {
+            return ((String) value).isEmpty();
+        }
+        if (value instanceof Object[]) {
+            return ((Object[]) value).length == 0;
+        }
+        if (value instanceof Collection) {
+            return ((Collection<?>) value).isEmpty();
+        }
+        if (value instanceof Map) {
+            return ((Map<?, ?>) value).isEmpty();
+        }
+        return Boolean.FALSE;
+    }
+}
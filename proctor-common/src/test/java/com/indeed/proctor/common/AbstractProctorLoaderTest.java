@@ -25,7 +25,11 @@ import java.util.Map;
 import static java.util.Collections.singleton;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AbstractProctorLoaderTest {
@@ -77,6 +81,85 @@ public class AbstractProctorLoaderTest {
         assertThat(loader.get()).isEqualTo(proctorMock);
     }
 
+    @Test
+    public void testLoaderLoadWithWarmUp() {
+        final Proctor proctorMock = mock(Proctor.class);
+        final Audit audit = getAuditMockForLoad();
+        final TestProctorLoader loader = new TestProctorLoader(dataLoaderTimerMock) {
+            @Nullable
+            @Override
+            public Proctor doLoad() {
+                setLastAudit(audit);
+                return proctorMock;
+            }
+        };
+        loader.setWarmUp(new ProctorWarmUpSampler() {
+            @Override
+            public Identifiers sampleIdentifiers(final int iteration) {
+                // not published while warming up
+                assertThat(loader.get()).isNull();
+                return Identifiers.of(TestType.ANONYMOUS_USER, "user" + iteration);
+            }
+
+            @Override
+            public Map<String, Object> sampleContext(final int iteration) {
+                return ImmutableMap.of("lang", "en");
+            }
+        }, 3);
+
+        assertThat(loader.load()).isTrue();
+        assertThat(loader.get()).isEqualTo(proctorMock);
+        verify(proctorMock, times(3)).determineTestGroups(
+                any(Identifiers.class),
+                eq(ImmutableMap.of("lang", "en")),
+                eq(ForceGroupsOptions.empty()),
+                eq(Collections.emptyList())
+        );
+    }
+
+    @Test
+    public void testLoaderWarmUpNotCounted() {
+        final Proctor proctorMock = mock(Proctor.class);
+        // as a rule failing to evaluate
+        when(proctorMock.determineTestGroups(any(Identifiers.class), any(), any(ForceGroupsOptions.class), any())).thenAnswer(invocation -> {
+            EvaluationErrorReporter.getInstance().reportRuleEvaluationError("warm_tst", "${lang.foo}", new IllegalStateException());
+            return null;
+        });
+        final Audit audit = getAuditMockForLoad();
+        final TestProctorLoader loader = new TestProctorLoader(dataLoaderTimerMock) {
+            @Nullable
+            @Override
+            public Proctor doLoad() {
+                setLastAudit(audit);
+                return proctorMock;
+            }
+        };
+        loader.setWarmUp(new ProctorWarmUpSampler() {
+            @Override
+            public Identifiers sampleIdentifiers(final int iteration) {
+                return Identifiers.of(TestType.ANONYMOUS_USER, "user" + iteration);
+            }
+
+            @Override
+            public Map<String, Object> sampleContext(final int iteration) {
+                return ImmutableMap.of("lang", "en");
+            }
+        }, 3);
+        final long errorCount = EvaluationErrorReporter.getInstance().getRuleEvaluationErrorCount();
+
+        assertThat(loader.load()).isTrue();
+        assertThat(EvaluationErrorReporter.getInstance().getRuleEvaluationErrorCount()).isEqualTo(errorCount);
+
+        // requests after warm-up are counted
+        loader.get().determineTestGroups(
+                Identifiers.of(TestType.ANONYMOUS_USER, "user"),
+                ImmutableMap.of("lang", "en"),
+                ForceGroupsOptions.empty(),
+                Collections.emptyList()
+        );
+        assertThat(EvaluationErrorReporter.getInstance().getRuleEvaluationErrorCount()).isEqualTo(errorCount + 1);
+    }
+
     @Test
     public void testLoaderLoadNoChange() {
         final Audit audit = getAuditMockForLoad();
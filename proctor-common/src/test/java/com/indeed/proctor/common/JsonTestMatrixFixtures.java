@@ -0,0 +1,24 @@
+package com.indeed.proctor.common;
+
+/**
+ * Small json test matrices for tests of loaders
+ */
+final class JsonTestMatrixFixtures {
+    /**
+     * definition of a test with a single bucket, referenced as "a_tst"
+     */
+    static final String A_TST = "{\"version\": \"1\", \"salt\": \"a_tst\", \"testType\": \"USER\", "
+            + "\"buckets\": [{\"name\": \"control\", \"value\": 0}], "
+            + "\"allocations\": [{\"ranges\": [{\"bucketValue\": 0, \"length\": 1.0}]}]}";
+
+    private JsonTestMatrixFixtures() {
+    }
+
+    /**
+     * @return the json of a test matrix with the audit version, starting with the audit, and the test "a_tst"
+     */
+    static String testMatrixWithATst(final String version) {
+        return "{\"audit\": {\"version\": \"" + version + "\", \"updated\": 0, \"updatedBy\": \"someone\"}, "
+                + "\"tests\": {\"a_tst\": " + A_TST + "}}";
+    }
+}
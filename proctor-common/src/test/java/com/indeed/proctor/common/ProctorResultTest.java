@@ -1,5 +1,6 @@
 package com.indeed.proctor.common;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
@@ -124,4 +125,26 @@ public class ProctorResultTest {
                 proctorResult2.getTestDefinitions().put("forbid", new ConsumableTestDefinition()))
                 .isInstanceOf(UnsupportedOperationException.class);
     }
+
+    @Test
+    public void testGetTestBucketWithValue() {
+        final TestBucket control = new TestBucket("control", 0, "");
+        final TestBucket active = new TestBucket("active", 1, "");
+        final ConsumableTestDefinition definition = new ConsumableTestDefinition();
+        definition.setBuckets(ImmutableList.of(control, active, new TestBucket("duplicate", 1, "")));
+        final TestBucketIndex[] indices = {TestBucketIndex.of(definition.getBuckets()), null};
+        final TestIndexedSortedMap<TestBucket> buckets = new TestIndexedSortedMap<>(TestNameIndex.of(ImmutableList.of("test1", "test2")));
+        buckets.put("test1", control);
+        final Map<String, ConsumableTestDefinition> definitions = ImmutableMap.of("test1", definition, "test2", definition);
+
+        for (final ProctorResult proctorResult : ImmutableList.of(
+                new ProctorResult("", buckets, new TreeMap<>(), definitions, indices, null),
+                new ProctorResult("", new TreeMap<>(buckets), new TreeMap<>(), definitions))) {
+            assertThat(proctorResult.getTestBucketWithValue("test1", 1)).isSameAs(active);
+            assertThat(proctorResult.getTestBucketWithValue("test1", 2)).isNull();
+            // not indexed
+            assertThat(proctorResult.getTestBucketWithValue("test2", 1)).isSameAs(active);
+            assertThat(proctorResult.getTestBucketWithValue("test3", 1)).isNull();
+        }
+    }
 }
@@ -12,11 +12,13 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
 import java.util.Collections;
 import java.util.Set;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.indeed.proctor.common.JsonTestMatrixFixtures.A_TST;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.offset;
 
@@ -98,6 +100,46 @@ public class TestAbstractJsonProctorLoader {
                 .containsExactlyInAnyOrder("sometst", "meta_tags_tst");
     }
 
+    @Test
+    public void testLoadJsonTestMatrixWithLoadedAudit() throws Exception {
+        proctorLoader = new ExampleJsonProctorLoader(ImmutableSet.of("a_tst"), Collections.emptySet());
+        final String audit = "\"audit\": {\"version\": \"1\", \"updated\": 0, \"updatedBy\": \"someone\"}";
+        final String tests = "\"tests\": {\"a_tst\": " + A_TST + "}";
+        proctorLoader.json = "{" + audit + ", " + tests + "}";
+        assertThat(proctorLoader.doLoad()).isNotNull();
+
+        // tests are not read with the same audit
+        proctorLoader.json = "{" + audit + ", \"tests\": {\"a_tst\": [}}";
+        assertThat(proctorLoader.loadTestMatrix().getTests()).isEmpty();
+        assertThat(proctorLoader.doLoad()).isNull();
+
+        proctorLoader.json = "{" + audit.replace("\"1\"", "\"2\"") + ", " + tests + "}";
+        assertThat(proctorLoader.loadTestMatrix().getTests()).containsOnlyKeys("a_tst");
+        assertThat(proctorLoader.doLoad()).isNotNull();
+    }
+
+    @Test
+    public void testLoadJsonTestMatrixWithAuditLast() throws Exception {
+        proctorLoader = new ExampleJsonProctorLoader(ImmutableSet.of("a_tst"), Collections.emptySet());
+        final String json = "{\"tests\": {\"a_tst\": " + A_TST + "}, "
+                + "\"audit\": {\"version\": \"1\", \"updated\": 0, \"updatedBy\": \"someone\"}}";
+        proctorLoader.json = json;
+        assertThat(proctorLoader.doLoad()).isNotNull();
+
+        // tests are read before the audit, but not verified again with the same audit
+        assertThat(proctorLoader.loadTestMatrix().getTests()).containsOnlyKeys("a_tst");
+        assertThat(proctorLoader.doLoad()).isNull();
+    }
+
+    @Test
+    public void testLoadJsonTestMatrixWithoutBindingUnreferencedTests() throws Exception {
+        proctorLoader = new ExampleJsonProctorLoader(ImmutableSet.of("a_tst"), Collections.emptySet());
+        // definitions which cannot be deserialized are not read unless referenced
+        proctorLoader.json = "{\"audit\": {\"version\": \"1\", \"updated\": 0, \"updatedBy\": \"someone\"}, "
+                + "\"tests\": {\"a_tst\": " + A_TST + ", \"b_tst\": {\"buckets\": \"invalid\"}, \"c_tst\": null}}";
+        assertThat(proctorLoader.loadTestMatrix().getTests()).containsOnlyKeys("a_tst");
+    }
+
     class ExampleJsonProctorLoader extends AbstractJsonProctorLoader {
         public ExampleJsonProctorLoader(final Set<String> requiredTests, final Set<String> metaTags) {
             super(
@@ -113,12 +155,14 @@ public class TestAbstractJsonProctorLoader {
                     RuleEvaluator.defaultFunctionMapperBuilder().build());
         }
 
+        String json;
+
         TestMatrixArtifact loadTestMatrix() throws IOException, MissingTestMatrixException {
-            return null;
+            return (json == null) ? null : loadJsonTestMatrix(new StringReader(json));
         }
 
         String getSource() {
-            return null;
+            return "example";
         }
     }
 }
@@ -0,0 +1,136 @@
+package com.indeed.proctor.common;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.indeed.proctor.common.dynamic.DynamicFilters;
+import com.indeed.proctor.common.dynamic.MetaTagsFilter;
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.Payload;
+import com.indeed.proctor.common.model.Range;
+import com.indeed.proctor.common.model.TestBucket;
+import com.indeed.proctor.common.model.TestDefinition;
+import com.indeed.proctor.common.model.TestDependency;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+import com.indeed.proctor.common.model.TestType;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestBinaryTestMatrixFormat {
+    private static final ObjectMapper OBJECT_MAPPER = Serializers.lenient();
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSameAsJson() throws IOException {
+        final TestMatrixArtifact testMatrix = readExampleTestMatrix();
+        testMatrix.getTests().put("payload_tst", createPayloadTestDefinition());
+
+        final BinaryTestMatrixFormat.Index index = BinaryTestMatrixFormat.read(ByteBuffer.wrap(toBytes(testMatrix)));
+
+        assertThat(toJson(index.getAudit())).isEqualTo(toJson(testMatrix.getAudit()));
+        assertThat(ImmutableSet.copyOf(index.getTestNames())).isEqualTo(testMatrix.getTests().keySet());
+        for (final String testName : index.getTestNames()) {
+            assertThat(toJson(index.readTest(testName)))
+                    .as(testName)
+                    .isEqualTo(toJson(testMatrix.getTests().get(testName)));
+        }
+        assertThat(index.containsTest("null_tst")).isTrue();
+        assertThat(index.readTest("null_tst")).isNull();
+        assertThat(index.readTest("missing_tst")).isNull();
+    }
+
+    @Test
+    public void testMalformed() throws IOException {
+        assertThatThrownBy(() -> BinaryTestMatrixFormat.read(ByteBuffer.wrap("{}".getBytes())))
+                .isInstanceOf(IOException.class);
+        final byte[] bytes = toBytes(readExampleTestMatrix());
+        assertThatThrownBy(() -> BinaryTestMatrixFormat.read(ByteBuffer.wrap(Arrays.copyOf(bytes, bytes.length - 1))))
+                .isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void testLoader() throws Exception {
+        final File file = temporaryFolder.newFile("matrix.bin");
+        try (OutputStream outputStream = new FileOutputStream(file)) {
+            BinaryTestMatrixFormat.write(readExampleTestMatrix(), outputStream);
+        }
+        final BinaryFileProctorLoader loader = new BinaryFileProctorLoader(
+                new ProctorSpecification(
+                        Collections.emptyMap(),
+                        ImmutableMap.of("exampletst", new TestSpecification()),
+                        new DynamicFilters(ImmutableList.of(new MetaTagsFilter(ImmutableSet.of("example_tag"))))
+                ),
+                file,
+                RuleEvaluator.FUNCTION_MAPPER
+        );
+
+        assertThat(loader.loadTestMatrix().getTests()).containsOnlyKeys("exampletst", "meta_tags_tst");
+
+        assertThat(loader.doLoad()).isNotNull();
+        assertThat(loader.getLastAudit().getVersion()).isEqualTo("1524");
+
+        // unchanged audit
+        assertThat(loader.doLoad()).isNull();
+    }
+
+    private static ConsumableTestDefinition createPayloadTestDefinition() {
+        final Payload mapPayload = new Payload(ImmutableMap.<String, Object>of(
+                "a", 1.5, "b", ImmutableList.of("x", "y"), "c", ImmutableMap.of("d", 2)));
+        return ConsumableTestDefinition.fromTestDefinition(TestDefinition.builder()
+                .setTestType(TestType.EMAIL_ADDRESS)
+                .setSalt("&payload_tst")
+                .setRule("${lang == 'en'}")
+                .setConstants(ImmutableMap.of("COUNTRIES", ImmutableList.of("US", "JP")))
+                .setDependsOn(new TestDependency("exampletst", 1))
+                .addBuckets(
+                        new TestBucket("double", 0, "", new Payload(1.5)),
+                        new TestBucket("doubles", 1, null, new Payload(new Double[]{1.0, 2.5})),
+                        new TestBucket("long", 2, "", new Payload(3L)),
+                        new TestBucket("longs", 3, "", new Payload(new Long[]{4L, 5L})),
+                        new TestBucket("string", 4, "", new Payload("s")),
+                        new TestBucket("strings", 5, "", new Payload(new String[]{"s", "t"})),
+                        new TestBucket("map", 6, "", mapPayload),
+                        new TestBucket("none", 7, "", null)
+                )
+                .setAllocations(ImmutableList.of(
+                        new Allocation("${country == 'US'}", ImmutableList.of(new Range(0, 0.5), new Range(6, 0.5)), "#A1"),
+                        new Allocation(null, ImmutableList.of(new Range(7, 1.0)), "#B1")
+                ))
+                .build());
+    }
+
+    private static JsonNode toJson(final Object value) {
+        return OBJECT_MAPPER.valueToTree(value);
+    }
+
+    private static byte[] toBytes(final TestMatrixArtifact testMatrix) throws IOException {
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryTestMatrixFormat.write(testMatrix, bytes);
+        return bytes.toByteArray();
+    }
+
+    private TestMatrixArtifact readExampleTestMatrix() throws IOException {
+        try (InputStream inputStream = getClass().getResourceAsStream("example-test-matrix.json")) {
+            return OBJECT_MAPPER.readValue(inputStream, TestMatrixArtifact.class);
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package com.indeed.proctor.common;
+
+import java.util.Map;
+
+/**
+ * Runs all rules of {@link TestRuleEvaluator} with compiled rules, which should behave the same as interpreted rules
+ */
+public class TestCompiledRuleEvaluator extends TestRuleEvaluator {
+
+    @Override
+    RuleEvaluator createRuleEvaluator(final Map<String, Object> testConstants) {
+        return new RuleEvaluator(
+                RuleEvaluator.EXPRESSION_FACTORY,
+                RuleEvaluator.FUNCTION_MAPPER,
+                testConstants,
+                RuleEvaluationMode.COMPILED);
+    }
+}
@@ -0,0 +1,104 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.TestDefinition;
+import com.indeed.proctor.common.model.TestType;
+import org.junit.Test;
+
+import javax.el.PropertyNotFoundException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestEvaluationErrorReporter {
+    @Test
+    public void testCounts() {
+        final AtomicLong clock = new AtomicLong();
+        final EvaluationErrorReporter reporter = new EvaluationErrorReporter(1000, clock::get);
+
+        reporter.reportRuleEvaluationError("a_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        reporter.reportRuleEvaluationError("a_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        reporter.reportRuleEvaluationError("a_tst", "${lang == 'en'}", new IllegalArgumentException());
+        clock.addAndGet(1500);
+        reporter.reportRuleEvaluationError("b_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        reporter.reportInvalidIdentifier(TestType.ANONYMOUS_USER, "");
+
+        assertThat(reporter.getRuleEvaluationErrorCount()).isEqualTo(4);
+        assertThat(reporter.getRuleEvaluationErrorCounts()).isEqualTo(ImmutableMap.of(
+                "a_tst:PropertyNotFoundException", 2L,
+                "a_tst:IllegalArgumentException", 1L,
+                "b_tst:PropertyNotFoundException", 1L
+        ));
+        assertThat(reporter.getInvalidIdentifierCounts()).isEqualTo(ImmutableMap.of("USER", 1L));
+    }
+
+    @Test
+    public void testSummaryPerWindow() {
+        final AtomicLong clock = new AtomicLong();
+        final EvaluationErrorReporter reporter = new EvaluationErrorReporter(1000, clock::get);
+
+        reporter.reportRuleEvaluationError("a_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        reporter.reportRuleEvaluationError("a_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        assertThat(reporter.rollWindow()).isNull();
+
+        // summarized without further errors once the window ended
+        clock.addAndGet(1500);
+        assertThat(reporter.rollWindow()).isEqualTo("a_tst PropertyNotFoundException: 2");
+        assertThat(reporter.rollWindow()).isNull();
+
+        // an error of a new window is summarized with that window
+        reporter.reportRuleEvaluationError("b_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        clock.addAndGet(1000);
+        reporter.reportRuleEvaluationError("c_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        clock.addAndGet(1000);
+        assertThat(reporter.rollWindow()).isEqualTo("c_tst PropertyNotFoundException: 1");
+    }
+
+    @Test
+    public void testIdleCountersDropped() {
+        final AtomicLong clock = new AtomicLong();
+        final EvaluationErrorReporter reporter = new EvaluationErrorReporter(1000, clock::get);
+
+        reporter.reportRuleEvaluationError("a_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        reporter.reportRuleEvaluationError("b_tst", "${lang == 'en'}", new PropertyNotFoundException());
+        clock.addAndGet(1000);
+        assertThat(reporter.rollWindow()).isNotNull();
+
+        // only b_tst keeps having errors, e.g. a_tst was removed from the test matrix
+        for (int i = 0; i < EvaluationErrorReporter.IDLE_SUMMARIES_TO_DROP; i++) {
+            reporter.reportRuleEvaluationError("b_tst", "${lang == 'en'}", new PropertyNotFoundException());
+            clock.addAndGet(1000);
+            assertThat(reporter.getRuleEvaluationErrorCounts()).containsKey("a_tst:PropertyNotFoundException");
+            assertThat(reporter.rollWindow()).isEqualTo("b_tst PropertyNotFoundException: 1");
+        }
+
+        assertThat(reporter.getRuleEvaluationErrorCounts()).containsOnlyKeys("b_tst:PropertyNotFoundException");
+        assertThat(reporter.getRuleEvaluationErrorCount()).isEqualTo(2 + EvaluationErrorReporter.IDLE_SUMMARIES_TO_DROP);
+    }
+
+    @Test
+    public void testRuleEvaluationErrorOfProctor() {
+        final long before = EvaluationErrorReporter.getInstance().getRuleEvaluationErrorCount();
+        final RuleEvaluator ruleEvaluator = RuleEvaluator.createDefaultRuleEvaluator(ImmutableMap.of());
+        final TestRangeSelector selector = new TestRangeSelector(
+                ruleEvaluator,
+                "error_tst",
+                ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .setSalt("error_tst")
+                                .setRule("${lang == 'en' || lang.foo}")
+                                .build()
+                )
+        );
+
+        // property not found on a String
+        assertThat(selector.findMatchingRule(ImmutableMap.of("lang", "fr"), ImmutableMap.of())).isEqualTo(-1);
+        assertThat(selector.findMatchingRule(ImmutableMap.of("lang", "fr"), ImmutableMap.of())).isEqualTo(-1);
+
+        assertThat(EvaluationErrorReporter.getInstance().getRuleEvaluationErrorCount()).isEqualTo(before + 2);
+        assertThat(EvaluationErrorReporter.getInstance().getRuleEvaluationErrorCounts())
+                .containsEntry("error_tst:PropertyNotFoundException", 2L);
+    }
+}
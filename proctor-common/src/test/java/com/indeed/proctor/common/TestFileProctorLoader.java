@@ -0,0 +1,85 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.indeed.proctor.common.dynamic.DynamicFilters;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+
+import static com.indeed.proctor.common.JsonTestMatrixFixtures.testMatrixWithATst;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestFileProctorLoader {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @Test
+    public void testSkipUnchangedFile() throws Exception {
+        final File file = temporaryFolder.newFile("matrix.json");
+        writeTestMatrix(file, "1");
+        final FileProctorLoader loader = createLoader(file);
+
+        final Proctor proctor = loader.doLoad();
+        assertThat(proctor).isNotNull();
+        assertThat(proctor.getArtifact().getTests()).containsOnlyKeys("a_tst");
+
+        // broken content with the same modification time and size is not read
+        final long lastModified = file.lastModified();
+        final String brokenJson = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8)
+                .replace('{', '[');
+        Files.write(file.toPath(), brokenJson.getBytes(StandardCharsets.UTF_8));
+        assertThat(file.setLastModified(lastModified)).isTrue();
+        assertThat(loader.doLoad()).isNull();
+
+        replaceTestMatrix(file, "2");
+        assertThat(loader.doLoad()).isNotNull();
+        assertThat(loader.getLastAudit().getVersion()).isEqualTo("2");
+    }
+
+    @Test
+    public void testStartWatching() throws Exception {
+        final File file = temporaryFolder.newFile("matrix.json");
+        writeTestMatrix(file, "1");
+        final FileProctorLoader loader = createLoader(file);
+        loader.load();
+
+        try (Closeable ignored = loader.startWatching()) {
+            replaceTestMatrix(file, "2");
+            final long deadline = System.currentTimeMillis() + 30_000;
+            while (!"2".equals(loader.getLastAudit().getVersion()) && (System.currentTimeMillis() < deadline)) {
+                Thread.sleep(10);
+            }
+        }
+        assertThat(loader.getLastAudit().getVersion()).isEqualTo("2");
+    }
+
+    private static FileProctorLoader createLoader(final File file) {
+        return new FileProctorLoader(
+                new ProctorSpecification(
+                        Collections.emptyMap(),
+                        ImmutableMap.of("a_tst", new TestSpecification()),
+                        new DynamicFilters()
+                ),
+                file,
+                RuleEvaluator.FUNCTION_MAPPER
+        );
+    }
+
+    private void replaceTestMatrix(final File file, final String version) throws IOException {
+        final File newFile = temporaryFolder.newFile();
+        writeTestMatrix(newFile, version);
+        Files.move(newFile.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    private static void writeTestMatrix(final File file, final String version) throws IOException {
+        Files.write(file.toPath(), testMatrixWithATst(version).getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,92 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import org.junit.Test;
+
+import java.util.AbstractMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestIndexedSortedMapTest {
+    private static final TestNameIndex INDEX = TestNameIndex.of(ImmutableList.of("ctest", "atest", "btest", "atest"));
+
+    @Test
+    public void testTestNameIndex() {
+        assertThat(INDEX.size()).isEqualTo(3);
+        assertThat(INDEX.getTestNames()).containsExactly("atest", "btest", "ctest");
+        assertThat(INDEX.getOrdinal("btest")).isEqualTo(1);
+        assertThat(INDEX.getOrdinal("dtest")).isEqualTo(-1);
+        assertThat(INDEX.getTestName(2)).isEqualTo("ctest");
+    }
+
+    @Test
+    public void testOrdinalsPerOwner() {
+        final Object owner = new Object();
+        final String[] testNames = {"btest", "dtest"};
+        final TestNameIndex otherIndex = TestNameIndex.of(ImmutableList.of("btest", "dtest"));
+
+        assertThat(INDEX.getOrdinals(owner, testNames)).containsExactly(1, -1);
+        assertThat(otherIndex.getOrdinals(owner, testNames)).containsExactly(0, 1);
+        // resolved once per index, even if indices alternate
+        assertThat(INDEX.getOrdinals(owner, testNames)).isSameAs(INDEX.getOrdinals(owner, testNames));
+        assertThat(otherIndex.getOrdinals(owner, testNames)).isSameAs(otherIndex.getOrdinals(owner, testNames));
+        assertThat(INDEX.getOrdinals(new Object(), testNames)).isNotSameAs(INDEX.getOrdinals(owner, testNames));
+    }
+
+    @Test
+    public void testSameAsTreeMap() {
+        final TestIndexedSortedMap<Integer> map = new TestIndexedSortedMap<>(INDEX);
+        map.put("ctest", 3);
+        map.put("atest", 1);
+
+        final Map<String, Integer> expected = new TreeMap<>(ImmutableMap.of("atest", 1, "ctest", 3));
+        assertThat(map).isEqualTo(expected);
+        assertThat(map.hashCode()).isEqualTo(expected.hashCode());
+        assertThat(map.keySet()).containsExactly("atest", "ctest");
+        assertThat(map.firstKey()).isEqualTo("atest");
+        assertThat(map.lastKey()).isEqualTo("ctest");
+        assertThat(map.get("btest")).isNull();
+        assertThat(map.containsKey("atest")).isTrue();
+        assertThat(map.getByOrdinal(INDEX.getOrdinal("ctest"))).isEqualTo(3);
+
+        assertThat(map.put("atest", 10)).isEqualTo(1);
+        assertThat(map.remove("ctest")).isEqualTo(3);
+        assertThat(map).containsExactly(entry("atest", 10));
+    }
+
+    @Test
+    public void testIteratorModification() {
+        final TestIndexedSortedMap<Integer> map = new TestIndexedSortedMap<>(INDEX);
+        map.put("atest", 1);
+        map.put("btest", 2);
+        map.put("ctest", 3);
+
+        final Iterator<Map.Entry<String, Integer>> iterator = map.entrySet().iterator();
+        iterator.next().setValue(100);
+        iterator.next();
+        iterator.remove();
+
+        assertThat(map).containsExactly(entry("atest", 100), entry("ctest", 3));
+        assertThat(map.getByOrdinal(0)).isEqualTo(100);
+        assertThat(map.getByOrdinal(1)).isNull();
+    }
+
+    @Test
+    public void testUnknownTestName() {
+        final TestIndexedSortedMap<Integer> map = new TestIndexedSortedMap<>(INDEX);
+        map.put("btest", 2);
+        map.put("0test", 0);
+
+        assertThat(map).containsExactly(entry("0test", 0), entry("btest", 2));
+        assertThat(map.getByOrdinal(INDEX.getOrdinal("btest"))).isEqualTo(2);
+        assertThat(map.headMap("atest")).containsExactly(entry("0test", 0));
+    }
+
+    private static Map.Entry<String, Integer> entry(final String key, final int value) {
+        return new AbstractMap.SimpleEntry<>(key, value);
+    }
+}
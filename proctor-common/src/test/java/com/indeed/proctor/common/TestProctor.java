@@ -7,6 +7,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
+import com.indeed.proctor.common.el.ContextVariableExpression;
 import com.indeed.proctor.common.model.Allocation;
 import com.indeed.proctor.common.model.Audit;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
@@ -19,22 +20,25 @@ import com.indeed.proctor.common.model.TestType;
 import org.junit.Test;
 
 import javax.annotation.Nonnull;
+import javax.el.ELContext;
 import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Java6Assertions.assertThat;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.anyMap;
-import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.times;
@@ -289,7 +293,7 @@ public class TestProctor {
                 testBucket, allocation
         );
 
-        when(testChooser.choose(isNull(), eq(inputContext), anyMap())).thenReturn(result);
+        when(testChooser.choose(isNull(), withValues(inputContext), anyMap())).thenReturn(result);
 
         final ProctorResult proctorResultWithRandom = proctor.determineTestGroups(
                 identifiersWithRandom,
@@ -309,7 +313,11 @@ public class TestProctor {
         assertThat(proctorResultWithoutRandom.getAllocations()).isEqualTo(Collections.emptyMap());
 
         // choose should not be called for identifiers with randomEnabled == false.
-        verify(testChooser, times(1)).choose(isNull(), eq(inputContext), anyMap());
+        verify(testChooser, times(1)).choose(isNull(), withValues(inputContext), anyMap());
+    }
+
+    private static ELContext withValues(final Map<String, Object> values) {
+        return argThat(elContext -> ContextVariableExpression.getValues(elContext) == values);
     }
 
     @Test
@@ -502,6 +510,309 @@ public class TestProctor {
                 .containsEntry("Y", testDefinitionY);
     }
 
+    @Test
+    public void testDetermineTestGroups_LinkedTestsSharingSalt() {
+        final TestBucket controlBucket = new TestBucket("control", 0, "");
+        final TestBucket activeBucket = new TestBucket("active", 1, "");
+        final Allocation allocation = new Allocation(
+                "",
+                ImmutableList.of(new Range(0, 0.5), new Range(1, 0.5))
+        );
+        final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        for (final String testName : Arrays.asList("X", "Y", "Z")) {
+            tests.put(testName, ConsumableTestDefinition.fromTestDefinition(
+                    TestDefinition.builder()
+                            .setSalt("Z".equals(testName) ? "&Z" : "&linked")
+                            .setTestType(TestType.ANONYMOUS_USER)
+                            .addBuckets(controlBucket)
+                            .addBuckets(activeBucket)
+                            .addAllocations(allocation)
+                            .build()
+            ));
+        }
+        final TestMatrixArtifact matrix = new TestMatrixArtifact();
+        matrix.setTests(tests);
+        matrix.setAudit(new Audit());
+        final Proctor proctor = Proctor.construct(matrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+
+        final TestMatrixArtifact singleTestMatrix = new TestMatrixArtifact();
+        singleTestMatrix.setTests(ImmutableMap.of("X", tests.get("X")));
+        singleTestMatrix.setAudit(new Audit());
+        final Proctor singleTestProctor = Proctor.construct(singleTestMatrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+
+        int differentFromZ = 0;
+        for (int i = 0; i < 100; i++) {
+            final Identifiers identifiers = Identifiers.of(TestType.ANONYMOUS_USER, "cookie" + i);
+            final Map<String, TestBucket> buckets = proctor.determineTestGroups(identifiers, emptyMap(), emptyMap()).getBuckets();
+            final Map<String, TestBucket> singleTestBuckets = singleTestProctor.determineTestGroups(identifiers, emptyMap(), emptyMap()).getBuckets();
+
+            assertThat(buckets.get("X")).isEqualTo(singleTestBuckets.get("X"));
+            assertThat(buckets.get("Y")).isEqualTo(buckets.get("X"));
+            if (!buckets.get("Z").equals(buckets.get("X"))) {
+                differentFromZ++;
+            }
+        }
+        // tests with different salts are not linked
+        assertThat(differentFromZ).isPositive();
+    }
+
+    @Test
+    public void testConstructReusingPreviousProctor() {
+        final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        for (final String testName : Arrays.asList("a", "b")) {
+            tests.put(testName, createReusableTestDefinition(testName, "1"));
+        }
+        final TestMatrixArtifact matrix = new TestMatrixArtifact();
+        matrix.setTests(tests);
+        matrix.setAudit(new Audit());
+        final Proctor previous = Proctor.construct(matrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+
+        final Map<String, ConsumableTestDefinition> newTests = new HashMap<>();
+        newTests.put("a", createReusableTestDefinition("a", "1"));
+        newTests.put("b", createReusableTestDefinition("b", "2"));
+        newTests.put("c", createReusableTestDefinition("c", "1"));
+        final TestMatrixArtifact newMatrix = new TestMatrixArtifact();
+        newMatrix.setTests(newTests);
+        newMatrix.setAudit(new Audit());
+        final Proctor proctor = Proctor.construct(
+                newMatrix,
+                ProctorLoadResult.emptyResult(),
+                RuleEvaluator.FUNCTION_MAPPER,
+                new IdentifierValidator.Noop(),
+                RuleEvaluationMode.getInitial(),
+                previous
+        );
+
+        final ProctorResult proctorResult = proctor.determineTestGroups(
+                Identifiers.of(TestType.ANONYMOUS_USER, "cookie"),
+                emptyMap(),
+                emptyMap()
+        );
+        assertThat(proctorResult.getBuckets()).containsOnlyKeys("a", "b", "c");
+        // definitions of reused tests are the ones of the previous proctor
+        assertThat(proctorResult.getTestDefinitions().get("a")).isSameAs(tests.get("a"));
+        assertThat(proctorResult.getTestDefinitions().get("b")).isSameAs(newTests.get("b"));
+        assertThat(proctorResult.getTestDefinitions().get("c")).isSameAs(newTests.get("c"));
+
+        // not reused with other function mappers
+        final Proctor proctorWithOtherFunctions = Proctor.construct(
+                newMatrix,
+                ProctorLoadResult.emptyResult(),
+                RuleEvaluator.defaultFunctionMapperBuilder().build(),
+                new IdentifierValidator.Noop(),
+                RuleEvaluationMode.getInitial(),
+                previous
+        );
+        assertThat(proctorWithOtherFunctions.determineTestGroups(
+                Identifiers.of(TestType.ANONYMOUS_USER, "cookie"),
+                emptyMap(),
+                emptyMap()
+        ).getTestDefinitions().get("a")).isSameAs(newTests.get("a"));
+    }
+
+    private static ConsumableTestDefinition createReusableTestDefinition(final String testName, final String version) {
+        return ConsumableTestDefinition.fromTestDefinition(
+                TestDefinition.builder()
+                        .setVersion(version)
+                        .setSalt("&" + testName)
+                        .setTestType(TestType.ANONYMOUS_USER)
+                        .addBuckets(new TestBucket("control", 0, ""))
+                        .addAllocations(new Allocation("${}", ImmutableList.of(new Range(0, 1.0))))
+                        .build()
+        );
+    }
+
+    @Test
+    public void testDetermineTestGroups_TestOrdinals() {
+        final TestBucket controlBucket = new TestBucket("control", 0, "");
+        final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        for (final String testName : Arrays.asList("c", "a", "b")) {
+            tests.put(testName, ConsumableTestDefinition.fromTestDefinition(
+                    TestDefinition.builder()
+                            .setSalt("&" + testName)
+                            .setTestType(TestType.ANONYMOUS_USER)
+                            .addBuckets(controlBucket)
+                            .addAllocations(new Allocation("", ImmutableList.of(new Range(0, 1.0))))
+                            .build()
+            ));
+        }
+        final TestMatrixArtifact matrix = new TestMatrixArtifact();
+        matrix.setTests(tests);
+        matrix.setAudit(new Audit());
+        final Proctor proctor = Proctor.construct(matrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+
+        final TestNameIndex testNameIndex = proctor.getTestNameIndex();
+        assertThat(testNameIndex.getTestNames()).containsExactly("a", "b", "c");
+
+        final ProctorResult proctorResult = proctor.determineTestGroups(
+                Identifiers.of(TestType.ANONYMOUS_USER, "cookie"),
+                emptyMap(),
+                ForceGroupsOptions.empty(),
+                ImmutableList.of("a", "c")
+        );
+        assertThat(proctorResult.getTestNameIndex()).isSameAs(testNameIndex);
+        assertThat(proctorResult.getBuckets()).containsOnlyKeys("a", "c");
+        assertThat(proctorResult.getBucket(testNameIndex.getOrdinal("a"))).isEqualTo(controlBucket);
+        assertThat(proctorResult.getBucket(testNameIndex.getOrdinal("b"))).isNull();
+        assertThat(proctorResult.getAllocation(testNameIndex.getOrdinal("c")))
+                .isEqualTo(proctorResult.getAllocations().get("c"));
+    }
+
+    @Test
+    public void testDetermineTestGroupsBatch() {
+        final TestBucket controlBucket = new TestBucket("control", 0, "");
+        final TestBucket activeBucket = new TestBucket("active", 1, "");
+        final List<Range> ranges = ImmutableList.of(new Range(0, 0.5), new Range(1, 0.5));
+
+        final TestMatrixArtifact matrix = new TestMatrixArtifact();
+        matrix.setTests(ImmutableMap.of(
+                "X", ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setSalt("&X")
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .setDependsOn(new TestDependency("Y", 1))
+                                .addBuckets(controlBucket, activeBucket)
+                                .addAllocations(new Allocation("", ranges, "#A1"))
+                                .build()
+                ),
+                "Y", ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setSalt("&Y")
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .addBuckets(controlBucket, activeBucket)
+                                .addAllocations(new Allocation("${lang == 'en'}", ranges, "#A1"))
+                                .addAllocations(new Allocation("", ImmutableList.of(new Range(1, 1.0)), "#B1"))
+                                .build()
+                ),
+                "Z", ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setSalt("&Z")
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .setRule("${country == 'US'}")
+                                .addBuckets(controlBucket, activeBucket)
+                                .addAllocations(new Allocation("", ranges, "#A1"))
+                                .build()
+                )
+        ));
+        matrix.setAudit(new Audit());
+        final Proctor proctor = Proctor.construct(matrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+
+        final List<Identifiers> identifiersList = Lists.newArrayList();
+        final List<Map<String, Object>> inputContexts = Lists.newArrayList();
+        for (int i = 0; i < 60; i++) {
+            identifiersList.add(Identifiers.of(TestType.ANONYMOUS_USER, "cookie" + i));
+            // consecutive equal contexts in separate instances share rule evaluations
+            inputContexts.add(ImmutableMap.of("lang", ((i / 10) % 3 == 0) ? "en" : "fr", "country", ((i / 5) % 2 == 0) ? "US" : "CA"));
+        }
+
+        for (final List<String> testNameFilter : Arrays.asList(Collections.<String>emptyList(), ImmutableList.of("X"))) {
+            final ProctorBatchResult batchResult = proctor.determineTestGroupsBatch(
+                    identifiersList,
+                    inputContexts,
+                    ForceGroupsOptions.empty(),
+                    testNameFilter
+            );
+            assertThat(batchResult.size()).isEqualTo(identifiersList.size());
+            for (int i = 0; i < identifiersList.size(); i++) {
+                final ProctorResult expected = proctor.determineTestGroups(
+                        identifiersList.get(i),
+                        inputContexts.get(i),
+                        ForceGroupsOptions.empty(),
+                        testNameFilter
+                );
+                final ProctorResult actual = batchResult.getProctorResult(i);
+                assertThat(actual.getBuckets()).isEqualTo(expected.getBuckets());
+                assertThat(actual.getAllocations()).isEqualTo(expected.getAllocations());
+            }
+        }
+    }
+
+    @Test
+    public void testDetermineTestGroupsLazily() {
+        final TestBucket controlBucket = new TestBucket("control", 0, "");
+        final TestBucket activeBucket = new TestBucket("active", 1, "");
+        final List<Range> ranges = ImmutableList.of(new Range(0, 0.5), new Range(1, 0.5));
+
+        final TestMatrixArtifact matrix = new TestMatrixArtifact();
+        matrix.setTests(ImmutableMap.of(
+                "X", ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setSalt("&X")
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .setDependsOn(new TestDependency("Y", 1))
+                                .addBuckets(controlBucket, activeBucket)
+                                .addAllocations(new Allocation("", ranges, "#A1"))
+                                .build()
+                ),
+                "Y", ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setSalt("&Y")
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .addBuckets(controlBucket, activeBucket)
+                                .addAllocations(new Allocation("${lang == 'en'}", ranges, "#A1"))
+                                .addAllocations(new Allocation("", ImmutableList.of(new Range(1, 1.0)), "#B1"))
+                                .build()
+                ),
+                "Z", ConsumableTestDefinition.fromTestDefinition(
+                        TestDefinition.builder()
+                                .setSalt("&Z")
+                                .setTestType(TestType.ANONYMOUS_USER)
+                                .setRule("${country == 'US'}")
+                                .addBuckets(controlBucket, activeBucket)
+                                .addAllocations(new Allocation("", ranges, "#A1"))
+                                .build()
+                )
+        ));
+        matrix.setAudit(new Audit());
+        final Proctor proctor = Proctor.construct(matrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+
+        final ForceGroupsOptions forceZ = ForceGroupsOptions.builder().putForceGroup("Z", 0).build();
+        for (final ForceGroupsOptions forceGroupsOptions : Arrays.asList(ForceGroupsOptions.empty(), forceZ)) {
+            for (int i = 0; i < 30; i++) {
+                final Identifiers identifiers = Identifiers.of(TestType.ANONYMOUS_USER, "cookie" + i);
+                final Map<String, Object> inputContext = ImmutableMap.of(
+                        "lang", (i % 3 == 0) ? "en" : "fr", "country", (i % 2 == 0) ? "US" : "CA");
+                final ProctorResult expected = proctor.determineTestGroups(
+                        identifiers, inputContext, forceGroupsOptions, Collections.emptyList());
+
+                // looking up a test determines the tests it depends on
+                final ProctorResult lookedUp = proctor.determineTestGroupsLazily(identifiers, inputContext, forceGroupsOptions);
+                assertThat(lookedUp.getBuckets().get("X")).isEqualTo(expected.getBuckets().get("X"));
+                assertThat(lookedUp.getBucket(lookedUp.getTestNameIndex().getOrdinal("Z")))
+                        .isEqualTo(expected.getBuckets().get("Z"));
+                assertThat(lookedUp.getBuckets()).isEqualTo(expected.getBuckets());
+                assertThat(lookedUp.getAllocations()).isEqualTo(expected.getAllocations());
+
+                // iterating determines all tests
+                final ProctorResult iterated = proctor.determineTestGroupsLazily(identifiers, inputContext, forceGroupsOptions);
+                assertThat(iterated.getAllocations()).isEqualTo(expected.getAllocations());
+                assertThat(iterated.getBuckets()).isEqualTo(expected.getBuckets());
+            }
+        }
+    }
+
+    @Test
+    public void testFilteredEvaluationOrderCache() {
+        final TestMatrixArtifact matrix = createThreeFakeTests();
+        matrix.setAudit(new Audit());
+        final Proctor proctor = Proctor.construct(matrix, ProctorLoadResult.emptyResult(), RuleEvaluator.FUNCTION_MAPPER);
+        final Identifiers identifiers = new Identifiers(Collections.emptyMap(), true);
+        final EvaluationStats stats = EvaluationStats.getInstance();
+        final long hits = stats.getFilteredEvaluationOrderCacheHits();
+        final long misses = stats.getFilteredEvaluationOrderCacheMisses();
+
+        proctor.determineTestGroups(identifiers, emptyMap(), ForceGroupsOptions.empty(), ImmutableList.of("one", "two"));
+        proctor.determineTestGroups(identifiers, emptyMap(), ForceGroupsOptions.empty(), ImmutableList.of("two", "one"));
+        // unknown tests are ignored
+        proctor.determineTestGroups(identifiers, emptyMap(), ForceGroupsOptions.empty(), ImmutableList.of("one", "two", "unknown"));
+        proctor.determineTestGroups(identifiers, emptyMap(), ForceGroupsOptions.empty(), ImmutableList.of("three"));
+        // no filter does not use the cache
+        proctor.determineTestGroups(identifiers, emptyMap(), ForceGroupsOptions.empty(), Collections.emptyList());
+
+        assertThat(stats.getFilteredEvaluationOrderCacheHits() - hits).isEqualTo(2);
+        assertThat(stats.getFilteredEvaluationOrderCacheMisses() - misses).isEqualTo(2);
+    }
+
     private static TestMatrixArtifact createTestMatrixWithOneRandomTest(final String testName) {
         final TestMatrixArtifact matrix = new TestMatrixArtifact();
         final ConsumableTestDefinition testDefinition = new ConsumableTestDefinition();
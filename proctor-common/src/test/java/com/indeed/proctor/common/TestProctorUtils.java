@@ -27,10 +27,13 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 import static com.indeed.proctor.common.ProctorUtils.convertContextToTestableMap;
@@ -1563,6 +1566,59 @@ public class TestProctorUtils {
         );
     }
 
+    @Test
+    public void testVerifyWithExecutorShouldBeSameAsSequential() {
+        final ConsumableTestDefinition validDefinition = constructDefinition(
+                fromCompactBucketFormat("inactive:-1,control:0,test:1"),
+                fromCompactAllocationFormat("${lang == 'en'}|-1:0.0,0:0.5,1:0.5", "-1:0.0,0:0.5,1:0.5")
+        );
+        final ConsumableTestDefinition invalidDefinition = constructDefinition(
+                fromCompactBucketFormat("inactive:-1,control:0,test:1"),
+                fromCompactAllocationFormat("${unknownField == 'abc'}|-1:0.0,0:0.5,1:0.5")
+        );
+        final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        final Map<String, TestSpecification> requiredTests = new LinkedHashMap<>();
+        final Set<String> dynamicTests = new LinkedHashSet<>();
+        for (int i = 0; i < 50; i++) {
+            final String testName = "test" + i;
+            if (i % 5 != 0) {
+                tests.put(testName, (i % 3 == 0) ? invalidDefinition : validDefinition);
+            }
+            if (i % 2 == 0) {
+                requiredTests.put(testName, new TestSpecification());
+            } else {
+                dynamicTests.add(testName);
+            }
+        }
+        final TestMatrixArtifact matrix = constructArtifact(tests);
+        final ProvidedContext providedContext = ProvidedContext.forValueExpressionMap(
+                ImmutableMap.of("lang", RuleEvaluator.EXPRESSION_FACTORY.createValueExpression("en", String.class)),
+                emptySet()
+        );
+
+        final ProctorLoadResult expected = ProctorUtils.verify(
+                matrix, "", requiredTests, RuleEvaluator.FUNCTION_MAPPER, providedContext, dynamicTests
+        );
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final ProctorLoadResult actual = ProctorUtils.verify(
+                    matrix, "", requiredTests, RuleEvaluator.FUNCTION_MAPPER, providedContext, dynamicTests, executor
+            );
+            assertThat(expected.getTestErrorMap()).isNotEmpty();
+            assertThat(expected.getDynamicTestErrorMap()).isNotEmpty();
+            assertThat(actual.getTestErrorMap().keySet())
+                    .containsExactlyElementsOf(expected.getTestErrorMap().keySet());
+            assertThat(actual.getDynamicTestErrorMap().keySet())
+                    .containsExactlyElementsOf(expected.getDynamicTestErrorMap().keySet());
+            assertThat(actual.getMissingTests()).containsExactlyElementsOf(expected.getMissingTests());
+            assertThat(actual.getVerifiedRules()).isEqualTo(expected.getVerifiedRules());
+            expected.getTestErrorMap().forEach((testName, error) ->
+                    assertThat(actual.getTestErrorMap().get(testName)).hasMessage(error.getMessage()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
     @Test
     public void testVerifyAndConsolidateShouldNotRemovePayloadOfDynamicTests() {
         final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
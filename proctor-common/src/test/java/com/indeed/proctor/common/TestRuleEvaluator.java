@@ -6,7 +6,9 @@ import com.indeed.util.core.ReleaseVersion;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.el.ELContext;
 import javax.el.ELException;
+import javax.el.PropertyNotFoundException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.LinkedHashMap;
@@ -29,7 +31,11 @@ public class TestRuleEvaluator {
     @Before
     public void setUp() throws Exception {
         final Map<String, Object> testConstants = singletonMap("LANGUAGES_ENABLED", Lists.newArrayList("en", "fr", "de"));
-        ruleEvaluator = new RuleEvaluator(RuleEvaluator.EXPRESSION_FACTORY, RuleEvaluator.FUNCTION_MAPPER, testConstants);
+        ruleEvaluator = createRuleEvaluator(testConstants);
+    }
+
+    RuleEvaluator createRuleEvaluator(final Map<String, Object> testConstants) {
+        return new RuleEvaluator(RuleEvaluator.EXPRESSION_FACTORY, RuleEvaluator.FUNCTION_MAPPER, testConstants);
     }
 
     @Test
@@ -432,4 +438,58 @@ public class TestRuleEvaluator {
         assertThat(ruleEvaluator.evaluateRule("${4}", emptyMap(), String.class)).isEqualTo("4");
         assertThat(ruleEvaluator.evaluateRule("${true}", emptyMap(), String.class)).isEqualTo("true");
     }
+
+    @Test
+    public void testPreparedRuleEvaluatedAgainstDifferentContexts() {
+        final RuleEvaluator.PreparedRule rule = ruleEvaluator.prepareBooleanRule("${proctor:contains(LANGUAGES_ENABLED, lang) && country == 'US'}");
+        assertTrue(ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(ImmutableMap.of("lang", "en", "country", "US"))));
+        assertFalse(ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(ImmutableMap.of("lang", "it", "country", "US"))));
+        assertFalse(ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(ImmutableMap.of("lang", "en", "country", "JP"))));
+        assertThatThrownBy(() -> ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(singletonMap("lang", "en"))))
+                .isInstanceOf(ELException.class)
+                .hasMessageContaining("country");
+    }
+
+    @Test
+    public void testPreparedRuleConstantsTakePrecedence() {
+        final RuleEvaluator.PreparedRule rule = ruleEvaluator.prepareBooleanRule("${proctor:contains(LANGUAGES_ENABLED, 'en')}");
+        final Map<String, Object> values = singletonMap("LANGUAGES_ENABLED", Lists.newArrayList("fr"));
+        assertTrue(ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(values)));
+    }
+
+    @Test
+    public void testPreparedRuleWithNullValue() {
+        final RuleEvaluator.PreparedRule rule = ruleEvaluator.prepareBooleanRule("${empty lang}");
+        assertTrue(ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(singletonMap("lang", null))));
+        assertFalse(ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(singletonMap("lang", "en"))));
+    }
+
+    @Test
+    public void testPreparedRulesSharingContext() {
+        final Map<String, Object> values = new HashMap<>();
+        values.put("context", ImmutableMap.of("foo", "bar"));
+        values.put("nullContext", null);
+        final ELContext elContext = RuleEvaluator.createEvaluationContext(values);
+        assertTrue(ruleEvaluator.evaluateBooleanRule(ruleEvaluator.prepareBooleanRule("${context.foo == 'bar'}"), elContext));
+        // property of a null variable is unresolvable regardless of rules evaluated before
+        final RuleEvaluator.PreparedRule rule = ruleEvaluator.prepareBooleanRule("${nullContext.foo == 'bar'}");
+        assertThatThrownBy(() -> ruleEvaluator.evaluateBooleanRule(rule, elContext))
+                .isInstanceOf(PropertyNotFoundException.class);
+    }
+
+    @Test
+    public void testPreparedRulesOfDifferentConstantsSharingContext() {
+        final RuleEvaluator otherRuleEvaluator = createRuleEvaluator(singletonMap("LANGUAGES_ENABLED", Lists.newArrayList("ja")));
+        final ELContext elContext = RuleEvaluator.createEvaluationContext(singletonMap("lang", "en"));
+        final String rule = "${proctor:contains(LANGUAGES_ENABLED, lang)}";
+        assertTrue(ruleEvaluator.evaluateBooleanRule(ruleEvaluator.prepareBooleanRule(rule), elContext));
+        assertFalse(otherRuleEvaluator.evaluateBooleanRule(otherRuleEvaluator.prepareBooleanRule(rule), elContext));
+    }
+
+    @Test
+    public void testInvalidPreparedRuleFailsOnEvaluation() {
+        final RuleEvaluator.PreparedRule rule = ruleEvaluator.prepareBooleanRule("${proctor:undefinedFunction(lang)}");
+        assertThatThrownBy(() -> ruleEvaluator.evaluateBooleanRule(rule, RuleEvaluator.createEvaluationContext(singletonMap("lang", "en"))))
+                .isInstanceOf(ELException.class);
+    }
 }
@@ -0,0 +1,91 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.io.Resources;
+import com.indeed.proctor.common.dynamic.DynamicFilters;
+import com.indeed.proctor.common.dynamic.MetaTagsFilter;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestSharedTestMatrixCache {
+    private static final String SOURCE = "shared-test-matrix";
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SharedTestMatrixCache cache = new SharedTestMatrixCache(clock::get);
+    private String json;
+
+    @Before
+    public void setUp() throws IOException {
+        json = Resources.toString(getClass().getResource("example-test-matrix.json"), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void testLoadersShareTestMatrix() throws Exception {
+        final CountingProctorLoader requiredLoader = new CountingProctorLoader(new ProctorSpecification(
+                Collections.emptyMap(),
+                ImmutableMap.of("exampletst", new TestSpecification()),
+                new DynamicFilters()
+        ));
+        final CountingProctorLoader dynamicLoader = new CountingProctorLoader(new ProctorSpecification(
+                Collections.emptyMap(),
+                Collections.emptyMap(),
+                new DynamicFilters(ImmutableList.of(new MetaTagsFilter(ImmutableSet.of("example_tag"))))
+        ));
+        requiredLoader.setSharedTestMatrixCache(cache, 1000);
+        dynamicLoader.setSharedTestMatrixCache(cache, 1000);
+
+        final Proctor requiredProctor = requiredLoader.doLoad();
+        final Proctor dynamicProctor = dynamicLoader.doLoad();
+
+        // fetched and parsed once
+        assertThat(requiredLoader.loadCount + dynamicLoader.loadCount).isEqualTo(1);
+        assertThat(cache.getLoads()).isEqualTo(1);
+        assertThat(cache.getHits()).isEqualTo(1);
+        assertThat(cache.getCachedBytes()).isGreaterThan(0);
+
+        // each loader only has its tests, as its own instances
+        assertThat(requiredProctor.getArtifact().getTests()).containsOnlyKeys("exampletst");
+        assertThat(dynamicProctor.getArtifact().getTests()).doesNotContainKey("exampletst");
+        final BinaryTestMatrixFormat.Index index = cache.get(SOURCE, 1000, (cachedAudit, cachedValidators) -> {
+            throw new AssertionError("should be cached");
+        });
+        assertThat(dynamicLoader.readReferencedTests(index)).containsOnlyKeys("meta_tags_tst");
+        assertThat(dynamicLoader.readReferencedTests(index).get("meta_tags_tst"))
+                .isNotSameAs(dynamicLoader.readReferencedTests(index).get("meta_tags_tst"));
+        assertThat(requiredLoader.getLastAudit().getVersion()).isEqualTo("1524");
+
+        // unchanged audit within max age
+        assertThat(requiredLoader.doLoad()).isNull();
+        assertThat(requiredLoader.loadCount + dynamicLoader.loadCount).isEqualTo(1);
+
+        // loaded again after max age, reported as unchanged
+        clock.addAndGet(1000);
+        assertThat(dynamicLoader.doLoad()).isNull();
+        assertThat(dynamicLoader.loadCount).isEqualTo(1);
+        assertThat(cache.getLoads()).isEqualTo(2);
+    }
+
+    private class CountingProctorLoader extends StringProctorLoader {
+        private int loadCount;
+
+        private CountingProctorLoader(final ProctorSpecification specification) {
+            super(specification, SOURCE, json);
+        }
+
+        @Override
+        protected TestMatrixArtifact loadTestMatrix() throws IOException {
+            loadCount++;
+            return super.loadTestMatrix();
+        }
+    }
+}
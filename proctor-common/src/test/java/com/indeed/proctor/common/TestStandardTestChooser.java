@@ -15,6 +15,7 @@ import org.easymock.classextension.EasyMock;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.el.ELContext;
 import javax.el.ExpressionFactory;
 import javax.el.FunctionMapper;
 import java.util.Collections;
@@ -159,6 +160,24 @@ public class TestStandardTestChooser {
         assertEquals("bucket1 hash", HASH_BUCKET1_SALT_AMP_TESTNAME, hashes[1]);
     }
 
+    @Test
+    public void testIdentifierSharedAcrossTests() {
+        final StandardTestChooser chooser = newChooser();
+        testDefinition.setSalt("&otherSalt");
+        final StandardTestChooser otherChooser = newChooser();
+
+        final Map<String, Object> values = Collections.emptyMap();
+        for (int accountId = 1; accountId < 1000; accountId++) {
+            final String identifier = String.valueOf(accountId);
+            // interleave choosers, as when determining groups of many tests for one request
+            final TestBucket bucket = chooser.choose(identifier, values, Collections.emptyMap()).getTestBucket();
+            final TestBucket otherBucket = otherChooser.choose(identifier, values, Collections.emptyMap()).getTestBucket();
+
+            assertEquals(bucket, chooser.choose(new String(identifier), values, Collections.emptyMap()).getTestBucket());
+            assertEquals(otherBucket, otherChooser.choose(new String(identifier), values, Collections.emptyMap()).getTestBucket());
+        }
+    }
+
     @Test
     public void testExceptionsDealtWith() {
         final String testName = "test";
@@ -173,10 +192,10 @@ public class TestStandardTestChooser {
         testDefinition.setSalt(testName);
         testDefinition.setBuckets(Collections.<TestBucket>emptyList());
 
-        final RuleEvaluator ruleEvaluator = EasyMock.createMock(RuleEvaluator.class);
+        final RuleEvaluator ruleEvaluator = createMockRuleEvaluator();
         EasyMock.expect(ruleEvaluator.evaluateBooleanRule(
-                EasyMock.<String>anyObject(),
-                EasyMock.<Map<String,Object>>anyObject()
+                EasyMock.<RuleEvaluator.PreparedRule>anyObject(),
+                EasyMock.<ELContext>anyObject()
         ))
                 // throw an unexpected type of runtime exception
                 .andThrow(new RuntimeException() {})
@@ -192,7 +211,7 @@ public class TestStandardTestChooser {
 
         // Ensure no exceptions thrown.
         final TestChooser.Result chooseResult = new StandardTestChooser(selector)
-                .choose("identifier", Collections.<String, Object>emptyMap(), Collections.emptyMap());
+                .choose("identifier", ImmutableMap.<String, Object>of("lang", "en"), Collections.emptyMap());
 
         assertNotNull(chooseResult);
         assertNull( "Expected no bucket to be found ", chooseResult.getTestBucket());
@@ -259,7 +278,7 @@ public class TestStandardTestChooser {
         );
 
         final TestChooser.Result chooseResult = new StandardTestChooser(selector)
-            .choose("identifier", Collections.<String, Object>emptyMap(), Collections.emptyMap());
+            .choose("identifier", ImmutableMap.<String, Object>of("lang", "en", "country", "GB"), Collections.emptyMap());
 
         assertEquals("Test bucket with value 1 expected", 1, chooseResult.getTestBucket().getValue());
         assertEquals("Test allocation with id #B1 expected", "#B1", chooseResult.getAllocation().getId());
@@ -342,10 +361,10 @@ public class TestStandardTestChooser {
     }
 
     private RuleEvaluator newRuleEvaluator(final boolean result) {
-        final RuleEvaluator ruleEvaluator = EasyMock.createMock(RuleEvaluator.class);
+        final RuleEvaluator ruleEvaluator = createMockRuleEvaluator();
         EasyMock.expect(ruleEvaluator.evaluateBooleanRule(
-            EasyMock.<String>anyObject(),
-            EasyMock.<Map<String,Object>>anyObject()
+            EasyMock.<RuleEvaluator.PreparedRule>anyObject(),
+            EasyMock.<ELContext>anyObject()
         ))
             .andReturn(result)
             .anyTimes();
@@ -353,6 +372,17 @@ public class TestStandardTestChooser {
         return ruleEvaluator;
     }
 
+    /**
+     * mock that still parses rules, so that only evaluation needs to be expected
+     */
+    private static RuleEvaluator createMockRuleEvaluator() {
+        final RuleEvaluator realRuleEvaluator = RuleEvaluator.createDefaultRuleEvaluator(Collections.emptyMap());
+        final RuleEvaluator ruleEvaluator = EasyMock.createMock(RuleEvaluator.class);
+        EasyMock.expect(ruleEvaluator.prepareBooleanRule(EasyMock.<String>anyObject()))
+                .andStubAnswer(() -> realRuleEvaluator.prepareBooleanRule((String) EasyMock.getCurrentArguments()[0]));
+        return ruleEvaluator;
+    }
+
     private void exerciseChooser(final StandardTestChooser rtc) {
         final int num = 10000000;
 
@@ -0,0 +1,49 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableList;
+import com.indeed.proctor.common.model.TestBucket;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestTestBucketIndex {
+    private static final TestBucket INACTIVE = new TestBucket("inactive", -1, "");
+    private static final TestBucket CONTROL = new TestBucket("control", 0, "");
+    private static final TestBucket ACTIVE = new TestBucket("active", 1, "");
+    private static final TestBucket DUPLICATE = new TestBucket("duplicate", 1, "");
+
+    @Test
+    public void testEmpty() {
+        final TestBucketIndex index = TestBucketIndex.of(Collections.emptyList());
+        assertThat(index.get(0)).isNull();
+        assertThat(index.get(Integer.MIN_VALUE)).isNull();
+    }
+
+    @Test
+    public void testDenseValues() {
+        final TestBucketIndex index = TestBucketIndex.of(ImmutableList.of(ACTIVE, INACTIVE, DUPLICATE, CONTROL));
+        assertThat(index.get(-1)).isSameAs(INACTIVE);
+        assertThat(index.get(0)).isSameAs(CONTROL);
+        assertThat(index.get(1)).isSameAs(ACTIVE);
+        assertThat(index.get(-2)).isNull();
+        assertThat(index.get(2)).isNull();
+        assertThat(index.get(Integer.MAX_VALUE)).isNull();
+        assertThat(index.get(Integer.MIN_VALUE)).isNull();
+    }
+
+    @Test
+    public void testSparseValues() {
+        final TestBucket large = new TestBucket("large", 1000000, "");
+        final TestBucket small = new TestBucket("small", Integer.MIN_VALUE, "");
+        final TestBucketIndex index = TestBucketIndex.of(ImmutableList.of(large, ACTIVE, small, DUPLICATE, CONTROL));
+        assertThat(index.get(1000000)).isSameAs(large);
+        assertThat(index.get(Integer.MIN_VALUE)).isSameAs(small);
+        assertThat(index.get(0)).isSameAs(CONTROL);
+        assertThat(index.get(1)).isSameAs(ACTIVE);
+        assertThat(index.get(-1)).isNull();
+        assertThat(index.get(999999)).isNull();
+        assertThat(index.get(Integer.MAX_VALUE)).isNull();
+    }
+}
@@ -0,0 +1,68 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableList;
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.Payload;
+import com.indeed.proctor.common.model.Range;
+import com.indeed.proctor.common.model.TestBucket;
+import com.indeed.proctor.common.model.TestDefinition;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+import com.indeed.proctor.common.model.TestType;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestTestDefinitionInterner {
+    @Test
+    public void testIntern() {
+        final ConsumableTestDefinition a = createTestDefinition("a_tst", new Payload("a"));
+        final ConsumableTestDefinition b = createTestDefinition("b_tst", new Payload("a"));
+        final ConsumableTestDefinition c = createTestDefinition("c_tst", new Payload("c"));
+        final TestBucket originalBucket = a.getBuckets().get(1);
+
+        final Map<String, ConsumableTestDefinition> tests = new HashMap<>();
+        tests.put("a_tst", a);
+        tests.put("b_tst", b);
+        tests.put("c_tst", c);
+        tests.put("null_tst", null);
+        final TestMatrixArtifact testMatrix = new TestMatrixArtifact();
+        testMatrix.setTests(tests);
+
+        final TestDefinitionInterner interner = new TestDefinitionInterner();
+        interner.intern(testMatrix);
+
+        assertThat(a.getRule()).isSameAs(b.getRule());
+        assertThat(a.getBuckets()).isSameAs(b.getBuckets());
+        assertThat(a.getAllocations()).isSameAs(b.getAllocations()).isSameAs(c.getAllocations());
+        assertThat(a.getBuckets().get(0)).isSameAs(c.getBuckets().get(0));
+        assertThat(a.getBuckets().get(1)).isNotSameAs(c.getBuckets().get(1));
+        assertThat(c.getBuckets().get(1).getPayload()).isEqualTo(new Payload("c"));
+        assertThat(a.getSalt()).isEqualTo("a_tst");
+
+        // buckets are replaced, not modified
+        assertThat(originalBucket.getName()).isEqualTo("test");
+        assertThat(originalBucket.getPayload()).isEqualTo(new Payload("a"));
+        assertThat(interner.getDuplicateCount()).isGreaterThan(0);
+        assertThat(interner.getEstimatedSavedBytes()).isGreaterThan(0);
+    }
+
+    private static ConsumableTestDefinition createTestDefinition(final String salt, final Payload payload) {
+        // strings are copied to be distinct instances
+        return ConsumableTestDefinition.fromTestDefinition(TestDefinition.builder()
+                .setTestType(TestType.ANONYMOUS_USER)
+                .setSalt(salt)
+                .setRule(new String("${lang == 'en'}"))
+                .addBuckets(
+                        new TestBucket(new String("control"), 0, "", null),
+                        new TestBucket(new String("test"), 1, "", payload)
+                )
+                .setAllocations(ImmutableList.of(
+                        new Allocation(null, ImmutableList.of(new Range(0, 0.5), new Range(1, 0.5)), new String("#A1"))
+                ))
+                .build());
+    }
+}
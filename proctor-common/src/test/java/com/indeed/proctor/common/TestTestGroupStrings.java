@@ -0,0 +1,55 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableList;
+import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.Range;
+import com.indeed.proctor.common.model.TestBucket;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestTestGroupStrings {
+
+    @Test
+    public void testRenderedGroups() {
+        final ConsumableTestDefinition testDefinition = new ConsumableTestDefinition();
+        testDefinition.setBuckets(ImmutableList.of(
+                new TestBucket("inactive", -1, ""),
+                new TestBucket("control", 0, ""),
+                new TestBucket("active", 1, ""),
+                new TestBucket("duplicate", 1, "")
+        ));
+        testDefinition.setAllocations(ImmutableList.of(
+                new Allocation("a", ImmutableList.of(new Range(1, 1.0)), "#A1"),
+                new Allocation("b", ImmutableList.of(new Range(0, 1.0)), ""),
+                new Allocation("c", ImmutableList.of(new Range(0, 1.0)), "#B2")
+        ));
+        final TestGroupStrings strings = TestGroupStrings.of("footst", testDefinition);
+
+        assertThat(strings.getTestGroup(-1)).isEqualTo("footst-1");
+        assertThat(strings.getTestGroup(1)).isEqualTo("footst1");
+        assertThat(strings.getTestGroup(1)).isSameAs(strings.getTestGroup(1));
+        assertThat(strings.getTestGroup(2)).isNull();
+        assertThat(strings.getTestGroupWithAllocation("#A1", 0)).isEqualTo("#A1:footst0");
+        assertThat(strings.getTestGroupWithAllocation("#B2", -1)).isEqualTo("#B2:footst-1");
+        assertThat(strings.getTestGroupWithAllocation("#B2", 1)).isSameAs(strings.getTestGroupWithAllocation("#B2", 1));
+        assertThat(strings.getTestGroupWithAllocation("", 1)).isNull();
+        assertThat(strings.getTestGroupWithAllocation("#C3", 1)).isNull();
+        assertThat(strings.getTestGroupWithAllocation("#A1", 2)).isNull();
+    }
+
+    @Test
+    public void testEmptyDefinition() {
+        final TestGroupStrings strings = TestGroupStrings.of("footst", new ConsumableTestDefinition());
+        assertThat(strings.getTestGroup(0)).isNull();
+        assertThat(strings.getTestGroupWithAllocation("#A1", 0)).isNull();
+
+        final ConsumableTestDefinition testDefinition = new ConsumableTestDefinition();
+        testDefinition.setBuckets(Collections.emptyList());
+        testDefinition.setAllocations(Collections.emptyList());
+        assertThat(TestGroupStrings.of("footst", testDefinition).getTestGroup(0)).isNull();
+    }
+}
@@ -13,6 +13,7 @@ import org.junit.Test;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.util.Collections.emptyMap;
@@ -77,6 +78,47 @@ public class TestTestRangeSelector {
                 .isEqualTo(-1);
     }
 
+    @Test
+    public void testFindMatchingRule_absentVariable() {
+        final TestRangeSelector selector = createTestRangeSelector(
+                stubTestDefinition(Arrays.asList("country == 'US' || lang == 'en'", "lang == 'en'", ""))
+                        .build()
+        );
+        final long processSkipCount = EvaluationStats.getInstance().getAbsentVariableSkipCount();
+        assertThat(selector.findMatchingRule(ImmutableMap.of("country", "US"), emptyMap()))
+                .isEqualTo(0); // lang is not evaluated
+        assertThat(selector.getAbsentVariableSkipCount()).isZero();
+
+        assertThat(selector.findMatchingRule(ImmutableMap.of("country", "JP"), emptyMap()))
+                .isEqualTo(-1); // evaluation fails with the absent lang
+        assertThat(selector.findMatchingRule(ImmutableMap.of("lang", "en"), emptyMap()))
+                .isEqualTo(-1);
+        assertThat(selector.getAbsentVariableSkipCount()).isEqualTo(1);
+        // also counted for all proctors, across reloads
+        assertThat(EvaluationStats.getInstance().getAbsentVariableSkipCount() - processSkipCount).isEqualTo(1);
+    }
+
+    @Test
+    public void testFindMatchingRule_absentVariableAfterNullComparison() {
+        final List<String> rules = Arrays.asList("version > minVersion", "version < maxVersion", "");
+        final TestRangeSelector selector = createTestRangeSelector(stubTestDefinition(rules).build());
+        // the right operands are not evaluated for a null left operand
+        final Map<String, Object> values = Collections.singletonMap("version", null);
+
+        final RuleEvaluator ruleEvaluator = RuleEvaluator.createDefaultRuleEvaluator(emptyMap());
+        int expected = -1;
+        for (int i = 0; i < rules.size(); i++) {
+            // evaluated without skipping rules with absent variables
+            if (ruleEvaluator.evaluateBooleanRule("${" + rules.get(i) + "}", values)) {
+                expected = i;
+                break;
+            }
+        }
+        assertThat(expected).isEqualTo(2);
+        assertThat(selector.findMatchingRule(values, emptyMap())).isEqualTo(expected);
+        assertThat(selector.getAbsentVariableSkipCount()).isZero();
+    }
+
     private static TestDefinition.Builder stubTestDefinition(final List<String> rules) {
         return TestDefinition.builder()
                 .setTestType(TestType.ANONYMOUS_USER)
@@ -0,0 +1,117 @@
+package com.indeed.proctor.common;
+
+import com.google.common.collect.ImmutableMap;
+import com.indeed.proctor.common.dynamic.DynamicFilters;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.GZIPOutputStream;
+
+import static com.indeed.proctor.common.JsonTestMatrixFixtures.testMatrixWithATst;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class TestUrlProctorLoader {
+    private HttpServer server;
+    // recorded by the server thread, asserted by the test
+    private final List<String> requestedEtags = new CopyOnWriteArrayList<>();
+    private final List<String> requestedEncodings = new CopyOnWriteArrayList<>();
+    private volatile String version = "1";
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/matrix.json", exchange -> {
+            final String etag = "\"v" + version + "\"";
+            requestedEtags.add(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            requestedEncodings.add(exchange.getRequestHeaders().getFirst("Accept-Encoding"));
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            final String json = testMatrixWithATst(version);
+            final ByteArrayOutputStream gzipped = new ByteArrayOutputStream();
+            try (OutputStream out = new GZIPOutputStream(gzipped)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.getResponseHeaders().add("Content-Encoding", "gzip");
+            exchange.sendResponseHeaders(200, gzipped.size());
+            try (OutputStream body = exchange.getResponseBody()) {
+                gzipped.writeTo(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testConditionalRequest() throws Exception {
+        final UrlProctorLoader loader = createLoader();
+
+        final Proctor proctor = loader.doLoad();
+        assertThat(proctor).isNotNull();
+        assertThat(proctor.getArtifact().getTests()).containsOnlyKeys("a_tst");
+
+        // not modified
+        assertThat(loader.doLoad()).isNull();
+
+        version = "2";
+        assertThat(loader.doLoad()).isNotNull();
+        assertThat(loader.getLastAudit().getVersion()).isEqualTo("2");
+
+        assertThat(requestedEtags).containsExactly(null, "\"v1\"", "\"v1\"");
+        assertThat(requestedEncodings).hasSize(3).allSatisfy(encoding -> assertThat(encoding).contains("gzip"));
+    }
+
+    @Test
+    public void testConditionalRequestForSharedCache() throws Exception {
+        final SharedTestMatrixCache cache = new SharedTestMatrixCache(() -> 0);
+        final UrlProctorLoader loader = createLoader();
+        final UrlProctorLoader otherLoader = createLoader();
+        // refreshed on every load
+        loader.setSharedTestMatrixCache(cache, 0);
+        otherLoader.setSharedTestMatrixCache(cache, 0);
+
+        assertThat(loader.doLoad()).isNotNull();
+        // the validators kept with the cached test matrix are sent by any loader
+        assertThat(otherLoader.doLoad()).isNotNull();
+        assertThat(loader.doLoad()).isNull();
+
+        version = "2";
+        assertThat(otherLoader.doLoad()).isNotNull();
+        assertThat(otherLoader.getLastAudit().getVersion()).isEqualTo("2");
+
+        assertThat(requestedEtags).containsExactly(null, "\"v1\"", "\"v1\"", "\"v1\"");
+        assertThat(cache.getLoads()).isEqualTo(4);
+    }
+
+    private UrlProctorLoader createLoader() throws IOException {
+        final UrlProctorLoader loader = new UrlProctorLoader(
+                new ProctorSpecification(
+                        Collections.emptyMap(),
+                        ImmutableMap.of("a_tst", new TestSpecification()),
+                        new DynamicFilters()
+                ),
+                new URL("http://localhost:" + server.getAddress().getPort() + "/matrix.json")
+        );
+        loader.setConnectTimeoutMillis(1000);
+        loader.setReadTimeoutMillis(1000);
+        return loader;
+    }
+}
@@ -127,6 +127,28 @@ public class TestDynamicFilters {
                 .isFalse();
     }
 
+    @Test
+    public void testMatchesTestName() {
+        final DynamicFilters nameFilters = new DynamicFilters(ImmutableList.of(
+                new TestNamePrefixFilter("abc_"),
+                new TestNamePatternFilter("def_.*")
+        ));
+        assertThat(nameFilters.requiresTestDefinition()).isFalse();
+        assertThat(nameFilters.matchesTestName("abc_tst")).isTrue();
+        assertThat(nameFilters.matchesTestName("def_tst")).isTrue();
+        assertThat(nameFilters.matchesTestName("ghi_tst")).isFalse();
+
+        final DynamicFilters mixedFilters = new DynamicFilters(ImmutableList.of(
+                new TestNamePrefixFilter("abc_"),
+                new TestTypeFilter(TestType.EMAIL_ADDRESS)
+        ));
+        assertThat(mixedFilters.requiresTestDefinition()).isTrue();
+        assertThat(mixedFilters.matchesTestName("abc_tst")).isTrue();
+        assertThat(mixedFilters.matchesTestName("def_tst")).isFalse();
+
+        assertThat(new DynamicFilters().requiresTestDefinition()).isFalse();
+    }
+
     private ConsumableTestDefinition constructTestDefinition(final TestType testType) {
         final ConsumableTestDefinition testDefinition = new ConsumableTestDefinition();
         testDefinition.setTestType(testType);
@@ -19,4 +19,17 @@ public class TestRuleAnalyzer {
         assertThat(RuleAnalyzer.getReferencedVariables("${null}")).isEmpty();
 
     }
+
+    @Test
+    public void testGetRequiredVariables() {
+        assertThat(RuleAnalyzer.getRequiredVariables("${lang == 'en' && country == 'US'}")).containsExactly("lang");
+        assertThat(RuleAnalyzer.getRequiredVariables("${!(lang == country)}")).containsExactlyInAnyOrder("lang", "country");
+        assertThat(RuleAnalyzer.getRequiredVariables("${proctor:contains(languages, lang)}")).containsExactlyInAnyOrder("languages", "lang");
+        assertThat(RuleAnalyzer.getRequiredVariables("${ua.version[index] > 8}")).containsExactly("ua");
+        assertThat(RuleAnalyzer.getRequiredVariables("${empty lang ? country : region}")).containsExactly("lang");
+        assertThat(RuleAnalyzer.getRequiredVariables("${version > minVersion}")).containsExactly("version");
+        assertThat(RuleAnalyzer.getRequiredVariables("${version < maxVersion}")).containsExactly("version");
+        assertThat(RuleAnalyzer.getRequiredVariables("${version >= minVersion}")).containsExactlyInAnyOrder("version", "minVersion");
+        assertThat(RuleAnalyzer.getRequiredVariables("${lang ==}")).isEmpty();
+    }
 }
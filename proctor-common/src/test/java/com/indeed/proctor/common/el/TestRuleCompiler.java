@@ -0,0 +1,100 @@
+package com.indeed.proctor.common.el;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.indeed.proctor.common.ProctorRuleFunctions;
+import org.junit.Test;
+
+import javax.el.BeanELResolver;
+import javax.el.CompositeELResolver;
+import javax.el.ELContext;
+import javax.el.ELResolver;
+import javax.el.FunctionMapper;
+import javax.el.MapELResolver;
+import javax.el.PropertyNotFoundException;
+import javax.el.VariableMapper;
+import java.util.Collections;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+public class TestRuleCompiler {
+    private static final FunctionMapper FUNCTION_MAPPER = new LibraryFunctionMapperBuilder()
+            .add("proctor", ProctorRuleFunctions.class)
+            .build();
+    private static final VariableMapper VARIABLE_MAPPER = new DeferredVariableMapper(Collections.emptyMap());
+
+    @Test
+    public void testCompiledRules() {
+        final Map<String, Object> values = ImmutableMap.of(
+                "lang", "en",
+                "country", "US",
+                "age", 21,
+                "ua", ImmutableMap.of("name", "ie9", "version", 9),
+                "languages", ImmutableList.of("en", "fr")
+        );
+
+        assertThat(evaluate("${lang == 'en'}", values)).isTrue();
+        assertThat(evaluate("${lang != 'en'}", values)).isFalse();
+        assertThat(evaluate("${lang == 'en' && country == 'US'}", values)).isTrue();
+        assertThat(evaluate("${lang == 'fr' || country == 'CA'}", values)).isFalse();
+        assertThat(evaluate("${!(lang == 'fr')}", values)).isTrue();
+        assertThat(evaluate("${not empty lang}", values)).isTrue();
+        assertThat(evaluate("${age >= 21 && age < 30}", values)).isTrue();
+        assertThat(evaluate("${age > 21 || age <= 20}", values)).isFalse();
+        assertThat(evaluate("${ua.name == 'ie9' && ua['version'] > 8}", values)).isTrue();
+        assertThat(evaluate("${proctor:contains(languages, lang)}", values)).isTrue();
+        assertThat(evaluate("${proctor:matches(country, '[A-Z]+')}", values)).isTrue();
+    }
+
+    @Test
+    public void testShortCircuit() {
+        // undefined is not resolved unless the first operand requires it
+        assertThat(evaluate("${lang == 'en' || undefined}", ImmutableMap.of("lang", "en"))).isTrue();
+        assertThatThrownBy(() -> evaluate("${lang == 'fr' || undefined}", ImmutableMap.of("lang", "en")))
+                .isInstanceOf(PropertyNotFoundException.class);
+    }
+
+    @Test
+    public void testUnsupportedRules() {
+        // not of boolean type
+        assertThat(RuleCompiler.compile("${lang}", FUNCTION_MAPPER, VARIABLE_MAPPER)).isNull();
+        assertThat(RuleCompiler.compile("${age + 1}", FUNCTION_MAPPER, VARIABLE_MAPPER)).isNull();
+        // arithmetic and method invocation
+        assertThat(RuleCompiler.compile("${age + 1 > 2}", FUNCTION_MAPPER, VARIABLE_MAPPER)).isNull();
+        assertThat(RuleCompiler.compile("${lang.isEmpty() == false}", FUNCTION_MAPPER, VARIABLE_MAPPER)).isNull();
+        // literal text
+        assertThat(RuleCompiler.compile("x${lang == 'en'}", FUNCTION_MAPPER, VARIABLE_MAPPER)).isNull();
+        // unparseable
+        assertThat(RuleCompiler.compile("${lang ==}", FUNCTION_MAPPER, VARIABLE_MAPPER)).isNull();
+    }
+
+    private static boolean evaluate(final String rule, final Map<String, Object> values) {
+        final RuleCompiler.CompiledRule compiledRule = RuleCompiler.compile(rule, FUNCTION_MAPPER, VARIABLE_MAPPER);
+        assertThat(compiledRule).as(rule).isNotNull();
+        return compiledRule.evaluate(createELContext(), values);
+    }
+
+    private static ELContext createELContext() {
+        final CompositeELResolver elResolver = new CompositeELResolver();
+        elResolver.add(new MapELResolver());
+        elResolver.add(new BeanELResolver());
+        return new ELContext() {
+            @Override
+            public ELResolver getELResolver() {
+                return elResolver;
+            }
+
+            @Override
+            public FunctionMapper getFunctionMapper() {
+                return FUNCTION_MAPPER;
+            }
+
+            @Override
+            public VariableMapper getVariableMapper() {
+                return VARIABLE_MAPPER;
+            }
+        };
+    }
+}
@@ -3,6 +3,8 @@ package com.indeed.proctor.consumer;
 import com.google.common.base.Strings;
 import com.google.common.collect.Maps;
 import com.indeed.proctor.common.ProctorResult;
+import com.indeed.proctor.common.TestGroupStrings;
+import com.indeed.proctor.common.TestNameIndex;
 import com.indeed.proctor.common.model.Allocation;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
 import com.indeed.proctor.common.model.Payload;
@@ -37,7 +39,26 @@ import java.util.stream.Collectors;
  */
 public abstract class AbstractGroups {
     private static final Logger LOGGER = LogManager.getLogger(AbstractGroups.class);
+    /**
+     * whether a subclass overrides getValue(String, int) or isBucketActive(String, int, int),
+     * in which case lookups by ordinal call those methods
+     */
+    private static final ClassValue<Boolean> OVERRIDES_GET_VALUE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return overrides(type, "getValue", String.class, int.class);
+        }
+    };
+    private static final ClassValue<Boolean> OVERRIDES_IS_BUCKET_ACTIVE = new ClassValue<Boolean>() {
+        @Override
+        protected Boolean computeValue(final Class<?> type) {
+            return overrides(type, "isBucketActive", String.class, int.class, int.class);
+        }
+    };
+
     private final ProctorResult proctorResult;
+    private final boolean overridesGetValue;
+    private final boolean overridesIsBucketActive;
 
     // Option using injected Observer
     @CheckForNull
@@ -64,6 +85,20 @@ public abstract class AbstractGroups {
     ) {
         this.proctorResult = proctorResult;
         this.testUsageObserver = testUsageObserver;
+        this.overridesGetValue = OVERRIDES_GET_VALUE.get(getClass());
+        this.overridesIsBucketActive = OVERRIDES_IS_BUCKET_ACTIVE.get(getClass());
+    }
+
+    private static boolean overrides(final Class<?> type, final String methodName, final Class<?>... parameterTypes) {
+        for (Class<?> cls = type; cls != AbstractGroups.class; cls = cls.getSuperclass()) {
+            try {
+                cls.getDeclaredMethod(methodName, parameterTypes);
+                return true;
+            } catch (final NoSuchMethodException e) {
+                // not declared in this class
+            }
+        }
+        return false;
     }
 
     /**
@@ -143,6 +178,83 @@ public abstract class AbstractGroups {
                 .orElse(defaultValue);
     }
 
+    /**
+     * Same as isBucketActive(testName, value, fallbackValue) for a test of generated code,
+     * looking up the bucket by the ordinal of the test if possible.
+     *
+     * @param testOrdinals ordinals of the tests of the generated class
+     * @param testPosition position of the test in testOrdinals
+     */
+    // used from generated code
+    protected final boolean isBucketActive(@Nonnull final TestOrdinals testOrdinals, final int testPosition, final int value) {
+        if (overridesIsBucketActive) {
+            return isBucketActive(testOrdinals.getTestName(testPosition), value, testOrdinals.getFallbackValue(testPosition));
+        }
+        return value == getValue(testOrdinals, testPosition);
+    }
+
+    /**
+     * Same as getValue(testName, fallbackValue) for a test of generated code,
+     * looking up the bucket by the ordinal of the test if possible.
+     *
+     * @param testOrdinals ordinals of the tests of the generated class
+     * @param testPosition position of the test in testOrdinals
+     */
+    // used from generated code
+    protected final int getValue(@Nonnull final TestOrdinals testOrdinals, final int testPosition) {
+        final String testName = testOrdinals.getTestName(testPosition);
+        final int fallbackValue = testOrdinals.getFallbackValue(testPosition);
+        if (overridesGetValue) {
+            return getValue(testName, fallbackValue);
+        }
+        final TestBucket bucket = getActiveBucketByOrdinal(testOrdinals, testPosition);
+        if (bucket == null) {
+            return fallbackValue;
+        }
+        if (testUsageObserver != null) {
+            testUsageObserver.markUsedForToggling(testName);
+        }
+        return bucket.getValue();
+    }
+
+    /**
+     * Same as getPayload(testName, fallbackValue) for a test of generated code,
+     * looking up the bucket by the ordinal of the test if possible.
+     *
+     * @param testOrdinals ordinals of the tests of the generated class
+     * @param testPosition position of the test in testOrdinals
+     */
+    @Nonnull
+    // used from generated code
+    protected final Payload getPayload(@Nonnull final TestOrdinals testOrdinals, final int testPosition) {
+        final String testName = testOrdinals.getTestName(testPosition);
+        final TestBucket bucket = getActiveBucketByOrdinal(testOrdinals, testPosition);
+        if (bucket == null) {
+            return getPayload(testName, testOrdinals.getFallbackValue(testPosition));
+        }
+        if (testUsageObserver != null) {
+            testUsageObserver.markUsedForToggling(testName);
+        }
+        return (bucket.getPayload() == null) ? Payload.EMPTY_PAYLOAD : bucket.getPayload();
+    }
+
+    /**
+     * Same as getActiveBucketWithoutMarkingUsage(testName).orElse(null), without a lookup by test name
+     * if the result is indexed by test ordinals
+     */
+    @CheckForNull
+    private TestBucket getActiveBucketByOrdinal(@Nonnull final TestOrdinals testOrdinals, final int testPosition) {
+        final String testName = testOrdinals.getTestName(testPosition);
+        final TestNameIndex testNameIndex = proctorResult.getTestNameIndex();
+        final int ordinal = (testNameIndex == null) ? -1 : testOrdinals.getOrdinal(testNameIndex, testPosition);
+        if (ordinal < 0) {
+            // not indexed, or the test is unknown to the index but might have been put by clients
+            return getActiveBucketWithoutMarkingUsage(testName).orElse(null);
+        }
+        final TestBucket bucket = proctorResult.getBucket(ordinal);
+        return (bucket == null) ? null : overrideBucket(testName, bucket);
+    }
+
     protected final int getValueWithoutMarkingUsage(final String testName, final int defaultValue) {
         // using getActiveBucket to allow overrides
         return getActiveBucketWithoutMarkingUsage(testName)
@@ -188,18 +300,26 @@ public abstract class AbstractGroups {
         if (bucket == null) {
             return Optional.empty();
         }
+        return Optional.of(overrideBucket(testName, bucket));
+    }
+
+    /**
+     * @return the determined bucket, or the bucket of the override value if valid
+     */
+    @Nonnull
+    private TestBucket overrideBucket(final String testName, @Nonnull final TestBucket bucket) {
         // allow users to select a different testbucket, if testname was valid
         final int overrideBucketValue = overrideDeterminedBucketValue(testName, bucket);
         if ((overrideBucketValue != bucket.getValue())) {
             // get bucket from definition with that override value from Definition
-            final Optional<TestBucket> overrideBucketOpt = getTestBucketWithValueOptional(proctorResult, testName, overrideBucketValue);
-            if (overrideBucketOpt.isPresent()) {
-                return overrideBucketOpt;
+            final TestBucket overridingBucket = proctorResult.getTestBucketWithValue(testName, overrideBucketValue);
+            if (overridingBucket != null) {
+                return overridingBucket;
             }
             LOGGER.warn("Overriding bucket value " + overrideBucketValue + " for test '" + testName
                     + "' does not match any bucket in test definition, using determined bucket value " + bucket.getValue());
         }
-        return Optional.of(bucket);
+        return bucket;
     }
 
     /**
@@ -251,8 +371,8 @@ public abstract class AbstractGroups {
     /**
      * Return the TestBucket, as defined in the current test matrix, for the test called testName with bucket value targetBucket.getValue().
      * Can return null if it can't find any such bucket.
-     * This does a linear search over the list of defined buckets.  There shouldn't be too many buckets in any test,
-     * so this should be fast enough.
+     * Results determined by Proctor look up buckets indexed by value once per test matrix,
+     * other results do a linear search over the list of defined buckets.
      *
      * @param testName     test name
      * @param targetBucket target bucket
@@ -264,23 +384,9 @@ public abstract class AbstractGroups {
         return getTestBucketWithValue(testName, targetBucket.getValue());
     }
 
-    private static Optional<TestBucket> getTestBucketWithValueOptional(
-            final ProctorResult proctorResult,
-            final String testName,
-            final int bucketValue
-    ) {
-        return Optional.ofNullable(proctorResult.getTestDefinitions())
-                .map(testDefinitions -> testDefinitions.get(testName))
-                .map(ConsumableTestDefinition::getBuckets)
-                .flatMap(buckets -> buckets.stream()
-                        .filter(testBucket -> testBucket.getValue() == bucketValue)
-                        .findFirst());
-    }
-
     @CheckForNull
     final TestBucket getTestBucketWithValue(final String testName, final int bucketValue) {
-        return getTestBucketWithValueOptional(proctorResult, testName, bucketValue)
-                .orElse(null);
+        return proctorResult.getTestBucketWithValue(testName, bucketValue);
     }
 
 
@@ -409,8 +515,15 @@ public abstract class AbstractGroups {
      */
     protected final void appendTestGroupsWithoutAllocations(final StringBuilder sb, final char separator, final List<String> testNames) {
         for (final String testName : testNames) {
-            getActiveBucketWithoutMarkingUsage(testName).ifPresent(testBucket ->
-                sb.append(testName).append(testBucket.getValue()).append(separator));
+            getActiveBucketWithoutMarkingUsage(testName).ifPresent(testBucket -> {
+                final TestGroupStrings testGroupStrings = proctorResult.getTestGroupStrings(testName);
+                final String testGroup = (testGroupStrings == null) ? null : testGroupStrings.getTestGroup(testBucket.getValue());
+                if (testGroup != null) {
+                    sb.append(testGroup).append(separator);
+                } else {
+                    sb.append(testName).append(testBucket.getValue()).append(separator);
+                }
+            });
         }
     }
 
@@ -423,6 +536,14 @@ public abstract class AbstractGroups {
                 // no allocation might exist for this testbucket
                 final Allocation allocation = proctorResult.getAllocations().get(testName);
                 if ((allocation != null) && !Strings.isNullOrEmpty(allocation.getId())) {
+                    final TestGroupStrings testGroupStrings = proctorResult.getTestGroupStrings(testName);
+                    final String testGroup = (testGroupStrings == null)
+                            ? null
+                            : testGroupStrings.getTestGroupWithAllocation(allocation.getId(), testBucket.getValue());
+                    if (testGroup != null) {
+                        sb.append(testGroup).append(separator);
+                        return;
+                    }
                     sb.append(allocation.getId())
                             .append(ALLOCATION_GROUP_SEPARATOR)
                             .append(testName).append(testBucket.getValue()).append(separator);
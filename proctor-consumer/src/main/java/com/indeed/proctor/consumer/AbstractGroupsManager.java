@@ -2,6 +2,7 @@ package com.indeed.proctor.consumer;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.base.Supplier;
+import com.indeed.proctor.common.ForceGroupsOptions;
 import com.indeed.proctor.common.Identifiers;
 import com.indeed.proctor.common.Proctor;
 import com.indeed.proctor.common.ProctorResult;
@@ -83,12 +84,29 @@ public abstract class AbstractGroupsManager implements ProctorContextDescriptor
                     emptyMap()
             );
         }
-        final ProctorResult proctorResult = proctor.determineTestGroups(identifiers, context, forcedGroups);
+        final ProctorResult proctorResult = isLazyEvaluation()
+                ? proctor.determineTestGroupsLazily(
+                        identifiers,
+                        context,
+                        ForceGroupsOptions.builder().putAllForceGroups(forcedGroups).build())
+                : proctor.determineTestGroups(identifiers, context, forcedGroups);
 
         interceptor.afterDetermineGroups(proctorResult);
         return proctorResult;
     }
 
+    /**
+     * Subclasses can return true to determine each test only when its group is first used,
+     * e.g. by generated accessors of {@link AbstractGroups}, see {@link Proctor#determineTestGroupsLazily}.
+     * Logging groups determines all tests, so logged groups are the same as determined eagerly.
+     * Results must then not be shared among threads.
+     *
+     * @return true to determine tests on demand, false (default) to determine all tests upfront
+     */
+    protected boolean isLazyEvaluation() {
+        return false;
+    }
+
     protected abstract Map<String, TestBucket> getDefaultBucketValues();
 
     /**
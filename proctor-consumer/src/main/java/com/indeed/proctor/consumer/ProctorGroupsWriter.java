@@ -1,6 +1,7 @@
 package com.indeed.proctor.consumer;
 
 import com.indeed.proctor.common.ProctorResult;
+import com.indeed.proctor.common.TestGroupStrings;
 import com.indeed.proctor.common.model.Allocation;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
 import com.indeed.proctor.common.model.TestBucket;
@@ -8,10 +9,12 @@ import com.indeed.proctor.consumer.logging.TestGroupFormatter;
 
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.BiPredicate;
 
 
@@ -29,19 +32,25 @@ public class ProctorGroupsWriter {
     // for historic reasons, allow more than one formatter
     private final TestGroupFormatter[] formatters;
     private final BiPredicate<String, ProctorResult> testFilter;
+    // latest string written by each thread, or null if disabled. Results are weakly referenced, not to keep them alive
+    @Nullable
+    private final ThreadLocal<LatestString> latestStrings;
 
     /**
      * @param groupsSeparator how elements in logged string are separated
      * @param formatters ideally only one, all groups will be logged for all formatters
      * @param testFilter only log tests passing this predicate
+     * @param reuseLatestString whether to return the latest string of a thread again for the same result
      */
     private ProctorGroupsWriter(
             final char groupsSeparator,
             final TestGroupFormatter[] formatters,
-            final BiPredicate<String, ProctorResult> testFilter) {
+            final BiPredicate<String, ProctorResult> testFilter,
+            final boolean reuseLatestString) {
         this.groupsSeparator = groupsSeparator;
         this.formatters = formatters.clone();
         this.testFilter = testFilter;
+        this.latestStrings = reuseLatestString ? new ThreadLocal<>() : null;
     }
 
     /**
@@ -56,6 +65,20 @@ public class ProctorGroupsWriter {
      * @return a String like "classifier1,classifier2,..,group1format1,group2format1,...,group1format2,group2format2..."
      */
     public final String writeGroupsAsString(final ProctorResult proctorResult, final String... classifiers) {
+        if (latestStrings == null) {
+            return buildGroupsString(proctorResult, classifiers);
+        }
+        final LatestString latest = latestStrings.get();
+        // same instance, typically logged several times in a request
+        if ((latest != null) && (latest.proctorResult.get() == proctorResult) && Arrays.equals(latest.classifiers, classifiers)) {
+            return latest.value;
+        }
+        final String value = buildGroupsString(proctorResult, classifiers);
+        latestStrings.set(new LatestString(proctorResult, classifiers.clone(), value));
+        return value;
+    }
+
+    private String buildGroupsString(final ProctorResult proctorResult, final String... classifiers) {
         final List<String> filteredTestNames = new ArrayList<>(proctorResult.getBuckets().size());
         for (final String testName : proctorResult.getBuckets().keySet()) {
             if (testFilter.test(testName, proctorResult)) {
@@ -84,14 +107,15 @@ public class ProctorGroupsWriter {
 
         for (final TestGroupFormatter formatter: formatters) {
             for (final String testName : filteredTestNames) {
-                // no allocation might exist for this testbucket
-                final String allocId = Optional.ofNullable(proctorResult.getAllocations().get(testName))
-                        .map(Allocation::getId)
-                        .orElse("");
-                // allocation should never be null, guarding against NPE anyway
-                // id can be blank for historical data
+                final String allocId = getAllocationId(proctorResult, testName);
+                final TestBucket testBucket = proctorResult.getBuckets().get(testName);
                 final int lengthBefore = stringBuilder.length();
-                formatter.appendProctorTestGroup(stringBuilder, testName, allocId, proctorResult.getBuckets().get(testName));
+                final String testGroup = getRenderedTestGroup(formatter, proctorResult, testName, allocId, testBucket);
+                if (testGroup != null) {
+                    stringBuilder.append(testGroup);
+                } else {
+                    formatter.appendProctorTestGroup(stringBuilder, testName, allocId, testBucket);
+                }
                 // append separator unless formatter did not append anything
                 if (lengthBefore < stringBuilder.length()) {
                     stringBuilder.append(groupsSeparator);
@@ -105,6 +129,141 @@ public class ProctorGroupsWriter {
         return stringBuilder.toString();
     }
 
+    /**
+     * Same as writeGroupsAsString(), but appending directly to the given Appendable,
+     * e.g. the buffer of a log record or a CharBuffer, instead of building a String.
+     * Unlike writeGroupsAsString(), the test filter is called once per formatter for each test.
+     *
+     * @param appendable to which to append to, e.g. a StringBuilder or a Writer
+     * @param classifiers: Optional, Used to for filtering in log string analysis
+     */
+    public final void writeGroups(
+            final Appendable appendable,
+            final ProctorResult proctorResult,
+            final String... classifiers
+    ) throws IOException {
+        final SeparatedAppendable separated = new SeparatedAppendable(appendable, groupsSeparator);
+        for (final String classifier: classifiers) {
+            separated.appendElement(classifier);
+        }
+        for (final TestGroupFormatter formatter: formatters) {
+            for (final Map.Entry<String, TestBucket> entry : proctorResult.getBuckets().entrySet()) {
+                final String testName = entry.getKey();
+                if (testFilter.test(testName, proctorResult)) {
+                    // separator is only appended if the formatter appends anything
+                    separated.startElement();
+                    final String allocId = getAllocationId(proctorResult, testName);
+                    final String testGroup = getRenderedTestGroup(formatter, proctorResult, testName, allocId, entry.getValue());
+                    if (testGroup != null) {
+                        separated.append(testGroup);
+                    } else {
+                        formatter.appendProctorTestGroup(separated, testName, allocId, entry.getValue());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the form of the test group rendered once per test matrix, or null to format it
+     */
+    @Nullable
+    private static String getRenderedTestGroup(
+            final TestGroupFormatter formatter,
+            final ProctorResult proctorResult,
+            final String testName,
+            final String allocId,
+            final TestBucket testBucket
+    ) {
+        final TestGroupStrings testGroupStrings = proctorResult.getTestGroupStrings(testName);
+        return (testGroupStrings == null) ? null : formatter.getRenderedTestGroup(testGroupStrings, allocId, testBucket);
+    }
+
+    private static String getAllocationId(final ProctorResult proctorResult, final String testName) {
+        // no allocation might exist for this testbucket
+        // allocation should never be null, guarding against NPE anyway
+        final Allocation allocation = proctorResult.getAllocations().get(testName);
+        // id can be blank for historical data
+        return (allocation == null) ? "" : allocation.getId();
+    }
+
+    private static final class LatestString {
+        private final WeakReference<ProctorResult> proctorResult;
+        private final String[] classifiers;
+        private final String value;
+
+        private LatestString(final ProctorResult proctorResult, final String[] classifiers, final String value) {
+            this.proctorResult = new WeakReference<>(proctorResult);
+            this.classifiers = classifiers;
+            this.value = value;
+        }
+    }
+
+    /**
+     * Appends the separator before the first append of each element, except for the first element.
+     */
+    private static final class SeparatedAppendable implements Appendable {
+        private final Appendable appendable;
+        private final char separator;
+        private boolean empty = true;
+        private boolean elementStarted;
+
+        private SeparatedAppendable(final Appendable appendable, final char separator) {
+            this.appendable = appendable;
+            this.separator = separator;
+        }
+
+        private void startElement() {
+            elementStarted = true;
+        }
+
+        /**
+         * appends a whole element, even if empty
+         */
+        private void appendElement(final String element) throws IOException {
+            startElement();
+            separate();
+            appendable.append(element);
+        }
+
+        private void separate() throws IOException {
+            if (elementStarted) {
+                if (!empty) {
+                    appendable.append(separator);
+                }
+                empty = false;
+                elementStarted = false;
+            }
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq) throws IOException {
+            if ((csq != null) && (csq.length() == 0)) {
+                return this;
+            }
+            separate();
+            appendable.append(csq);
+            return this;
+        }
+
+        @Override
+        public Appendable append(final CharSequence csq, final int start, final int end) throws IOException {
+            if ((csq != null) && (start == end)) {
+                return this;
+            }
+            separate();
+            appendable.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(final char c) throws IOException {
+            separate();
+            appendable.append(c);
+            return this;
+        }
+    }
+
     public static class Builder {
         private final TestGroupFormatter[] formatters;
         private char groupSeparator = DEFAULT_GROUPS_SEPARATOR;
@@ -112,6 +271,7 @@ public class ProctorGroupsWriter {
         private boolean includeTestWithoutDefinition = true;
         private boolean includeInactiveGroups;
         private BiPredicate<String, ProctorResult> additionalFilter;
+        private boolean reuseLatestString;
 
         public Builder(final TestGroupFormatter formatter) {
             this.formatters = new TestGroupFormatter[]{formatter};
@@ -174,6 +334,17 @@ public class ProctorGroupsWriter {
             return this;
         }
 
+        /**
+         * default false, when true writeGroupsAsString() returns the string it latest returned in the same thread
+         * if called again with the same ProctorResult instance and classifiers, e.g. when a request is logged several times.
+         * Only enable it if results are not modified after being logged, and the additional filter returns the same for the same result.
+         * Threads only keep the latest string, and a weak reference to its result, so results are not kept alive by the writer.
+         */
+        public Builder setReuseLatestString(final boolean reuseLatestString) {
+            this.reuseLatestString = reuseLatestString;
+            return this;
+        }
+
         public ProctorGroupsWriter build() {
             return new ProctorGroupsWriter(
                     groupSeparator,
@@ -204,7 +375,8 @@ public class ProctorGroupsWriter {
                             return additionalFilter.test(testName, proctorResult);
                         }
                         return true;
-                    });
+                    },
+                    reuseLatestString);
         }
     }
 }
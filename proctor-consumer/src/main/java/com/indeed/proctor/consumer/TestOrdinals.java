@@ -0,0 +1,46 @@
+package com.indeed.proctor.consumer;
+
+import com.indeed.proctor.common.TestNameIndex;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Ordinals of the tests of a generated groups class in the {@link TestNameIndex} of the current test matrix,
+ * so that generated accessors look up buckets by ordinal instead of by test name.
+ *
+ * Ordinals are resolved once per test matrix, when a result of a new test matrix is first used, and kept by its index.
+ * Tests are identified by their position in the array given to the constructor, e.g. the ordinal of a test enum.
+ */
+public final class TestOrdinals {
+    @Nonnull
+    private final String[] testNames;
+    @Nonnull
+    private final int[] fallbackValues;
+
+    // used from generated code
+    public TestOrdinals(@Nonnull final Test[] tests) {
+        testNames = new String[tests.length];
+        fallbackValues = new int[tests.length];
+        for (int i = 0; i < tests.length; i++) {
+            testNames[i] = tests[i].getName();
+            fallbackValues[i] = tests[i].getFallbackValue();
+        }
+    }
+
+    @Nonnull
+    String getTestName(final int position) {
+        return testNames[position];
+    }
+
+    int getFallbackValue(final int position) {
+        return fallbackValues[position];
+    }
+
+    /**
+     * @return the ordinal of the test in the index, or -1 if the index does not have the test
+     */
+    int getOrdinal(@Nonnull final TestNameIndex testNameIndex, final int position) {
+        // resolved once per index, which is per test matrix, also while results of several indices are in use
+        return testNameIndex.getOrdinals(this, testNames)[position];
+    }
+}
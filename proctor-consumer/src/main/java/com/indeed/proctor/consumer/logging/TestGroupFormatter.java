@@ -1,33 +1,103 @@
 package com.indeed.proctor.consumer.logging;
 
+import com.indeed.proctor.common.TestGroupStrings;
 import com.indeed.proctor.common.model.TestBucket;
 import org.apache.commons.lang3.StringUtils;
 
+import javax.annotation.CheckForNull;
+import java.io.IOException;
+
 /**
  * Formatters append to a provided StringBuilder for efficiency reasons, but
  * generally exist to create a String representing a resolved proctor group
  */
 public interface TestGroupFormatter {
 
-    char DEFAULT_ALLOCATION_GROUP_SEPARATOR = ':';
+    char DEFAULT_ALLOCATION_GROUP_SEPARATOR = TestGroupStrings.ALLOCATION_GROUP_SEPARATOR;
 
     /**
      * Appends test groups in the form with allocation ids as [test-name + bucket-value] for given test names.
      */
-    TestGroupFormatter WITHOUT_ALLOC_ID = (sb, testName, allocationId, bucketValue) -> sb
-            .append(testName)
-            .append(bucketValue.getValue());
+    TestGroupFormatter WITHOUT_ALLOC_ID = new TestGroupFormatter() {
+        @Override
+        public void appendProctorTestGroup(
+                final StringBuilder stringBuilder,
+                final String testName,
+                final String allocationId,
+                final TestBucket bucketValue
+        ) {
+            stringBuilder
+                    .append(testName)
+                    .append(bucketValue.getValue());
+        }
+
+        @Override
+        public void appendProctorTestGroup(
+                final Appendable appendable,
+                final String testName,
+                final String allocationId,
+                final TestBucket bucketValue
+        ) throws IOException {
+            appendable
+                    .append(testName)
+                    .append(Integer.toString(bucketValue.getValue()));
+        }
+
+        @Override
+        public String getRenderedTestGroup(
+                final TestGroupStrings testGroupStrings,
+                final String allocationId,
+                final TestBucket bucketValue
+        ) {
+            return testGroupStrings.getTestGroup(bucketValue.getValue());
+        }
+    };
 
     /**
      * Appends test groups in the form with allocation ids as [allocation-id + ":" + test-name + bucket-value] for given test names.
      * If allocation Id is empty, appends nothing
      */
-    TestGroupFormatter WITH_ALLOC_ID = (sb, testName, allocationId, bucketValue) -> {
-        if (!StringUtils.isEmpty(allocationId)) {
-            sb
-                    .append(allocationId)
-                    .append(DEFAULT_ALLOCATION_GROUP_SEPARATOR);
-            WITHOUT_ALLOC_ID.appendProctorTestGroup(sb, testName, allocationId, bucketValue);
+    TestGroupFormatter WITH_ALLOC_ID = new TestGroupFormatter() {
+        @Override
+        public void appendProctorTestGroup(
+                final StringBuilder stringBuilder,
+                final String testName,
+                final String allocationId,
+                final TestBucket bucketValue
+        ) {
+            if (!StringUtils.isEmpty(allocationId)) {
+                stringBuilder
+                        .append(allocationId)
+                        .append(DEFAULT_ALLOCATION_GROUP_SEPARATOR);
+                WITHOUT_ALLOC_ID.appendProctorTestGroup(stringBuilder, testName, allocationId, bucketValue);
+            }
+        }
+
+        @Override
+        public void appendProctorTestGroup(
+                final Appendable appendable,
+                final String testName,
+                final String allocationId,
+                final TestBucket bucketValue
+        ) throws IOException {
+            if (!StringUtils.isEmpty(allocationId)) {
+                appendable
+                        .append(allocationId)
+                        .append(DEFAULT_ALLOCATION_GROUP_SEPARATOR);
+                WITHOUT_ALLOC_ID.appendProctorTestGroup(appendable, testName, allocationId, bucketValue);
+            }
+        }
+
+        @Override
+        public String getRenderedTestGroup(
+                final TestGroupStrings testGroupStrings,
+                final String allocationId,
+                final TestBucket bucketValue
+        ) {
+            if (StringUtils.isEmpty(allocationId)) {
+                return "";
+            }
+            return testGroupStrings.getTestGroupWithAllocation(allocationId, bucketValue.getValue());
         }
     };
 
@@ -43,4 +113,37 @@ public interface TestGroupFormatter {
             final String testName,
             final String allocationId,
             final TestBucket bucketValue);
+
+    /**
+     * same as appendProctorTestGroup(StringBuilder, ...), but appending to any Appendable,
+     * e.g. a buffer of a log record or a CharBuffer, without building an intermediate String.
+     * The default implementation formats into a new StringBuilder first, formatters should override it to append directly.
+     * @param appendable An Appendable to which to append to.
+     */
+    default void appendProctorTestGroup(
+            final Appendable appendable,
+            final String testName,
+            final String allocationId,
+            final TestBucket bucketValue
+    ) throws IOException {
+        final StringBuilder stringBuilder = new StringBuilder(testName.length() + 10);
+        appendProctorTestGroup(stringBuilder, testName, allocationId, bucketValue);
+        appendable.append(stringBuilder);
+    }
+
+    /**
+     * Representation for the given testbucket of this testname in the given allocation,
+     * if it is among the forms rendered once per test matrix, to be appended as a whole instead of formatting it.
+     * The default implementation returns null, as custom formats are not rendered.
+     * @param testGroupStrings forms rendered for the test of the group
+     * @return the representation, or null to format it by appendProctorTestGroup()
+     */
+    @CheckForNull
+    default String getRenderedTestGroup(
+            final TestGroupStrings testGroupStrings,
+            final String allocationId,
+            final TestBucket bucketValue
+    ) {
+        return null;
+    }
 }
@@ -1,5 +1,7 @@
 package com.indeed.proctor.consumer;
 
+import com.google.common.collect.ImmutableMap;
+import com.indeed.proctor.common.ForceGroupsOptions;
 import com.indeed.proctor.common.Identifiers;
 import com.indeed.proctor.common.Proctor;
 import com.indeed.proctor.common.ProctorResult;
@@ -15,6 +17,7 @@ import java.util.Map;
 
 import static com.indeed.proctor.consumer.ProctorConsumerUtils.FORCE_GROUPS_PARAMETER;
 import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.isA;
 import static org.mockito.Mockito.clearInvocations;
@@ -121,4 +124,35 @@ public class AbstractGroupsManagerTest {
         verify(loggerMock).info("called before");
         verify(loggerMock).info("called after");
     }
+
+    @Test
+    public void testLazyEvaluation() {
+        final Proctor proctorMock = mock(Proctor.class);
+        final ProctorResult proctorResultMock = mock(ProctorResult.class);
+        final Identifiers identifiers = Identifiers.of(TestType.ANONYMOUS_USER, "fooUser");
+        final AbstractGroupsManager manager = new AbstractGroupsManager(() -> proctorMock) {
+            @Override
+            public Map<String, String> getProvidedContext() {
+                return null;
+            }
+
+            @Override
+            protected Map<String, TestBucket> getDefaultBucketValues() {
+                return null;
+            }
+
+            @Override
+            protected boolean isLazyEvaluation() {
+                return true;
+            }
+        };
+        final ForceGroupsOptions forceGroupsOptions = ForceGroupsOptions.builder().putForceGroup("footst", 1).build();
+        when(proctorMock.determineTestGroupsLazily(identifiers, emptyMap(), forceGroupsOptions))
+                .thenReturn(proctorResultMock);
+
+        assertThat(manager.determineBucketsInternal(identifiers, emptyMap(), ImmutableMap.of("footst", 1)))
+                .isSameAs(proctorResultMock);
+        verify(proctorMock).determineTestGroupsLazily(identifiers, emptyMap(), forceGroupsOptions);
+        verifyNoMoreInteractions(proctorMock);
+    }
 }
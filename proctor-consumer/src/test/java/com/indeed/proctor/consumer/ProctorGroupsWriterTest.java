@@ -3,14 +3,25 @@ package com.indeed.proctor.consumer;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSortedMap;
 import com.google.common.collect.Ordering;
+import com.indeed.proctor.common.Identifiers;
+import com.indeed.proctor.common.Proctor;
+import com.indeed.proctor.common.ProctorLoadResult;
 import com.indeed.proctor.common.ProctorResult;
+import com.indeed.proctor.common.RuleEvaluator;
 import com.indeed.proctor.common.model.Allocation;
+import com.indeed.proctor.common.model.Audit;
 import com.indeed.proctor.common.model.ConsumableTestDefinition;
+import com.indeed.proctor.common.model.Range;
 import com.indeed.proctor.common.model.TestBucket;
+import com.indeed.proctor.common.model.TestDefinition;
+import com.indeed.proctor.common.model.TestMatrixArtifact;
+import com.indeed.proctor.common.model.TestType;
 import com.indeed.proctor.consumer.logging.TestGroupFormatter;
 import org.assertj.core.util.Strings;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.CharBuffer;
 import java.util.Collections;
 import java.util.Map;
 import java.util.function.Consumer;
@@ -130,6 +141,75 @@ public class ProctorGroupsWriterTest {
         }.toLoggingString());
     }
 
+    @Test
+    public void testWriteGroupsToAppendable() throws IOException {
+        final ProctorGroupsWriter writer = new ProctorGroupsWriter.Builder(
+                TestGroupFormatter.WITHOUT_ALLOC_ID,
+                TestGroupFormatter.WITH_ALLOC_ID,
+                // custom formatter only implementing the StringBuilder method
+                (sb, testName, allocationId, bucket) -> sb.append(bucket.getName()))
+                .setIncludeInactiveGroups(true)
+                .build();
+        for (final String[] classifiers : new String[][]{{}, {"c1"}, {"c1", ""}}) {
+            final StringBuilder stringBuilder = new StringBuilder("prefix:");
+            writer.writeGroups(stringBuilder, PROCTOR_RESULT, classifiers);
+            assertThat(stringBuilder.toString())
+                    .isEqualTo("prefix:" + writer.writeGroupsAsString(PROCTOR_RESULT, classifiers));
+        }
+
+        final CharBuffer charBuffer = CharBuffer.allocate(100);
+        new ProctorGroupsWriter.Builder(TestGroupFormatter.WITH_ALLOC_ID).build()
+                .writeGroups(charBuffer, PROCTOR_RESULT);
+        charBuffer.flip();
+        assertThat(charBuffer.toString()).isEqualTo("#A:b_missing_definition0,#A:d_foo_tst1");
+
+        final StringBuilder empty = new StringBuilder();
+        writer.writeGroups(empty, new ProctorResult("v1", Collections.emptyMap(), Collections.emptyMap(), Collections.emptyMap()));
+        assertThat(empty.toString()).isEmpty();
+    }
+
+    @Test
+    public void testWriterWithResultOfProctor() throws IOException {
+        final ConsumableTestDefinition definition = ConsumableTestDefinition.fromTestDefinition(
+                TestDefinition.builder()
+                        .setSalt("&footst")
+                        .setTestType(TestType.ANONYMOUS_USER)
+                        .addBuckets(CONTROL_BUCKET, GROUP1_BUCKET)
+                        .addAllocations(new Allocation(null, Collections.singletonList(new Range(1, 1.0)), "#A1"))
+                        .build()
+        );
+        final TestMatrixArtifact matrix = new TestMatrixArtifact();
+        matrix.setTests(ImmutableMap.of("footst", definition));
+        matrix.setAudit(new Audit());
+        final ProctorResult proctorResult = Proctor.construct(
+                matrix,
+                ProctorLoadResult.emptyResult(),
+                RuleEvaluator.defaultFunctionMapperBuilder().build()
+        ).determineTestGroups(Identifiers.of(TestType.ANONYMOUS_USER, "cookie"), Collections.emptyMap(), Collections.emptyMap());
+        assertThat(proctorResult.getTestGroupStrings("footst")).isNotNull();
+
+        final ProctorGroupsWriter writer = new ProctorGroupsWriter.Builder(
+                TestGroupFormatter.WITHOUT_ALLOC_ID,
+                TestGroupFormatter.WITH_ALLOC_ID)
+                .setReuseLatestString(true)
+                .build();
+        final String groups = writer.writeGroupsAsString(proctorResult, "c1");
+        assertThat(groups).isEqualTo("c1,footst1,#A1:footst1");
+        final StringBuilder stringBuilder = new StringBuilder();
+        writer.writeGroups(stringBuilder, proctorResult, "c1");
+        assertThat(stringBuilder.toString()).isEqualTo(groups);
+        assertThat(new AbstractGroups(proctorResult) {
+        }.toLoggingString()).isEqualTo("footst1,#A1:footst1");
+
+        // latest string is reused only for the same result and classifiers
+        assertThat(writer.writeGroupsAsString(proctorResult, "c1")).isSameAs(groups);
+        assertThat(writer.writeGroupsAsString(proctorResult, "c2")).isEqualTo("c2,footst1,#A1:footst1");
+        assertThat(writer.writeGroupsAsString(ProctorResult.unmodifiableView(proctorResult), "c2"))
+                .isEqualTo("c2,footst1,#A1:footst1");
+        assertThat(writer.writeGroupsAsString(PROCTOR_RESULT, "c2"))
+                .isEqualTo("c2,b_missing_definition0,c_empty_alloc_id0,d_foo_tst1,#A:b_missing_definition0,#A:d_foo_tst1");
+    }
+
     @SafeVarargs
     private static ConsumableTestDefinition stubDefinition(final TestBucket buckets, final Consumer<ConsumableTestDefinition>... modifiers) {
         final ConsumableTestDefinition testDefinition = new ConsumableTestDefinition();
@@ -118,6 +118,38 @@ public class TestAbstractGroups {
         assertThat(emptyGroup.getPayload("notexist")).isEqualTo(Payload.EMPTY_PAYLOAD);
     }
 
+    @Test
+    public void testLookupByTestOrdinals() {
+        final ProctorGroupStubber.StubTest[] tests = ProctorGroupStubber.StubTest.values();
+        final TestOrdinals testOrdinals = new TestOrdinals(tests);
+        final AbstractGroups overridingGroups = new AbstractGroups(proctorResult) {
+            @Override
+            protected int getValue(final String testName, final int defaultValue) {
+                return 42;
+            }
+        };
+        for (final ProctorGroupStubber.StubTest test : tests) {
+            final String testName = test.getName();
+            final int fallbackValue = test.getFallbackValue();
+            assertThat(sampleGroups.getValue(testOrdinals, test.ordinal()))
+                    .as(testName)
+                    .isEqualTo(sampleGroups.getValue(testName, fallbackValue));
+            assertThat(sampleGroups.getPayload(testOrdinals, test.ordinal()))
+                    .as(testName)
+                    .isEqualTo(sampleGroups.getPayload(testName, fallbackValue));
+            for (final int value : Arrays.asList(-1, 0, 1)) {
+                assertThat(sampleGroups.isBucketActive(testOrdinals, test.ordinal(), value))
+                        .as(testName)
+                        .isEqualTo(sampleGroups.isBucketActive(testName, value, fallbackValue));
+            }
+            assertThat(emptyGroup.getValue(testOrdinals, test.ordinal())).isEqualTo(fallbackValue);
+
+            // overridden methods are used
+            assertThat(overridingGroups.getValue(testOrdinals, test.ordinal())).isEqualTo(42);
+            assertThat(overridingGroups.isBucketActive(testOrdinals, test.ordinal(), 42)).isTrue();
+        }
+    }
+
     @Test
     public void testIsEmpty() {
         assertThat(emptyGroup.isEmpty()).isTrue();
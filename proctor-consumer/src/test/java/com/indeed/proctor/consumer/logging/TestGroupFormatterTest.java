@@ -3,6 +3,9 @@ package com.indeed.proctor.consumer.logging;
 import com.indeed.proctor.common.model.TestBucket;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 public class TestGroupFormatterTest {
@@ -39,6 +42,22 @@ public class TestGroupFormatterTest {
                 .isEqualTo("fooTest-1");
     }
 
+    @Test
+    public void testAppendToAppendable() throws IOException {
+        final TestBucket bucket = new TestBucket("inactive", -1, "");
+        for (final TestGroupFormatter formatter : new TestGroupFormatter[]{
+                TestGroupFormatter.WITH_ALLOC_ID,
+                TestGroupFormatter.WITHOUT_ALLOC_ID,
+                (sb, testName, allocationId, bucketValue) -> sb.append(allocationId).append(bucketValue.getName())}) {
+            for (final String allocId : new String[]{"#A1", ""}) {
+                final Appendable appendable = new StringWriter();
+                formatter.appendProctorTestGroup(appendable, "fooTest", allocId, bucket);
+                assertThat(appendable.toString())
+                        .isEqualTo(buildLogString(formatter, "fooTest", allocId, bucket));
+            }
+        }
+    }
+
     private static String buildLogString(
             final TestGroupFormatter testGroupFormatter,
             final String testName,